@@ -0,0 +1,79 @@
+package com.twitter.config.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.twitter.config.exception.ConfigLoaderException;
+import com.twitter.config.loader.ConfigLoader;
+import com.twitter.config.models.Config;
+
+/**
+ * ConfigLoader.load from many threads. cachedLoad reads already loaded configs, churnLoad keeps invalidating the cache
+ * so threads race on single-flight loads of the same file.
+ * 
+ * @author agupta13
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class ConcurrentLoadBenchmark {
+
+    private ConfigLoader loader;
+
+    private String configFilePath;
+
+    private List<List<String>> overrides;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+    }
+
+    @Setup
+    public void setup() throws IOException, ConfigLoaderException {
+        configFilePath = SyntheticConfig.generate(1000, 3).getAbsolutePath();
+        loader = new ConfigLoader();
+        overrides = new ArrayList<List<String>>();
+        overrides.add(Collections.<String> emptyList());
+        for (int i = 1; i <= 3; i++) {
+            overrides.add(SyntheticConfig.overrides(i));
+        }
+        for (List<String> override : overrides) {
+            loader.load(configFilePath, override);
+        }
+    }
+
+    @Benchmark
+    public Config cachedLoad(Cursor cursor) throws ConfigLoaderException {
+        return loader.load(configFilePath, overrides.get(cursor.next++ & 3));
+    }
+
+    @Benchmark
+    public Config churnLoad(Cursor cursor) throws ConfigLoaderException {
+        if ((cursor.next++ & 1023) == 0) {
+            loader.getConfigCache().invalidateAll();
+        }
+        return loader.load(configFilePath, overrides.get(cursor.next & 3));
+    }
+}
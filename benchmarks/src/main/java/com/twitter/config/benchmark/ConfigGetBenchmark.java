@@ -0,0 +1,177 @@
+package com.twitter.config.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.twitter.config.binary.BinarySnapshot;
+import com.twitter.config.exception.ConfigLoaderException;
+import com.twitter.config.models.Config;
+import com.twitter.config.models.ConfigGroup;
+import com.twitter.config.models.ConfigImpl;
+import com.twitter.config.models.ConfigKey;
+import com.twitter.config.models.ConfigKeySet;
+import com.twitter.config.models.ConfigLayers;
+import com.twitter.config.models.ConfigOptions;
+import com.twitter.config.models.ConfigSource;
+
+/**
+ * Config.get hit, miss and malformed key paths by name and by ConfigKey, and reading a whole group by concatenated
+ * names versus a group view, and reading a request's worth of keys one by one versus as a ConfigKeySet, for parsed,
+ * snapshot and off-heap configs. Alternating benchmarks read the same keys from two override variants of the file in
+ * turn, the way a shared static ConfigKey is read by requests of different overrides.
+ * 
+ * @author agupta13
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigGetBenchmark {
+
+    private static final String HIT = SyntheticConfig.name(5050);
+
+    private static final String MISSING_KEY = "group50.missing";
+
+    private static final String MISSING_GROUP = "missing.key1";
+
+    private static final String MALFORMED_KEY = "group50.key50.extra";
+
+    private static final ConfigKey HIT_KEY = ConfigKey.of(HIT);
+
+    private static final String GROUP = "group50";
+
+    /**
+     * keys a request handler reads, spread over a few groups
+     */
+    private static final String[] BATCH = new String[30];
+
+    static {
+        for (int i = 0; i < BATCH.length; i++) {
+            BATCH[i] = SyntheticConfig.name(i * 317 % 10000);
+        }
+    }
+
+    private static final ConfigKeySet BATCH_KEYS = ConfigKeySet.of(BATCH);
+
+    @Param({ "parsed", "snapshot", "offHeap" })
+    public String mode;
+
+    private Config config;
+
+    /**
+     * same file without overrides
+     */
+    private Config baseConfig;
+
+    /**
+     * keys of GROUP as a caller knowing them up front would hold them
+     */
+    private List<String> groupKeys;
+
+    private final Object[] batchValues = new Object[BATCH.length];
+
+    @Setup
+    public void setup() throws IOException, ConfigLoaderException {
+        String configFilePath = SyntheticConfig.generate(10000, 3).getAbsolutePath();
+        if ("snapshot".equals(mode)) {
+            ConfigSource snapshot = BinarySnapshot.compile(configFilePath, new ConfigOptions());
+            config = snapshot.newConfig(SyntheticConfig.overrides(1));
+            baseConfig = snapshot.newConfig(null);
+        } else if ("offHeap".equals(mode)) {
+            BinarySnapshot snapshot = BinarySnapshot.offHeap(ConfigLayers.load(configFilePath, new ConfigOptions()));
+            config = snapshot.newConfig(SyntheticConfig.overrides(1));
+            baseConfig = snapshot.newConfig(null);
+        } else {
+            config = new ConfigImpl(configFilePath, SyntheticConfig.overrides(1));
+            baseConfig = ConfigImpl.fromLayers(((ConfigImpl) config).getLayers(), null);
+        }
+        groupKeys = new ArrayList<String>(config.group(GROUP).getKeys());
+    }
+
+    @Benchmark
+    public Object getByName() {
+        return config.get(HIT);
+    }
+
+    @Benchmark
+    public Object getByConfigKey() {
+        return config.get(HIT_KEY);
+    }
+
+    @Benchmark
+    public void getByConfigKeyAlternating(Blackhole blackhole) {
+        blackhole.consume(config.get(HIT_KEY));
+        blackhole.consume(baseConfig.get(HIT_KEY));
+    }
+
+    @Benchmark
+    public long getLong() {
+        return config.getLong(HIT, -1);
+    }
+
+    @Benchmark
+    public Object getMissingKey() {
+        return config.get(MISSING_KEY);
+    }
+
+    @Benchmark
+    public Object getMissingGroup() {
+        return config.get(MISSING_GROUP);
+    }
+
+    @Benchmark
+    public Object getMalformedKey() {
+        return config.get(MALFORMED_KEY);
+    }
+
+    @Benchmark
+    public void readGroupByName(Blackhole blackhole) {
+        for (String key : groupKeys) {
+            blackhole.consume(config.get(GROUP + "." + key));
+        }
+    }
+
+    @Benchmark
+    public void readGroupView(Blackhole blackhole) {
+        ConfigGroup group = config.group(GROUP);
+        for (String key : group.getKeys()) {
+            blackhole.consume(group.get(key));
+        }
+    }
+
+    @Benchmark
+    public void getBatchByName(Blackhole blackhole) {
+        for (String name : BATCH) {
+            blackhole.consume(config.get(name));
+        }
+    }
+
+    @Benchmark
+    public Object[] getAllKeySet() {
+        return config.getAll(BATCH_KEYS, batchValues);
+    }
+
+    @Benchmark
+    public void getAllKeySetAlternating(Blackhole blackhole) {
+        blackhole.consume(config.getAll(BATCH_KEYS, batchValues));
+        blackhole.consume(baseConfig.getAll(BATCH_KEYS, batchValues));
+    }
+}
@@ -0,0 +1,105 @@
+package com.twitter.config.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.twitter.config.binary.BinarySnapshot;
+import com.twitter.config.exception.ConfigLoaderException;
+import com.twitter.config.models.Config;
+import com.twitter.config.models.ConfigImpl;
+import com.twitter.config.models.ConfigOptions;
+import com.twitter.config.models.ConfigSource;
+
+/**
+ * ConfigImpl.load across file sizes and override counts, for each parsing mode and for snapshots
+ * 
+ * @author agupta13
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+public class ConfigLoadBenchmark {
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int keys;
+
+    @Param({ "0", "3" })
+    public int overrides;
+
+    private String configFilePath;
+
+    private List<String> overrideTags;
+
+    private ConfigOptions offHeapValues;
+
+    private ConfigOptions lazy;
+
+    private ConfigOptions parallel;
+
+    private ConfigOptions dedupStrings;
+
+    @Setup
+    public void setup() throws IOException, ConfigLoaderException {
+        File configFile = SyntheticConfig.generate(keys, overrides);
+        configFilePath = configFile.getAbsolutePath();
+        overrideTags = SyntheticConfig.overrides(overrides);
+        offHeapValues = new ConfigOptions();
+        offHeapValues.setOffHeapValues(true);
+        lazy = new ConfigOptions();
+        lazy.setLazy(true);
+        parallel = new ConfigOptions();
+        parallel.setParallel(true);
+        dedupStrings = new ConfigOptions();
+        dedupStrings.setDedupStrings(true);
+        BinarySnapshot.compile(configFilePath, new ConfigOptions());
+    }
+
+    @Benchmark
+    public Config load() throws ConfigLoaderException {
+        return new ConfigImpl(configFilePath, overrideTags);
+    }
+
+    @Benchmark
+    public Config loadLazy() throws ConfigLoaderException {
+        return new ConfigImpl(configFilePath, overrideTags, lazy);
+    }
+
+    @Benchmark
+    public Config loadOffHeapValues() throws ConfigLoaderException {
+        return new ConfigImpl(configFilePath, overrideTags, offHeapValues);
+    }
+
+    @Benchmark
+    public Config loadParallel() throws ConfigLoaderException {
+        return new ConfigImpl(configFilePath, overrideTags, parallel);
+    }
+
+    @Benchmark
+    public Config loadDedupStrings() throws ConfigLoaderException {
+        return new ConfigImpl(configFilePath, overrideTags, dedupStrings);
+    }
+
+    @Benchmark
+    public Config loadSnapshot() throws ConfigLoaderException {
+        ConfigSource source = BinarySnapshot.load(configFilePath, offHeapValues);
+        return source.newConfig(overrideTags);
+    }
+}
@@ -0,0 +1,56 @@
+package com.twitter.config.benchmark;
+
+import java.util.Arrays;
+
+import com.twitter.config.models.BooleanProperty;
+import com.twitter.config.models.DoubleProperty;
+import com.twitter.config.models.ListProperty;
+import com.twitter.config.models.LongProperty;
+import com.twitter.config.models.Property;
+import com.twitter.config.models.StringProperty;
+
+/**
+ * Parse-and-catch typing used by PropertyFactory before lexical classification, kept as benchmark baseline
+ * 
+ * @author agupta13
+ * 
+ */
+@SuppressWarnings("rawtypes")
+public class LegacyPropertyFactory {
+
+    public static Property getProperty(String key, String value) {
+        if (isLong(value)) {
+            return new LongProperty(key, Long.parseLong(value));
+        } else if (isDouble(value)) {
+            return new DoubleProperty(key, Double.parseDouble(value));
+        } else if (isBoolean(value)) {
+            return new BooleanProperty(key, Boolean.parseBoolean(value));
+        } else if (value.contains(",")) {
+            return new ListProperty(key, Arrays.asList(value.split(",")));
+        } else {
+            return new StringProperty(key, value);
+        }
+    }
+
+    private static boolean isLong(String value) {
+        try {
+            Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isDouble(String value) {
+        try {
+            Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isBoolean(String value) {
+        return "true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value);
+    }
+}
@@ -0,0 +1,47 @@
+package com.twitter.config.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.twitter.config.exception.ConfigLoaderException;
+import com.twitter.config.factory.PropertyFactory;
+import com.twitter.config.models.Property;
+
+/**
+ * PropertyFactory.getProperty per value type against the parse-and-catch baseline
+ * 
+ * @author agupta13
+ * 
+ */
+@SuppressWarnings("rawtypes")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyFactoryBenchmark {
+
+    @Param({ "26214400", "0.75", "false", "array,of,values", "/srv/var/tmp/" })
+    public String value;
+
+    @Benchmark
+    public Property propertyFactory() throws ConfigLoaderException {
+        return PropertyFactory.getProperty("key", value);
+    }
+
+    @Benchmark
+    public Property legacyPropertyFactory() {
+        return LegacyPropertyFactory.getProperty("key", value);
+    }
+}
@@ -0,0 +1,90 @@
+package com.twitter.config.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates config files of given size for benchmarks. Files have 100 keys per group with a mix of long, double,
+ * boolean, list and string values, every 10th key is also defined for each override tag. Generated files are kept in
+ * java.io.tmpdir and reused by later runs.
+ * 
+ * @author agupta13
+ * 
+ */
+public class SyntheticConfig {
+
+    public static final int KEYS_PER_GROUP = 100;
+
+    private static final String[] VALUES = { "26214400", "0.75", "false", "array,of,values", "/srv/var/tmp/",
+            "\"hello there, ftp uploading\"" };
+
+    /**
+     * @param keys
+     *            number of untagged keys
+     * @param overrides
+     *            number of override tags
+     * @return config file
+     * @throws IOException
+     */
+    public static File generate(int keys, int overrides) throws IOException {
+        File configFile = new File(System.getProperty("java.io.tmpdir"), "config-benchmark-" + keys + "-" + overrides
+                + ".properties");
+        if (configFile.exists()) {
+            return configFile;
+        }
+        File tmpFile = new File(configFile.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile),
+                StandardCharsets.UTF_8))) {
+            for (int key = 0; key < keys; key++) {
+                if (key % KEYS_PER_GROUP == 0) {
+                    writer.write("[" + group(key) + "]\n");
+                    writer.write("; generated group\n");
+                }
+                writer.write(key(key) + " = " + VALUES[key % VALUES.length] + "\n");
+                if (key % 10 == 0) {
+                    for (String override : overrides(overrides)) {
+                        writer.write(key(key) + "<" + override + "> = " + VALUES[(key + 1) % VALUES.length]
+                                + " ; overridden\n");
+                    }
+                }
+            }
+        }
+        if (!tmpFile.renameTo(configFile) && !configFile.exists()) {
+            throw new IOException("Failed to generate config file=" + configFile);
+        }
+        return configFile;
+    }
+
+    /**
+     * @return override tags of generated files
+     */
+    public static List<String> overrides(int overrides) {
+        List<String> tags = new ArrayList<String>();
+        for (int i = 0; i < overrides; i++) {
+            tags.add("override" + i);
+        }
+        return tags;
+    }
+
+    /**
+     * @return "group.key" name of n-th key
+     */
+    public static String name(int key) {
+        return group(key) + "." + key(key);
+    }
+
+    private static String group(int key) {
+        return "group" + key / KEYS_PER_GROUP;
+    }
+
+    private static String key(int key) {
+        return "key" + key % KEYS_PER_GROUP;
+    }
+}
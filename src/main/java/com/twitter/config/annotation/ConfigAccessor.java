@@ -0,0 +1,41 @@
+package com.twitter.config.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface of {@link ConfigProperty} methods, ConfigAccessorProcessor generates its implementation named
+ * after the interface with an Impl suffix (Outer_InnerImpl for nested interfaces). The implementation takes a Config
+ * and reads every property from a fixed slot of a ConfigKeySet, typed accessors return primitives without boxing.
+ *
+ * <pre>
+ * &#64;ConfigAccessor(file = "sample.properties")
+ * public interface FtpSettings {
+ *
+ *     &#64;ConfigProperty("ftp.path")
+ *     String path();
+ *
+ *     &#64;ConfigProperty("common.basic_size_limit")
+ *     long sizeLimit(long defaultValue);
+ * }
+ *
+ * FtpSettings settings = new FtpSettingsImpl(config);
+ * </pre>
+ *
+ * @author agupta13
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface ConfigAccessor {
+
+    /**
+     * Config file the keys and value types are checked against at build time, a path relative to the processor option
+     * configAccessor.configDir, a class path resource or an absolute path. Empty to only check key syntax.
+     */
+    String file() default "";
+}
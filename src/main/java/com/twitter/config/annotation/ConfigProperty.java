@@ -0,0 +1,26 @@
+package com.twitter.config.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Property read by a method of a {@link ConfigAccessor} interface. Methods return long, double, boolean, String,
+ * List&lt;String&gt; or Object and take either no parameter or the default value, of the return type, returned when
+ * the property is missing or of another type. Without a parameter the default is 0, false or null.
+ *
+ * @author agupta13
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface ConfigProperty {
+
+    /**
+     * property name, group.key
+     */
+    String value();
+}
@@ -0,0 +1,170 @@
+package com.twitter.config.binary;
+
+import static com.twitter.config.binary.BinaryConfigFormat.*;
+
+import java.util.List;
+import java.util.Map;
+
+import com.twitter.config.models.ConfigChange;
+import com.twitter.config.models.ConfigSnapshot;
+import com.twitter.config.models.Property;
+
+/**
+ * Read-only config answered straight from a mapped or off-heap {@link BinarySnapshot}. Overrides are resolved on each
+ * lookup by probing the requested override layers, the definition last in the config file wins like in ConfigImpl.
+ * Reads of an off-heap snapshot whose memory was released throw IllegalStateException.
+ *
+ * @author agupta13
+ *
+ */
+@SuppressWarnings("rawtypes")
+public class BinaryConfig extends ConfigSnapshot {
+
+    private final BinarySnapshot snapshot;
+
+    /**
+     * override layers to apply
+     */
+    private final int[] layers;
+
+    BinaryConfig(BinarySnapshot snapshot, int[] layers) {
+        this.snapshot = snapshot;
+        this.layers = layers;
+    }
+
+    @Override
+    public Object get(String key) {
+        snapshot.enter();
+        try {
+            int slot = slot(key);
+            return slot == -1 ? null : snapshot.value(slot);
+        } finally {
+            snapshot.exit();
+        }
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        snapshot.enter();
+        try {
+            int slot = slot(key);
+            return slot != -1 && snapshot.type(slot) == TYPE_LONG ? snapshot.longValue(slot) : defaultValue;
+        } finally {
+            snapshot.exit();
+        }
+    }
+
+    @Override
+    public double getDouble(String key, double defaultValue) {
+        snapshot.enter();
+        try {
+            int slot = slot(key);
+            if (slot == -1) {
+                return defaultValue;
+            }
+            switch (snapshot.type(slot)) {
+            case TYPE_DOUBLE:
+                return snapshot.doubleValue(slot);
+            case TYPE_LONG:
+                return snapshot.longValue(slot);
+            default:
+                return defaultValue;
+            }
+        } finally {
+            snapshot.exit();
+        }
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        snapshot.enter();
+        try {
+            int slot = slot(key);
+            return slot != -1 && snapshot.type(slot) == TYPE_BOOLEAN ? snapshot.booleanValue(slot) : defaultValue;
+        } finally {
+            snapshot.exit();
+        }
+    }
+
+    @Override
+    protected Property lookup(String group, String key) {
+        snapshot.enter();
+        try {
+            int slot = snapshot.find(layers, group, key);
+            return slot == -1 ? null : snapshot.property(slot);
+        } finally {
+            snapshot.exit();
+        }
+    }
+
+    /**
+     * Materializes all properties, meant for diffs and tools, not for lookups
+     */
+    @Override
+    public Map<String, Map<String, Property>> getProperties() {
+        snapshot.enter();
+        try {
+            return snapshot.properties(layers);
+        } finally {
+            snapshot.exit();
+        }
+    }
+
+    /**
+     * Names read from the snapshot string table, properties are not materialized
+     */
+    @Override
+    protected void collectNames(List<String> groupNames, List<String> keyNames) {
+        snapshot.enter();
+        try {
+            snapshot.collectNames(layers, groupNames, keyNames);
+        } finally {
+            snapshot.exit();
+        }
+    }
+
+    /**
+     * Diff of two binary configs compares encoded values in the snapshots, other configs are diffed as property maps
+     */
+    @Override
+    protected List<ConfigChange> changesSince(ConfigSnapshot previous) {
+        if (!(previous instanceof BinaryConfig)) {
+            return super.changesSince(previous);
+        }
+        BinarySnapshot previousSnapshot = ((BinaryConfig) previous).snapshot;
+        previousSnapshot.enter();
+        try {
+            snapshot.enter();
+            try {
+                return BinarySnapshot.diff(previousSnapshot, ((BinaryConfig) previous).layers, snapshot, layers);
+            } finally {
+                snapshot.exit();
+            }
+        } finally {
+            previousSnapshot.exit();
+        }
+    }
+
+    @Override
+    public boolean retain() {
+        return snapshot.retain();
+    }
+
+    @Override
+    public void release() {
+        snapshot.release();
+    }
+
+    public BinarySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private int slot(String key) {
+        int length = keyLength(key);
+        int delimiter = keyDelimiter(key, length);
+        if (delimiter == -1) {
+            return -1;
+        }
+        return snapshot.find(layers, key.substring(0, delimiter), key.substring(delimiter + 1, length));
+    }
+}
@@ -0,0 +1,281 @@
+package com.twitter.config.binary;
+
+import static com.twitter.config.binary.BinaryConfigFormat.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.twitter.config.exception.ConfigLoaderError;
+import com.twitter.config.exception.ConfigLoaderException;
+import com.twitter.config.models.BooleanProperty;
+import com.twitter.config.models.ConfigImpl;
+import com.twitter.config.models.ConfigLayers;
+import com.twitter.config.models.DoubleProperty;
+import com.twitter.config.models.LazyProperty;
+import com.twitter.config.models.ListProperty;
+import com.twitter.config.models.LongProperty;
+import com.twitter.config.models.Property;
+import com.twitter.config.models.StringProperty;
+
+/**
+ * Compiles parsed config layers into a binary snapshot, see {@link BinaryConfigFormat}. Snapshot is written to a
+ * temporary file and renamed over the target, readers never see a partially written snapshot.
+ *
+ * @author agupta13
+ *
+ */
+@SuppressWarnings("rawtypes")
+public class BinaryConfigCompiler {
+
+    private static final Logger logger = LoggerFactory.getLogger(BinaryConfigCompiler.class);
+
+    /**
+     * @param config
+     *            parsed config, overrides applied to it are ignored - all override layers are compiled
+     * @param sourceFile
+     *            config file config was parsed from
+     * @param snapshotFile
+     * @throws ConfigLoaderException
+     */
+    public static void compile(ConfigImpl config, File sourceFile, File snapshotFile) throws ConfigLoaderException {
+        compile(config.getLayers(), sourceFile, snapshotFile);
+    }
+
+    public static void compile(ConfigLayers layers, File sourceFile, File snapshotFile) throws ConfigLoaderException {
+        write(compile(layers, sourceFile.length(), sourceFile.lastModified()), snapshotFile);
+    }
+
+    static void write(ByteBuffer snapshot, File snapshotFile) throws ConfigLoaderException {
+        Path tmpFile = null;
+        try {
+            // unique per call, processes compiling the same snapshot never write into one file
+            File directory = snapshotFile.getAbsoluteFile().getParentFile();
+            tmpFile = Files.createTempFile(directory.toPath(), snapshotFile.getName(), ".tmp");
+            try {
+                // created owner-only, readable by other users of the directory like snapshots written in place
+                Files.setPosixFilePermissions(tmpFile, PosixFilePermissions.fromString("rw-r--r--"));
+            } catch (UnsupportedOperationException e) {
+                // not a POSIX file system
+            }
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE)) {
+                while (snapshot.hasRemaining()) {
+                    channel.write(snapshot);
+                }
+            }
+            try {
+                Files.move(tmpFile, snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile, snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            tmpFile = null;
+        } catch (IOException e) {
+            logger.error("Error writing config snapshot=" + snapshotFile);
+            throw new ConfigLoaderException(ConfigLoaderError.FAILED_TO_WRITE_CONFIG_SNAPSHOT,
+                    "Error writing config snapshot=" + snapshotFile);
+        } finally {
+            if (tmpFile != null) {
+                tmpFile.toFile().delete();
+            }
+        }
+    }
+
+    /**
+     * @return snapshot bytes, position 0 and limit at end of snapshot
+     * @throws ConfigLoaderException
+     */
+    static ByteBuffer compile(ConfigLayers layers, long sourceLength, long sourceLastModified)
+            throws ConfigLoaderException {
+        final Map<String, List<Slot>> layerSlots = new LinkedHashMap<String, List<Slot>>();
+        layerSlots.put(null, new ArrayList<Slot>());
+        layers.accept(new ConfigLayers.Visitor() {
+            @Override
+            public void property(String override, String group, String key, int ordinal, Property property) {
+                List<Slot> slots = layerSlots.get(override);
+                if (slots == null) {
+                    slots = new ArrayList<Slot>();
+                    layerSlots.put(override, slots);
+                }
+                slots.add(new Slot(group, key, ordinal, property));
+            }
+        });
+
+        Writer writer = new Writer();
+        for (List<Slot> slots : layerSlots.values()) {
+            for (Slot slot : slots) {
+                writer.value(slot);
+            }
+        }
+
+        int[] names = new int[layerSlots.size()];
+        int[] capacities = new int[layerSlots.size()];
+        int[] tables = new int[layerSlots.size()];
+        int layer = 0;
+        for (Map.Entry<String, List<Slot>> slots : layerSlots.entrySet()) {
+            names[layer] = slots.getKey() == null ? 0 : writer.string(slots.getKey());
+            capacities[layer] = tableCapacity(slots.getValue().size());
+            tables[layer] = writer.table(slots.getValue(), capacities[layer]);
+            layer++;
+        }
+
+        int directory = writer.position();
+        for (layer = 0; layer < names.length; layer++) {
+            writer.ensure(LAYER_ENTRY_SIZE);
+            writer.buffer.putInt(names[layer]).putInt(capacities[layer]).putInt(tables[layer]);
+        }
+
+        ByteBuffer buffer = writer.buffer;
+        int end = buffer.position();
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, end - HEADER_SIZE);
+        buffer.putInt(0, MAGIC).putInt(4, VERSION).putLong(SOURCE_LENGTH_OFFSET, sourceLength)
+                .putLong(SOURCE_LAST_MODIFIED_OFFSET, sourceLastModified)
+                .putInt(PAYLOAD_LENGTH_OFFSET, end - HEADER_SIZE).putInt(CRC_OFFSET, (int) crc.getValue())
+                .putInt(LAYER_COUNT_OFFSET, names.length).putInt(LAYER_DIRECTORY_OFFSET, directory);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * property of a layer with its encoded value
+     */
+    private static final class Slot {
+
+        private final String group;
+
+        private final String key;
+
+        private final int ordinal;
+
+        private final Property property;
+
+        private int type;
+
+        private long value;
+
+        private Slot(String group, String key, int ordinal, Property property) {
+            this.group = group;
+            this.key = key;
+            this.ordinal = ordinal;
+            this.property = property instanceof LazyProperty ? ((LazyProperty) property).resolve() : property;
+        }
+    }
+
+    /**
+     * Growable heap buffer with deduplicated string area
+     */
+    private static final class Writer {
+
+        private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+        private Writer() {
+            buffer.position(HEADER_SIZE);
+        }
+
+        private int position() {
+            return buffer.position();
+        }
+
+        private void ensure(int length) throws ConfigLoaderException {
+            if (buffer.remaining() >= length) {
+                return;
+            }
+            long required = (long) buffer.position() + length;
+            if (required > Integer.MAX_VALUE) {
+                throw new ConfigLoaderException(ConfigLoaderError.FAILED_TO_WRITE_CONFIG_SNAPSHOT,
+                        "Config is too large for snapshot");
+            }
+            ByteBuffer grown = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE,
+                    Math.max(required, buffer.capacity() * 2L)));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+
+        private int string(String value) throws ConfigLoaderException {
+            Integer offset = strings.get(value);
+            if (offset != null) {
+                return offset;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(4 + bytes.length);
+            offset = buffer.position();
+            buffer.putInt(bytes.length).put(bytes);
+            strings.put(value, offset);
+            return offset;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void value(Slot slot) throws ConfigLoaderException {
+            string(slot.group);
+            string(slot.key);
+            Property property = slot.property;
+            if (property instanceof LongProperty) {
+                slot.type = TYPE_LONG;
+                slot.value = ((LongProperty) property).longValue();
+            } else if (property instanceof DoubleProperty) {
+                slot.type = TYPE_DOUBLE;
+                slot.value = Double.doubleToRawLongBits(((DoubleProperty) property).doubleValue());
+            } else if (property instanceof BooleanProperty) {
+                slot.type = TYPE_BOOLEAN;
+                slot.value = ((BooleanProperty) property).booleanValue() ? 1 : 0;
+            } else if (property instanceof ListProperty) {
+                List<String> values = ((ListProperty) property).getValue();
+                int[] offsets = new int[values.size()];
+                for (int i = 0; i < offsets.length; i++) {
+                    offsets[i] = string(values.get(i));
+                }
+                ensure(4 + 4 * offsets.length);
+                slot.type = TYPE_LIST;
+                slot.value = buffer.position();
+                buffer.putInt(offsets.length);
+                for (int offset : offsets) {
+                    buffer.putInt(offset);
+                }
+            } else if (property instanceof StringProperty) {
+                slot.type = TYPE_STRING;
+                slot.value = string(((StringProperty) property).getValue());
+            } else {
+                throw new ConfigLoaderException(ConfigLoaderError.INVALID_PROPERTY_VALUE, "Unsupported property="
+                        + slot.group + "." + slot.key);
+            }
+        }
+
+        private int table(List<Slot> slots, int capacity) throws ConfigLoaderException {
+            ensure(capacity * SLOT_SIZE);
+            int table = buffer.position();
+            buffer.position(table + capacity * SLOT_SIZE);
+            for (Slot slot : slots) {
+                int hash = hash(slot.group, slot.key);
+                int index = hash & (capacity - 1);
+                while (buffer.getInt(table + index * SLOT_SIZE + SLOT_GROUP) != 0) {
+                    index = (index + 1) & (capacity - 1);
+                }
+                int position = table + index * SLOT_SIZE;
+                buffer.putInt(position + SLOT_HASH, hash).putInt(position + SLOT_GROUP, strings.get(slot.group))
+                        .putInt(position + SLOT_KEY, strings.get(slot.key)).putInt(position + SLOT_TYPE, slot.type)
+                        .putInt(position + SLOT_ORDINAL, slot.ordinal).putLong(position + SLOT_VALUE, slot.value);
+            }
+            return table;
+        }
+    }
+}
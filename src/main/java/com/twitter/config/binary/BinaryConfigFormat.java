@@ -0,0 +1,96 @@
+package com.twitter.config.binary;
+
+/**
+ * Layout of compiled config snapshot. All numbers are big-endian, all offsets are absolute file positions.
+ *
+ * <pre>
+ * header   magic:int version:int sourceLength:long sourceLastModified:long payloadLength:int crc32:int
+ *          layerCount:int layerDirectoryOffset:int
+ * payload  strings  length:int utf8 bytes, shared by group names, keys, override tags and string values
+ *          lists    count:int string offsets:int[count]
+ *          tables   one open addressing (linear probing) table per layer, capacity is a power of 2
+ *                   slot: hash:int group:int key:int type:int ordinal:int padding:int value:long
+ *          layers   name:int capacity:int table:int per layer, layer 0 is base layer with name 0
+ * </pre>
+ *
+ * Empty slots have group 0. Value is the long, double bits, boolean (0/1), string offset or list offset by type. crc32
+ * covers the payload, sourceLength and sourceLastModified identify the config file the snapshot was compiled from.
+ *
+ * @author agupta13
+ *
+ */
+final class BinaryConfigFormat {
+
+    static final int MAGIC = 0x43464742; // CFGB
+
+    static final int VERSION = 2;
+
+    static final int HEADER_SIZE = 40;
+
+    static final int SOURCE_LENGTH_OFFSET = 8;
+
+    static final int SOURCE_LAST_MODIFIED_OFFSET = 16;
+
+    static final int PAYLOAD_LENGTH_OFFSET = 24;
+
+    static final int CRC_OFFSET = 28;
+
+    static final int LAYER_COUNT_OFFSET = 32;
+
+    static final int LAYER_DIRECTORY_OFFSET = 36;
+
+    static final int LAYER_ENTRY_SIZE = 12;
+
+    static final int SLOT_SIZE = 32;
+
+    static final int SLOT_HASH = 0;
+
+    static final int SLOT_GROUP = 4;
+
+    static final int SLOT_KEY = 8;
+
+    static final int SLOT_TYPE = 12;
+
+    static final int SLOT_ORDINAL = 16;
+
+    static final int SLOT_VALUE = 24;
+
+    static final int TYPE_LONG = 1;
+
+    static final int TYPE_DOUBLE = 2;
+
+    static final int TYPE_BOOLEAN = 3;
+
+    static final int TYPE_STRING = 4;
+
+    static final int TYPE_LIST = 5;
+
+    /**
+     * suffix of snapshot file kept next to config file
+     */
+    static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private BinaryConfigFormat() {
+    }
+
+    /**
+     * String hash codes of generated names like key1, key2 are sequential, murmur3 finalizer spreads them so linear
+     * probing doesn't walk long clusters
+     */
+    static int hash(String group, String key) {
+        int h = 31 * group.hashCode() + key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    static int tableCapacity(int size) {
+        int capacity = 2;
+        while (capacity * 3 < size * 4) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,805 @@
+package com.twitter.config.binary;
+
+import static com.twitter.config.binary.BinaryConfigFormat.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.twitter.config.cache.ConfigCacheStore;
+import com.twitter.config.exception.ConfigLoaderError;
+import com.twitter.config.exception.ConfigLoaderException;
+import com.twitter.config.models.BooleanProperty;
+import com.twitter.config.models.ConfigChange;
+import com.twitter.config.models.ConfigLayers;
+import com.twitter.config.models.ConfigOptions;
+import com.twitter.config.models.ConfigSnapshot;
+import com.twitter.config.models.ConfigSource;
+import com.twitter.config.models.DoubleProperty;
+import com.twitter.config.models.ListProperty;
+import com.twitter.config.models.LongProperty;
+import com.twitter.config.models.Property;
+import com.twitter.config.models.StringProperty;
+import com.twitter.config.utils.ConfigLoaderUtils;
+
+/**
+ * Compiled config snapshot opened with mmap. Lookups probe the mapped hash tables directly, no per-key objects are
+ * created on open, values are decoded on read. Opening costs one CRC pass over the file and one pass over the tables
+ * checking their offsets.
+ *
+ * An {@link #offHeap(ConfigLayers)} snapshot keeps the same format in a direct buffer instead of a file, keys and
+ * values of huge configs stay out of the Java heap and out of GC work. Its memory is reference counted: the creator
+ * holds the first reference, {@link #retain()} takes another and {@link #release()} drops one, the last release frees
+ * the memory once reads in progress finish. Reads of its configs after that throw IllegalStateException.
+ *
+ * Snapshot is immutable and safe to share between threads.
+ *
+ * @author agupta13
+ *
+ */
+@SuppressWarnings("rawtypes")
+public class BinarySnapshot implements ConfigSource {
+
+    private static final String STORE_KEY_PREFIX = "config-snapshot-v";
+
+    private static final Logger logger = LoggerFactory.getLogger(BinarySnapshot.class);
+
+    private final ByteBuffer buffer;
+
+    private final int layerCount;
+
+    private final int layerDirectory;
+
+    /**
+     * override tag -> layer
+     */
+    private final Map<String, Integer> overrideLayers;
+
+    /**
+     * guards reads of off-heap memory released by the last release, null for mapped snapshots
+     */
+    private final ReaderGuard guard;
+
+    /**
+     * references to off-heap memory, freed when it drops to 0
+     */
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    BinarySnapshot(ByteBuffer buffer) throws ConfigLoaderException {
+        this(buffer, null);
+    }
+
+    private BinarySnapshot(ByteBuffer buffer, ReaderGuard guard) throws ConfigLoaderException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new ConfigLoaderException(ConfigLoaderError.INVALID_CONFIG_SNAPSHOT, "Not a config snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new ConfigLoaderException(ConfigLoaderError.INVALID_CONFIG_SNAPSHOT,
+                    "Unsupported config snapshot version=" + buffer.getInt(4));
+        }
+        int payloadLength = buffer.getInt(PAYLOAD_LENGTH_OFFSET);
+        if (payloadLength < 0 || payloadLength != buffer.limit() - HEADER_SIZE) {
+            throw new ConfigLoaderException(ConfigLoaderError.INVALID_CONFIG_SNAPSHOT, "Truncated config snapshot");
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(HEADER_SIZE);
+        crc.update(payload);
+        if ((int) crc.getValue() != buffer.getInt(CRC_OFFSET)) {
+            throw new ConfigLoaderException(ConfigLoaderError.INVALID_CONFIG_SNAPSHOT, "Corrupted config snapshot");
+        }
+
+        this.buffer = buffer;
+        this.layerCount = buffer.getInt(LAYER_COUNT_OFFSET);
+        this.layerDirectory = buffer.getInt(LAYER_DIRECTORY_OFFSET);
+        if (!isValid()) {
+            throw new ConfigLoaderException(ConfigLoaderError.INVALID_CONFIG_SNAPSHOT, "Malformed config snapshot");
+        }
+        Map<String, Integer> overrideLayers = new HashMap<String, Integer>();
+        for (int layer = 1; layer < layerCount; layer++) {
+            overrideLayers.put(string(buffer.getInt(layerDirectory + layer * LAYER_ENTRY_SIZE)), layer);
+        }
+        this.overrideLayers = overrideLayers;
+        this.guard = guard;
+    }
+
+    /**
+     * Checks every offset and length lookups follow stays inside the buffer and every table has an empty slot ending
+     * probes, a CRC-valid snapshot written by a buggy or malicious writer can't make reads loop or fail.
+     */
+    private boolean isValid() {
+        if (layerCount < 1 || !isInside(layerDirectory, (long) layerCount * LAYER_ENTRY_SIZE)) {
+            return false;
+        }
+        for (int layer = 0; layer < layerCount; layer++) {
+            int entry = layerDirectory + layer * LAYER_ENTRY_SIZE;
+            int capacity = buffer.getInt(entry + 4);
+            int table = buffer.getInt(entry + 8);
+            if (layer > 0 && !isString(buffer.getInt(entry)) || capacity <= 0 || (capacity & (capacity - 1)) != 0
+                    || !isInside(table, (long) capacity * SLOT_SIZE)) {
+                return false;
+            }
+            boolean empty = false;
+            for (int index = 0; index < capacity; index++) {
+                int slot = table + index * SLOT_SIZE;
+                if (buffer.getInt(slot + SLOT_GROUP) == 0) {
+                    empty = true;
+                } else if (!isString(buffer.getInt(slot + SLOT_GROUP)) || !isString(buffer.getInt(slot + SLOT_KEY))
+                        || !isValue(buffer.getInt(slot + SLOT_TYPE), buffer.getLong(slot + SLOT_VALUE))) {
+                    return false;
+                }
+            }
+            if (!empty) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isValue(int type, long value) {
+        switch (type) {
+        case TYPE_LONG:
+        case TYPE_DOUBLE:
+        case TYPE_BOOLEAN:
+            return true;
+        case TYPE_STRING:
+            return value == (int) value && isString((int) value);
+        case TYPE_LIST:
+            if (value != (int) value || !isInside((int) value, 4)) {
+                return false;
+            }
+            int list = (int) value;
+            int count = buffer.getInt(list);
+            if (count < 0 || !isInside(list + 4, 4L * count)) {
+                return false;
+            }
+            for (int i = 1; i <= count; i++) {
+                if (!isString(buffer.getInt(list + 4 * i))) {
+                    return false;
+                }
+            }
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private boolean isString(int offset) {
+        return isInside(offset, 4) && buffer.getInt(offset) >= 0 && isInside(offset + 4, buffer.getInt(offset));
+    }
+
+    /**
+     * @return true if length bytes from offset are in the payload
+     */
+    private boolean isInside(int offset, long length) {
+        return offset >= HEADER_SIZE && offset + length <= buffer.limit();
+    }
+
+    /**
+     * Compile parsed layers into a direct buffer. Buffer is allocated outside the heap (see -XX:MaxDirectMemorySize)
+     * and freed by the release of the reference returned to the caller and of every reference retained later, or by
+     * GC if the snapshot becomes unreachable first.
+     *
+     * @param layers
+     * @return
+     * @throws ConfigLoaderException
+     */
+    public static BinarySnapshot offHeap(ConfigLayers layers) throws ConfigLoaderException {
+        ByteBuffer compiled = BinaryConfigCompiler.compile(layers, 0, 0);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(compiled.remaining());
+        buffer.put(compiled).flip();
+        return new BinarySnapshot(buffer, new ReaderGuard());
+    }
+
+    /**
+     * Open and verify snapshot file
+     *
+     * @param snapshotFile
+     * @return
+     * @throws ConfigLoaderException
+     */
+    public static BinarySnapshot open(File snapshotFile) throws ConfigLoaderException {
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new ConfigLoaderException(ConfigLoaderError.INVALID_CONFIG_SNAPSHOT,
+                        "Config snapshot is too large=" + snapshotFile);
+            }
+            return new BinarySnapshot(channel.map(MapMode.READ_ONLY, 0, size));
+        } catch (IOException e) {
+            logger.error("Error reading config snapshot=" + snapshotFile);
+            throw new ConfigLoaderException(ConfigLoaderError.FAILED_TO_READ_CONFIG_FILE,
+                    "Error reading config snapshot=" + snapshotFile);
+        }
+    }
+
+    /**
+     * Open snapshot kept next to config file (configFilePath.snapshot) if it was compiled from the current config file,
+     * otherwise parse config file and compile a new snapshot. If snapshot can't be written parsed layers are returned.
+     *
+     * Snapshot is matched to config file by length and modification time.
+     *
+     * @param configFilePath
+     * @param options
+     * @return
+     * @throws ConfigLoaderException
+     */
+    public static ConfigSource load(String configFilePath, ConfigOptions options) throws ConfigLoaderException {
+        File sourceFile = configFilePath == null ? null : new File(configFilePath);
+        if (sourceFile != null && sourceFile.exists()) {
+            File snapshotFile = new File(configFilePath + SNAPSHOT_SUFFIX);
+            if (snapshotFile.exists()) {
+                try {
+                    BinarySnapshot snapshot = open(snapshotFile);
+                    if (snapshot.isCompiledFrom(sourceFile)) {
+                        return snapshot;
+                    }
+                    logger.info("Config snapshot={} is stale, compiling it again", snapshotFile);
+                } catch (ConfigLoaderException e) {
+                    logger.warn("Ignoring unreadable config snapshot={}, Error={}", snapshotFile, e.getErrorMsg());
+                }
+            }
+        }
+        return compile(configFilePath, options);
+    }
+
+    /**
+     * Snapshot of config file from store, keyed by content hash. On a miss the file is parsed and its snapshot is put in
+     * store for other processes. Store errors are logged and the file is parsed. The store is trusted like the file
+     * system (see {@link ConfigCacheStore}), stored values are only checked to be well-formed snapshots, values failing
+     * the check are ignored like a miss.
+     *
+     * @param configFilePath
+     * @param options
+     * @param store
+     * @return snapshot read from store, or parsed layers
+     * @throws ConfigLoaderException
+     */
+    public static ConfigSource load(String configFilePath, ConfigOptions options, ConfigCacheStore store)
+            throws ConfigLoaderException {
+        File sourceFile = configFilePath == null ? null : new File(configFilePath);
+        String hash = sourceFile == null || !sourceFile.isFile() ? null : contentHash(sourceFile);
+        if (hash == null) {
+            // reports missing or unreadable file
+            return ConfigLayers.load(configFilePath, options);
+        }
+        String key = storeKey(hash);
+        try {
+            BinarySnapshot stored = fromStore(key, store.get(key));
+            if (stored != null) {
+                return stored;
+            }
+        } catch (ConfigLoaderException e) {
+            logger.warn("Failed to read config snapshot key={} from store, Error={}", key, e.getErrorMsg());
+        }
+
+        long sourceLength = sourceFile.length();
+        long sourceLastModified = sourceFile.lastModified();
+        ConfigLayers layers = ConfigLayers.load(configFilePath, options);
+        // file changed while parsing, layers don't match key
+        if (!hash.equals(contentHash(sourceFile))) {
+            return layers;
+        }
+        try {
+            ByteBuffer compiled = BinaryConfigCompiler.compile(layers, sourceLength, sourceLastModified);
+            byte[] value = new byte[compiled.remaining()];
+            compiled.get(value);
+            store.put(key, value);
+        } catch (ConfigLoaderException e) {
+            logger.warn("Failed to put config snapshot key={} in store, Error={}", key, e.getErrorMsg());
+        }
+        return layers;
+    }
+
+    /**
+     * Snapshots of several config files from store with one batched lookup, checked like in
+     * {@link #load(String, ConfigOptions, ConfigCacheStore)}. Nothing is parsed or put in store.
+     *
+     * @param configFilePaths
+     * @param store
+     * @return path -> snapshot of files found in store, files that are missing, unreadable or fail the check are left
+     *         out
+     */
+    public static Map<String, BinarySnapshot> loadAll(Collection<String> configFilePaths, ConfigCacheStore store) {
+        Map<String, String> paths = new HashMap<String, String>();
+        for (String configFilePath : configFilePaths) {
+            File sourceFile = new File(configFilePath);
+            String hash = sourceFile.isFile() ? contentHash(sourceFile) : null;
+            if (hash != null) {
+                paths.put(storeKey(hash), configFilePath);
+            }
+        }
+        Map<String, BinarySnapshot> snapshots = new HashMap<String, BinarySnapshot>();
+        if (paths.isEmpty()) {
+            return snapshots;
+        }
+        try {
+            for (Map.Entry<String, byte[]> stored : store.getAll(paths.keySet()).entrySet()) {
+                String configFilePath = paths.get(stored.getKey());
+                BinarySnapshot snapshot = configFilePath == null ? null : fromStore(stored.getKey(), stored
+                        .getValue());
+                if (snapshot != null) {
+                    snapshots.put(configFilePath, snapshot);
+                }
+            }
+        } catch (ConfigLoaderException e) {
+            logger.warn("Failed to read config snapshots of {} files from store, Error={}", paths.size(),
+                    e.getErrorMsg());
+        }
+        return snapshots;
+    }
+
+    /**
+     * @return snapshot of stored value, null if absent or invalid
+     */
+    private static BinarySnapshot fromStore(String key, byte[] stored) {
+        if (stored == null) {
+            return null;
+        }
+        try {
+            return new BinarySnapshot(ByteBuffer.wrap(stored));
+        } catch (ConfigLoaderException e) {
+            logger.warn("Ignoring invalid config snapshot key={} from store, Error={}", key, e.getErrorMsg());
+            return null;
+        }
+    }
+
+    /**
+     * @return snapshot format version and SHA-256 of file content
+     */
+    private static String storeKey(String hash) {
+        return STORE_KEY_PREFIX + VERSION + '-' + hash;
+    }
+
+    /**
+     * @return hex SHA-256 of file content, null if file can't be read
+     */
+    private static String contentHash(File sourceFile) {
+        try {
+            return ConfigLoaderUtils.contentHash(sourceFile);
+        } catch (IOException e) {
+            logger.warn("Error hashing config file={}", sourceFile);
+            return null;
+        }
+    }
+
+    /**
+     * Parse config file and replace its snapshot
+     *
+     * @param configFilePath
+     * @param options
+     * @return opened snapshot or parsed layers if snapshot can't be written
+     * @throws ConfigLoaderException
+     */
+    public static ConfigSource compile(String configFilePath, ConfigOptions options) throws ConfigLoaderException {
+        File sourceFile = new File(configFilePath);
+        // stat before parsing, a change while parsing leaves the snapshot stale instead of wrongly current
+        long sourceLength = sourceFile.length();
+        long sourceLastModified = sourceFile.lastModified();
+        ConfigLayers layers = ConfigLayers.load(configFilePath, options);
+        File snapshotFile = new File(configFilePath + SNAPSHOT_SUFFIX);
+        try {
+            BinaryConfigCompiler.write(BinaryConfigCompiler.compile(layers, sourceLength, sourceLastModified),
+                    snapshotFile);
+            return open(snapshotFile);
+        } catch (ConfigLoaderException e) {
+            logger.warn("Failed to compile config snapshot={}, Error={}", snapshotFile, e.getErrorMsg());
+            return layers;
+        }
+    }
+
+    /**
+     * @param sourceFile
+     * @return true if snapshot was compiled from current content of source file
+     */
+    public boolean isCompiledFrom(File sourceFile) {
+        if (guard != null) {
+            // off-heap snapshots are not tied to a file
+            return false;
+        }
+        return buffer.getLong(SOURCE_LENGTH_OFFSET) == sourceFile.length()
+                && buffer.getLong(SOURCE_LAST_MODIFIED_OFFSET) == sourceFile.lastModified();
+    }
+
+    /**
+     * @return true if snapshot is held in a direct buffer freed by the last release
+     */
+    public boolean isOffHeap() {
+        return guard != null;
+    }
+
+    /**
+     * @return true if memory of off-heap snapshot was freed
+     */
+    public boolean isReleased() {
+        return guard != null && guard.isClosed();
+    }
+
+    /**
+     * Take a reference to memory of an off-heap snapshot, to be dropped by release. Mapped snapshots are unmapped by GC
+     * and are not counted.
+     *
+     * @return false if memory was already freed, the snapshot must not be used
+     */
+    public boolean retain() {
+        if (guard == null) {
+            return true;
+        }
+        while (true) {
+            int count = references.get();
+            if (count == 0) {
+                return false;
+            }
+            if (references.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Drop a reference to memory of an off-heap snapshot, the last one frees it once reads in progress finish. Does
+     * nothing for mapped snapshots.
+     */
+    public void release() {
+        if (guard == null) {
+            return;
+        }
+        while (true) {
+            int count = references.get();
+            if (count == 0) {
+                logger.warn("Config snapshot released more often than retained");
+                return;
+            }
+            if (references.compareAndSet(count, count - 1)) {
+                if (count == 1 && guard.close()) {
+                    DirectBuffers.free(buffer);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * start reading buffer, every enter must be followed by exit
+     */
+    void enter() {
+        if (guard != null && !guard.enter()) {
+            throw new IllegalStateException("Config snapshot is released");
+        }
+    }
+
+    void exit() {
+        if (guard != null) {
+            guard.exit();
+        }
+    }
+
+    @Override
+    public ConfigSnapshot newConfig(List<String> overrides) {
+        if (overrides == null || overrides.isEmpty() || overrideLayers.isEmpty()) {
+            return new BinaryConfig(this, new int[0]);
+        }
+        List<Integer> layers = new ArrayList<Integer>();
+        for (String override : overrides) {
+            Integer layer = override == null ? null : overrideLayers.get(override);
+            if (layer != null && !layers.contains(layer)) {
+                layers.add(layer);
+            }
+        }
+        int[] layerIndexes = new int[layers.size()];
+        for (int i = 0; i < layerIndexes.length; i++) {
+            layerIndexes[i] = layers.get(i);
+        }
+        return new BinaryConfig(this, layerIndexes);
+    }
+
+    /**
+     * @return override tags present in snapshot
+     */
+    public Set<String> getOverrideNames() {
+        return Collections.unmodifiableSet(overrideLayers.keySet());
+    }
+
+    /**
+     * @param layers
+     *            override layers to apply
+     * @return slot of property, -1 if not found. Highest ordinal of override layers wins over base layer.
+     */
+    int find(int[] layers, String group, String key) {
+        int hash = hash(group, key);
+        int found = -1;
+        int foundOrdinal = -1;
+        for (int layer : layers) {
+            int slot = find(layer, hash, group, key);
+            if (slot != -1 && buffer.getInt(slot + SLOT_ORDINAL) > foundOrdinal) {
+                found = slot;
+                foundOrdinal = buffer.getInt(slot + SLOT_ORDINAL);
+            }
+        }
+        return found != -1 ? found : find(0, hash, group, key);
+    }
+
+    private int find(int layer, int hash, String group, String key) {
+        int entry = layerDirectory + layer * LAYER_ENTRY_SIZE;
+        int mask = buffer.getInt(entry + 4) - 1;
+        int table = buffer.getInt(entry + 8);
+        int index = hash & mask;
+        while (true) {
+            int slot = table + index * SLOT_SIZE;
+            int groupOffset = buffer.getInt(slot + SLOT_GROUP);
+            if (groupOffset == 0) {
+                return -1;
+            }
+            if (buffer.getInt(slot + SLOT_HASH) == hash && stringEquals(groupOffset, group)
+                    && stringEquals(buffer.getInt(slot + SLOT_KEY), key)) {
+                return slot;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * @return properties of base layer with given override layers applied
+     */
+    Map<String, Map<String, Property>> properties(int[] layers) {
+        Map<String, Map<String, Property>> properties = new HashMap<String, Map<String, Property>>();
+        int[] visited = new int[layers.length + 1];
+        System.arraycopy(layers, 0, visited, 1, layers.length);
+        for (int layer : visited) {
+            int entry = layerDirectory + layer * LAYER_ENTRY_SIZE;
+            int capacity = buffer.getInt(entry + 4);
+            int table = buffer.getInt(entry + 8);
+            for (int index = 0; index < capacity; index++) {
+                int slot = table + index * SLOT_SIZE;
+                if (buffer.getInt(slot + SLOT_GROUP) == 0) {
+                    continue;
+                }
+                String group = string(buffer.getInt(slot + SLOT_GROUP));
+                String key = string(buffer.getInt(slot + SLOT_KEY));
+                Map<String, Property> groupMap = properties.get(group);
+                if (groupMap == null) {
+                    groupMap = new HashMap<String, Property>();
+                    properties.put(group, groupMap);
+                }
+                if (!groupMap.containsKey(key)) {
+                    groupMap.put(key, property(find(layers, group, key)));
+                }
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Adds group and key of each property of base layer with given override layers applied, reads only the string
+     * table so no property is materialized
+     */
+    void collectNames(int[] layers, List<String> groupNames, List<String> keyNames) {
+        Set<String> added = new HashSet<String>();
+        int[] visited = new int[layers.length + 1];
+        System.arraycopy(layers, 0, visited, 1, layers.length);
+        for (int layer : visited) {
+            int entry = layerDirectory + layer * LAYER_ENTRY_SIZE;
+            int capacity = buffer.getInt(entry + 4);
+            int table = buffer.getInt(entry + 8);
+            for (int index = 0; index < capacity; index++) {
+                int slot = table + index * SLOT_SIZE;
+                if (buffer.getInt(slot + SLOT_GROUP) == 0) {
+                    continue;
+                }
+                String group = string(buffer.getInt(slot + SLOT_GROUP));
+                String key = string(buffer.getInt(slot + SLOT_KEY));
+                // base layer names are unique, override layers only add names missing from the base layer
+                if (layer == 0 || find(0, buffer.getInt(slot + SLOT_HASH), group, key) == -1
+                        && added.add(group + '.' + key)) {
+                    groupNames.add(group);
+                    keyNames.add(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Key level changes from previous config to next one, values are compared in their encoded form and decoded only
+     * for keys that changed, no property is materialized
+     *
+     * @return changes ordered by group and key
+     */
+    static List<ConfigChange> diff(BinarySnapshot previous, int[] previousLayers, BinarySnapshot next,
+            int[] nextLayers) {
+        List<ConfigChange> changes = new ArrayList<ConfigChange>();
+        List<String> groupNames = new ArrayList<String>();
+        List<String> keyNames = new ArrayList<String>();
+        previous.collectNames(previousLayers, groupNames, keyNames);
+        for (int i = 0; i < groupNames.size(); i++) {
+            String group = groupNames.get(i);
+            String key = keyNames.get(i);
+            int slot = previous.find(previousLayers, group, key);
+            int nextSlot = next.find(nextLayers, group, key);
+            if (nextSlot == -1) {
+                changes.add(new ConfigChange(ConfigChange.Type.REMOVED, group, key, previous.value(slot), null));
+            } else if (!previous.valueEquals(slot, next, nextSlot)) {
+                changes.add(new ConfigChange(ConfigChange.Type.CHANGED, group, key, previous.value(slot), next
+                        .value(nextSlot)));
+            }
+        }
+        groupNames.clear();
+        keyNames.clear();
+        next.collectNames(nextLayers, groupNames, keyNames);
+        for (int i = 0; i < groupNames.size(); i++) {
+            String group = groupNames.get(i);
+            String key = keyNames.get(i);
+            if (previous.find(previousLayers, group, key) == -1) {
+                changes.add(new ConfigChange(ConfigChange.Type.ADDED, group, key, null, next.value(next.find(
+                        nextLayers, group, key))));
+            }
+        }
+        Collections.sort(changes, new Comparator<ConfigChange>() {
+            @Override
+            public int compare(ConfigChange left, ConfigChange right) {
+                int group = left.getGroup().compareTo(right.getGroup());
+                return group != 0 ? group : left.getKey().compareTo(right.getKey());
+            }
+        });
+        return changes;
+    }
+
+    /**
+     * @return true if value at slot equals value at otherSlot of other snapshot, compared encoded
+     */
+    private boolean valueEquals(int slot, BinarySnapshot other, int otherSlot) {
+        if (other == this && otherSlot == slot) {
+            return true;
+        }
+        int type = type(slot);
+        if (type != other.type(otherSlot)) {
+            return false;
+        }
+        long value = buffer.getLong(slot + SLOT_VALUE);
+        long otherValue = other.buffer.getLong(otherSlot + SLOT_VALUE);
+        switch (type) {
+        case TYPE_STRING:
+            return stringEquals((int) value, other, (int) otherValue);
+        case TYPE_LIST:
+            int count = buffer.getInt((int) value);
+            if (count != other.buffer.getInt((int) otherValue)) {
+                return false;
+            }
+            for (int i = 1; i <= count; i++) {
+                if (!stringEquals(buffer.getInt((int) value + 4 * i), other, other.buffer.getInt((int) otherValue
+                        + 4 * i))) {
+                    return false;
+                }
+            }
+            return true;
+        default:
+            return value == otherValue;
+        }
+    }
+
+    /**
+     * compare encoded strings of two snapshots byte by byte
+     */
+    private boolean stringEquals(int offset, BinarySnapshot other, int otherOffset) {
+        if (other == this && offset == otherOffset) {
+            return true;
+        }
+        int length = buffer.getInt(offset);
+        if (length != other.buffer.getInt(otherOffset)) {
+            return false;
+        }
+        for (int i = 4; i < length + 4; i++) {
+            if (buffer.get(offset + i) != other.buffer.get(otherOffset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int type(int slot) {
+        return buffer.getInt(slot + SLOT_TYPE);
+    }
+
+    long longValue(int slot) {
+        return buffer.getLong(slot + SLOT_VALUE);
+    }
+
+    double doubleValue(int slot) {
+        return Double.longBitsToDouble(buffer.getLong(slot + SLOT_VALUE));
+    }
+
+    boolean booleanValue(int slot) {
+        return buffer.getLong(slot + SLOT_VALUE) != 0;
+    }
+
+    String stringValue(int slot) {
+        return string((int) buffer.getLong(slot + SLOT_VALUE));
+    }
+
+    List<String> listValue(int slot) {
+        int list = (int) buffer.getLong(slot + SLOT_VALUE);
+        int count = buffer.getInt(list);
+        List<String> values = new ArrayList<String>(count);
+        for (int i = 1; i <= count; i++) {
+            values.add(string(buffer.getInt(list + 4 * i)));
+        }
+        return values;
+    }
+
+    Object value(int slot) {
+        switch (type(slot)) {
+        case TYPE_LONG:
+            return longValue(slot);
+        case TYPE_DOUBLE:
+            return doubleValue(slot);
+        case TYPE_BOOLEAN:
+            return booleanValue(slot);
+        case TYPE_LIST:
+            return listValue(slot);
+        default:
+            return stringValue(slot);
+        }
+    }
+
+    Property property(int slot) {
+        String key = string(buffer.getInt(slot + SLOT_KEY));
+        switch (type(slot)) {
+        case TYPE_LONG:
+            return new LongProperty(key, longValue(slot));
+        case TYPE_DOUBLE:
+            return new DoubleProperty(key, doubleValue(slot));
+        case TYPE_BOOLEAN:
+            return new BooleanProperty(key, booleanValue(slot));
+        case TYPE_LIST:
+            return new ListProperty(key, listValue(slot));
+        default:
+            return new StringProperty(key, stringValue(slot));
+        }
+    }
+
+    private String string(int offset) {
+        int length = buffer.getInt(offset);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + 4 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * compare without decoding, non ASCII strings are decoded
+     */
+    private boolean stringEquals(int offset, String value) {
+        int length = buffer.getInt(offset);
+        if (length < value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(offset + 4 + i);
+            if (b < 0) {
+                return string(offset).equals(value);
+            }
+            if (i >= value.length() || value.charAt(i) != b) {
+                return false;
+            }
+        }
+        return length == value.length();
+    }
+}
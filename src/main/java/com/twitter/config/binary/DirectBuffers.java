@@ -0,0 +1,64 @@
+package com.twitter.config.binary;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Releases native memory of direct buffers without waiting for GC. The buffer must not be accessed afterwards.
+ *
+ * @author agupta13
+ *
+ */
+final class DirectBuffers {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectBuffers.class);
+
+    private DirectBuffers() {
+    }
+
+    /**
+     * Free direct buffer now, where the JDK doesn't allow it memory is left to GC
+     *
+     * @param buffer
+     * @return true if memory was released
+     */
+    static boolean free(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            return false;
+        }
+        try {
+            // Java 9+, looked up reflectively to keep Java 8 compatibility
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return freeJava8(buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Unable to free direct buffer, leaving it to GC. Error={}", e.toString());
+            return false;
+        }
+    }
+
+    private static boolean freeJava8(ByteBuffer buffer) {
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner == null) {
+                return false;
+            }
+            cleaner.getClass().getMethod("clean").invoke(cleaner);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Unable to free direct buffer, leaving it to GC. Error={}", e.toString());
+            return false;
+        }
+    }
+}
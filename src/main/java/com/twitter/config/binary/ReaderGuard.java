@@ -0,0 +1,70 @@
+package com.twitter.config.binary;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts reads in progress so memory can be released only after every read has left it. Readers enter and exit around
+ * each access; {@link #close()} refuses new readers and waits for readers inside to exit. Counters are striped by
+ * thread and padded to separate cache lines so concurrent readers don't contend on one counter.
+ *
+ * @author agupta13
+ *
+ */
+final class ReaderGuard {
+
+    private static final int STRIPES = 16;
+
+    /**
+     * longs per cache line, each stripe gets a line of its own
+     */
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray readers = new AtomicLongArray(STRIPES * PADDING);
+
+    private volatile boolean closed;
+
+    /**
+     * @return false if guard is closed, memory must not be read
+     */
+    boolean enter() {
+        int stripe = stripe();
+        readers.incrementAndGet(stripe);
+        // pairs with closed write and readers read in close, one of the two sides always sees the other
+        if (closed) {
+            readers.decrementAndGet(stripe);
+            return false;
+        }
+        return true;
+    }
+
+    void exit() {
+        readers.decrementAndGet(stripe());
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Refuse new readers and wait till readers inside exit
+     *
+     * @return true if this call closed the guard
+     */
+    synchronized boolean close() {
+        if (closed) {
+            return false;
+        }
+        closed = true;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            while (readers.get(stripe * PADDING) != 0) {
+                Thread.yield();
+            }
+        }
+        return true;
+    }
+
+    private static int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id ^ (id >>> 16)) & (STRIPES - 1)) * PADDING;
+    }
+}
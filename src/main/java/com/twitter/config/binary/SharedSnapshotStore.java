@@ -0,0 +1,287 @@
+package com.twitter.config.binary;
+
+import static com.twitter.config.binary.BinaryConfigFormat.SNAPSHOT_SUFFIX;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.twitter.config.exception.ConfigLoaderError;
+import com.twitter.config.exception.ConfigLoaderException;
+import com.twitter.config.models.ConfigLayers;
+import com.twitter.config.models.ConfigOptions;
+import com.twitter.config.models.ConfigSource;
+
+/**
+ * Snapshots shared by all processes of a host through a common local directory. The first process needing a config
+ * file parses it and publishes its snapshot, other processes map the published snapshot without parsing. Each config
+ * file has three entries in the directory, named after the file name and a hash of its canonical path:
+ *
+ * <pre>
+ * name-hash.snapshot     published snapshot, replaced by atomic rename so readers never map a partial file
+ * name-hash.lock         held while parsing and publishing, processes needing the same file wait for the publisher
+ * name-hash.generation   number of publications, lets processes detect a new snapshot without opening it
+ * </pre>
+ *
+ * Processes that already mapped a snapshot keep reading it after it is replaced. Store is thread-safe.
+ *
+ * Snapshots are trusted like the config files they come from, so the directory must be owned by the user of the
+ * process and not writable by group or others. A missing directory is created owner-only, with any other directory
+ * the store is not used and files are parsed.
+ *
+ * @author agupta13
+ *
+ */
+public class SharedSnapshotStore {
+
+    /**
+     * per user directory in the temp directory, other users can't plant snapshots in it
+     */
+    public static final File DEFAULT_DIRECTORY = new File(System.getProperty("java.io.tmpdir"),
+            "config-loader-snapshots-" + System.getProperty("user.name"));
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private static final String GENERATION_SUFFIX = ".generation";
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedSnapshotStore.class);
+
+    private static final int LOCAL_LOCKS = 64;
+
+    /**
+     * monitors striped by lock file path, file locks are held by the process and can't order threads of one JVM
+     */
+    private static final Object[] localLocks = new Object[LOCAL_LOCKS];
+
+    static {
+        for (int i = 0; i < LOCAL_LOCKS; i++) {
+            localLocks[i] = new Object();
+        }
+    }
+
+    private final File directory;
+
+    public SharedSnapshotStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Map snapshot published for the current content of config file, or parse and publish it if there is none. Callers
+     * in other processes wait while one of them publishes.
+     *
+     * @param configFilePath
+     * @param options
+     *            used to parse the file
+     * @return mapped snapshot, or parsed layers if snapshot can't be published
+     * @throws ConfigLoaderException
+     */
+    public ConfigSource load(String configFilePath, ConfigOptions options) throws ConfigLoaderException {
+        if (!isTrusted()) {
+            return ConfigLayers.load(configFilePath, options);
+        }
+        BinarySnapshot published = attach(new File(configFilePath));
+        return published != null ? published : publish(configFilePath, options);
+    }
+
+    /**
+     * Publish snapshot of current content of config file unless another process already did
+     *
+     * @param configFilePath
+     * @param options
+     * @return mapped snapshot, or parsed layers if snapshot can't be published
+     * @throws ConfigLoaderException
+     */
+    @SuppressWarnings("try")
+    public ConfigSource publish(String configFilePath, ConfigOptions options) throws ConfigLoaderException {
+        File sourceFile = new File(configFilePath);
+        String name = name(sourceFile);
+        File lockFile = new File(directory, name + LOCK_SUFFIX);
+        Object localLock = localLocks[(lockFile.getPath().hashCode() & 0x7fffffff) % LOCAL_LOCKS];
+
+        synchronized (localLock) {
+            if (!isTrusted()) {
+                return ConfigLayers.load(configFilePath, options);
+            }
+            // lock is held by the try block and released on close
+            try (FileChannel lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE); FileLock lock = lockChannel.lock()) {
+                // published by another process while waiting for the lock
+                BinarySnapshot published = attach(sourceFile);
+                if (published != null) {
+                    return published;
+                }
+                long sourceLength = sourceFile.length();
+                long sourceLastModified = sourceFile.lastModified();
+                ConfigLayers layers = ConfigLayers.load(configFilePath, options);
+                File snapshotFile = new File(directory, name + SNAPSHOT_SUFFIX);
+                try {
+                    BinaryConfigCompiler.write(BinaryConfigCompiler.compile(layers, sourceLength, sourceLastModified),
+                            snapshotFile);
+                    long generation = readGeneration(name) + 1;
+                    writeGeneration(name, generation);
+                    logger.info("Published shared config snapshot={} generation={}", snapshotFile, generation);
+                    return BinarySnapshot.open(snapshotFile);
+                } catch (ConfigLoaderException e) {
+                    logger.warn("Failed to publish shared config snapshot={}, Error={}", snapshotFile,
+                            e.getErrorMsg());
+                    return layers;
+                }
+            } catch (IOException e) {
+                logger.warn("Can't lock shared config snapshot={}, parsing config file={}", lockFile, configFilePath);
+                return ConfigLayers.load(configFilePath, options);
+            }
+        }
+    }
+
+    /**
+     * @param configFilePath
+     * @return number of snapshots published for config file, 0 if none
+     */
+    public long getGeneration(String configFilePath) {
+        return readGeneration(name(new File(configFilePath)));
+    }
+
+    /**
+     * @param configFilePath
+     * @return location of published snapshot of config file, may not exist
+     */
+    public File getSnapshotFile(String configFilePath) {
+        return new File(directory, name(new File(configFilePath)) + SNAPSHOT_SUFFIX);
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Create directory owner-only if missing and check it is a directory owned by the user of this process and not
+     * writable by group or others
+     *
+     * @return false if snapshots must not be read from or written to directory
+     */
+    private boolean isTrusted() {
+        Path path = directory.toPath();
+        try {
+            if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                    Files.createDirectories(path,
+                            PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+                } else {
+                    Files.createDirectories(path);
+                }
+            }
+            UserPrincipal owner = Files.getOwner(path, LinkOption.NOFOLLOW_LINKS);
+            UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(System.getProperty("user.name"));
+            if (!owner.equals(user)) {
+                logger.warn("Not using shared snapshot directory={} owned by {}", directory, owner.getName());
+                return false;
+            }
+            PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class,
+                    LinkOption.NOFOLLOW_LINKS);
+            if (view != null) {
+                Set<PosixFilePermission> permissions = view.readAttributes().permissions();
+                if (permissions.contains(PosixFilePermission.GROUP_WRITE)
+                        || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+                    logger.warn("Not using shared snapshot directory={} writable by others, permissions={}",
+                            directory, PosixFilePermissions.toString(permissions));
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("Can't use shared snapshot directory={}, Error={}", directory, e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * @return published snapshot if compiled from current content of source file, otherwise null
+     */
+    private BinarySnapshot attach(File sourceFile) {
+        File snapshotFile = new File(directory, name(sourceFile) + SNAPSHOT_SUFFIX);
+        if (!snapshotFile.exists()) {
+            return null;
+        }
+        try {
+            BinarySnapshot snapshot = BinarySnapshot.open(snapshotFile);
+            return snapshot.isCompiledFrom(sourceFile) ? snapshot : null;
+        } catch (ConfigLoaderException e) {
+            logger.warn("Ignoring unreadable shared config snapshot={}, Error={}", snapshotFile, e.getErrorMsg());
+            return null;
+        }
+    }
+
+    private long readGeneration(String name) {
+        File generationFile = new File(directory, name + GENERATION_SUFFIX);
+        if (!generationFile.exists()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(generationFile.toPath()), StandardCharsets.US_ASCII)
+                    .trim());
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Ignoring unreadable generation file={}", generationFile);
+            return 0;
+        }
+    }
+
+    private void writeGeneration(String name, long generation) throws ConfigLoaderException {
+        File generationFile = new File(directory, name + GENERATION_SUFFIX);
+        File tmpFile = new File(generationFile.getPath() + ".tmp");
+        try {
+            Files.write(tmpFile.toPath(), Long.toString(generation).getBytes(StandardCharsets.US_ASCII));
+            try {
+                Files.move(tmpFile.toPath(), generationFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), generationFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            tmpFile.delete();
+            throw new ConfigLoaderException(ConfigLoaderError.FAILED_TO_WRITE_CONFIG_SNAPSHOT,
+                    "Error writing generation file=" + generationFile);
+        }
+    }
+
+    /**
+     * file name for readability, hash of canonical path so files of the same name in different directories don't
+     * collide
+     */
+    private static String name(File sourceFile) {
+        String path;
+        try {
+            path = sourceFile.getCanonicalPath();
+        } catch (IOException e) {
+            path = sourceFile.getAbsolutePath();
+        }
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1").digest(path.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not supported", e);
+        }
+        StringBuilder name = new StringBuilder(sourceFile.getName()).append('-');
+        for (int i = 0; i < 8; i++) {
+            name.append(Character.forDigit((digest[i] >> 4) & 0xf, 16)).append(Character.forDigit(digest[i] & 0xf, 16));
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,370 @@
+package com.twitter.config.cache;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.twitter.config.exception.ConfigLoaderError;
+import com.twitter.config.exception.ConfigLoaderException;
+
+/**
+ * Concurrent, size bounded cache used by ConfigLoader. Every key maps to a FutureTask so concurrent callers of
+ * {@link #get(Object, Loader)} for the same key share one load (single-flight): the first caller runs the loader, all
+ * others wait on the same future. Reads take no locks and count hits in striped counters; when the cache grows past
+ * its maximum size an approximately least recently used entry is evicted. Eviction order is a CLOCK (second chance)
+ * queue: entries are queued on insert, a hit only sets the entry's referenced bit, and eviction requeues referenced
+ * entries once before evicting the first unreferenced one, so inserts into a full cache are amortized O(1).
+ *
+ * @author agupta13
+ *
+ */
+public class ConfigCache<K, V> {
+
+    /**
+     * Loads the value of a missing key, called at most once per key at a time
+     */
+    public interface Loader<V> {
+        V load() throws ConfigLoaderException;
+    }
+
+    /**
+     * Notified after a loaded entry is evicted to keep the cache within its maximum size, on the thread inserting the
+     * new entry. Not called for invalidate, replace or put of an existing key.
+     */
+    public interface EvictionListener<K, V> {
+        void onEviction(K key, V value);
+    }
+
+    private final ConcurrentMap<K, Entry<K, V>> entries = new ConcurrentHashMap<K, Entry<K, V>>();
+
+    /**
+     * insertion order of entries, may hold entries already replaced or invalidated till they are polled or pruned
+     */
+    private final Queue<Entry<K, V>> evictionQueue = new ConcurrentLinkedQueue<Entry<K, V>>();
+
+    private final AtomicInteger evictionQueueSize = new AtomicInteger();
+
+    private final AtomicBoolean pruning = new AtomicBoolean();
+
+    private final int maximumSize;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder loadSuccessCount = new LongAdder();
+
+    private final LongAdder loadFailureCount = new LongAdder();
+
+    private final LongAdder totalLoadTime = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private volatile EvictionListener<K, V> evictionListener;
+
+    public ConfigCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Invalid cache maximumSize=" + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns cached value for key, loading it with loader if absent. Concurrent calls for an absent key run loader only
+     * once, failed loads are not cached.
+     *
+     * @param key
+     * @param loader
+     * @return
+     * @throws ConfigLoaderException
+     */
+    public V get(K key, final Loader<V> loader) throws ConfigLoaderException {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            Entry<K, V> created = new Entry<K, V>(key, new FutureTask<V>(new Callable<V>() {
+                @Override
+                public V call() throws ConfigLoaderException {
+                    return loader.load();
+                }
+            }));
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                entry = created;
+                missCount.increment();
+                enqueue(entry);
+                load(key, entry);
+                return await(key, entry);
+            }
+        }
+        hitCount.increment();
+        entry.touch();
+        return await(key, entry);
+    }
+
+    /**
+     * Returns cached value for key or null if key is absent or still loading
+     *
+     * @param key
+     * @return
+     */
+    public V getIfPresent(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null || !entry.task.isDone()) {
+            return null;
+        }
+        try {
+            V value = entry.task.get();
+            entry.touch();
+            return value;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param key
+     * @return true if key is cached or loading, does not count as an access
+     */
+    public boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Atomically replaces (or adds) value for key, readers see either the old or the new value
+     *
+     * @param key
+     * @param value
+     */
+    public void put(K key, V value) {
+        Entry<K, V> entry = new Entry<K, V>(key, completed(value));
+        entries.put(key, entry);
+        enqueue(entry);
+        evictIfNeeded();
+    }
+
+    /**
+     * Atomically replaces value for key only if key is present, readers see either the old or the new value. A value
+     * still loading is waited for.
+     *
+     * @param key
+     * @param value
+     * @return replaced value, null if key was absent or its load failed
+     */
+    public V replace(K key, V value) {
+        Entry<K, V> entry = new Entry<K, V>(key, completed(value));
+        Entry<K, V> replaced = entries.replace(key, entry);
+        if (replaced == null) {
+            return null;
+        }
+        enqueue(entry);
+        return valueOf(replaced);
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+        pruneEvictionQueue();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public EvictionListener<K, V> getEvictionListener() {
+        return evictionListener;
+    }
+
+    public void setEvictionListener(EvictionListener<K, V> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), loadSuccessCount.sum(), loadFailureCount.sum(),
+                totalLoadTime.sum(), evictionCount.sum());
+    }
+
+    /**
+     * @return number of queued entries, including replaced and invalidated ones not pruned yet
+     */
+    int getEvictionQueueSize() {
+        return evictionQueueSize.get();
+    }
+
+    private void load(K key, Entry<K, V> entry) {
+        long startTime = System.nanoTime();
+        entry.task.run();
+        totalLoadTime.add(System.nanoTime() - startTime);
+        try {
+            entry.task.get();
+            loadSuccessCount.increment();
+            evictIfNeeded();
+        } catch (Exception e) {
+            // failed loads are not cached, waiting callers still get the failure
+            loadFailureCount.increment();
+            entries.remove(key, entry);
+        }
+    }
+
+    private V await(K key, Entry<K, V> entry) throws ConfigLoaderException {
+        try {
+            return entry.task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConfigLoaderException(ConfigLoaderError.CONFIG_LOAD_INTERRUPTED, "Interrupted while loading key="
+                    + key);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ConfigLoaderException) {
+                throw (ConfigLoaderException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("Failed to load key=" + key, cause);
+        }
+    }
+
+    /**
+     * Evicts unreferenced loaded entries in queue order till cache fits maximum size. A referenced or loading entry is
+     * requeued with its bit cleared, so every entry is polled at most twice per pass and the scan is bounded.
+     */
+    private void evictIfNeeded() {
+        int remaining = 2 * evictionQueueSize.get();
+        while (entries.size() > maximumSize && remaining-- > 0) {
+            Entry<K, V> entry = evictionQueue.poll();
+            if (entry == null) {
+                return;
+            }
+            evictionQueueSize.decrementAndGet();
+            if (entries.get(entry.key) != entry) {
+                // replaced or invalidated
+                continue;
+            }
+            if (entry.referenced || !entry.task.isDone()) {
+                entry.referenced = false;
+                enqueue(entry);
+                continue;
+            }
+            if (entries.remove(entry.key, entry)) {
+                evictionCount.increment();
+                notifyEviction(entry.key, entry);
+            }
+        }
+    }
+
+    /**
+     * queue entry for eviction, pruning replaced and invalidated entries once they outnumber cached ones so the queue
+     * stays proportional to cache size
+     */
+    private void enqueue(Entry<K, V> entry) {
+        evictionQueue.offer(entry);
+        if (evictionQueueSize.incrementAndGet() > 2 * Math.max(maximumSize, entries.size())) {
+            pruneEvictionQueue();
+        }
+    }
+
+    /**
+     * one pass over the queue keeping cached entries in order, runs on at most one thread at a time
+     */
+    private void pruneEvictionQueue() {
+        if (!pruning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (int remaining = evictionQueueSize.get(); remaining > 0; remaining--) {
+                Entry<K, V> entry = evictionQueue.poll();
+                if (entry == null) {
+                    return;
+                }
+                if (entries.get(entry.key) == entry) {
+                    evictionQueue.offer(entry);
+                } else {
+                    evictionQueueSize.decrementAndGet();
+                }
+            }
+        } finally {
+            pruning.set(false);
+        }
+    }
+
+    private void notifyEviction(K key, Entry<K, V> entry) {
+        EvictionListener<K, V> listener = evictionListener;
+        if (listener == null) {
+            return;
+        }
+        V value = valueOf(entry);
+        if (value != null) {
+            listener.onEviction(key, value);
+        }
+    }
+
+    /**
+     * @return loaded value of entry, null if its load failed
+     */
+    private V valueOf(Entry<K, V> entry) {
+        try {
+            return entry.task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // failed load, nothing was cached
+            return null;
+        }
+    }
+
+    private static <V> FutureTask<V> completed(final V value) {
+        FutureTask<V> task = new FutureTask<V>(new Callable<V>() {
+            @Override
+            public V call() {
+                return value;
+            }
+        });
+        task.run();
+        return task;
+    }
+
+    private static final class Entry<K, V> {
+
+        private final K key;
+
+        private final FutureTask<V> task;
+
+        /**
+         * set by hits since entry was last polled from eviction queue
+         */
+        private volatile boolean referenced;
+
+        private Entry(K key, FutureTask<V> task) {
+            this.key = key;
+            this.task = task;
+        }
+
+        /**
+         * record access, written only when clear so concurrent hits don't keep writing the same cache line
+         */
+        private void touch() {
+            if (!referenced) {
+                referenced = true;
+            }
+        }
+    }
+}
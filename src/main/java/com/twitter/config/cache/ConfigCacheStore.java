@@ -0,0 +1,50 @@
+package com.twitter.config.cache;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Map;
+
+import com.twitter.config.exception.ConfigLoaderException;
+
+/**
+ * Out of process tier of ConfigLoader, consulted after the local cache and before parsing the file. Holds compiled
+ * config snapshots keyed by content hash, so every content version of a file is parsed once per fleet instead of once
+ * per JVM. Implementations must be thread-safe; errors are reported as ConfigLoaderException and ConfigLoader falls
+ * back to parsing.
+ *
+ * The store is trusted like the file system: anyone able to write to it can change the config of every process using
+ * it. Values are not authenticated, the content hash in the key only tells which file version a value is meant for.
+ * Values are checked to be well-formed snapshots (CRC, offsets and lengths inside the value) before use, so a corrupt
+ * value is ignored like a miss instead of breaking lookups.
+ *
+ * @author agupta13
+ *
+ */
+public interface ConfigCacheStore extends Closeable {
+
+    /**
+     * @param key
+     * @return value or null if absent
+     * @throws ConfigLoaderException
+     */
+    byte[] get(String key) throws ConfigLoaderException;
+
+    /**
+     * Batched get used by ConfigLoader.loadAllAsync, implementations should fetch all keys in one round trip
+     *
+     * @param keys
+     * @return values of present keys
+     * @throws ConfigLoaderException
+     */
+    Map<String, byte[]> getAll(Collection<String> keys) throws ConfigLoaderException;
+
+    /**
+     * @param key
+     * @param value
+     * @throws ConfigLoaderException
+     */
+    void put(String key, byte[] value) throws ConfigLoaderException;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,50 @@
+package com.twitter.config.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ConfigCacheStore kept in a map of this JVM, shared by the ConfigLoaders it is set on. Stand-in for a remote store in
+ * tests and single process deployments, values are never evicted.
+ *
+ * @author agupta13
+ *
+ */
+public class InMemoryConfigCacheStore implements ConfigCacheStore {
+
+    private final ConcurrentMap<String, byte[]> values = new ConcurrentHashMap<String, byte[]>();
+
+    @Override
+    public byte[] get(String key) {
+        return values.get(key);
+    }
+
+    @Override
+    public Map<String, byte[]> getAll(Collection<String> keys) {
+        Map<String, byte[]> found = new HashMap<String, byte[]>();
+        for (String key : keys) {
+            byte[] value = values.get(key);
+            if (value != null) {
+                found.put(key, value);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void put(String key, byte[] value) {
+        values.put(key, value);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public void close() {
+        values.clear();
+    }
+}
@@ -0,0 +1,351 @@
+package com.twitter.config.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.twitter.config.exception.ConfigLoaderError;
+import com.twitter.config.exception.ConfigLoaderException;
+
+/**
+ * ConfigCacheStore on a memcached server, speaking the memcached text protocol over one connection. Batched gets are
+ * sent as multi-key get commands of up to {@link #GET_BATCH_SIZE} keys, all batches are written before any response
+ * is read so a batch costs one round trip. Values larger than the item size limit are stored as chunks under key:0,
+ * key:1, ... followed by a manifest under key, chunks are fetched with one pipelined batch.
+ *
+ * Requests are serialized on the connection, a broken connection is reopened by the next request.
+ *
+ * @author agupta13
+ *
+ */
+public class MemcachedConfigCacheStore implements ConfigCacheStore {
+
+    public static final int DEFAULT_PORT = 11211;
+
+    /**
+     * default memcached item size limit is 1MB, leave room for item header
+     */
+    public static final int DEFAULT_MAX_ITEM_SIZE = 1000 * 1000;
+
+    static final int GET_BATCH_SIZE = 100;
+
+    private static final int MAX_KEY_LENGTH = 250;
+
+    private static final int FLAG_VALUE = 0;
+
+    private static final int FLAG_CHUNKED = 1;
+
+    private static final char CHUNK_SEPARATOR = ':';
+
+    private static final byte[] CRLF = { '\r', '\n' };
+
+    private static final Logger logger = LoggerFactory.getLogger(MemcachedConfigCacheStore.class);
+
+    private final InetSocketAddress address;
+
+    private final int maxItemSize;
+
+    private final int expiration;
+
+    private int timeout = 5000;
+
+    private Socket socket;
+
+    private InputStream in;
+
+    private OutputStream out;
+
+    public MemcachedConfigCacheStore(String host, int port) {
+        this(new InetSocketAddress(host, port), DEFAULT_MAX_ITEM_SIZE, 0);
+    }
+
+    /**
+     * @param address
+     * @param maxItemSize
+     *            larger values are chunked
+     * @param expiration
+     *            seconds till stored values expire, 0 to keep till evicted
+     */
+    public MemcachedConfigCacheStore(InetSocketAddress address, int maxItemSize, int expiration) {
+        if (maxItemSize <= 0) {
+            throw new IllegalArgumentException("Invalid maxItemSize=" + maxItemSize);
+        }
+        this.address = address;
+        this.maxItemSize = maxItemSize;
+        this.expiration = expiration;
+    }
+
+    @Override
+    public byte[] get(String key) throws ConfigLoaderException {
+        return getAll(Collections.singletonList(key)).get(key);
+    }
+
+    @Override
+    public synchronized Map<String, byte[]> getAll(Collection<String> keys) throws ConfigLoaderException {
+        for (String key : keys) {
+            validate(key);
+        }
+        Map<String, Item> items = fetch(keys);
+        Map<String, byte[]> values = new HashMap<String, byte[]>();
+        List<String> chunkKeys = new ArrayList<String>();
+        for (Map.Entry<String, Item> item : items.entrySet()) {
+            if (item.getValue().flags == FLAG_CHUNKED) {
+                int chunks = chunkCount(item.getKey(), item.getValue());
+                for (int i = 0; i < chunks; i++) {
+                    chunkKeys.add(chunkKey(item.getKey(), i));
+                }
+            } else {
+                values.put(item.getKey(), item.getValue().data);
+            }
+        }
+        if (chunkKeys.isEmpty()) {
+            return values;
+        }
+
+        Map<String, Item> chunkItems = fetch(chunkKeys);
+        for (Map.Entry<String, Item> item : items.entrySet()) {
+            if (item.getValue().flags != FLAG_CHUNKED) {
+                continue;
+            }
+            ByteArrayOutputStream value = new ByteArrayOutputStream();
+            int chunks = chunkCount(item.getKey(), item.getValue());
+            for (int i = 0; i < chunks; i++) {
+                Item chunk = chunkItems.get(chunkKey(item.getKey(), i));
+                if (chunk == null) {
+                    // chunk evicted, value is incomplete
+                    value = null;
+                    break;
+                }
+                value.write(chunk.data, 0, chunk.data.length);
+            }
+            if (value != null) {
+                values.put(item.getKey(), value.toByteArray());
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public synchronized void put(String key, byte[] value) throws ConfigLoaderException {
+        validate(key);
+        try {
+            OutputStream out = connection();
+            int commands = 0;
+            if (value.length <= maxItemSize) {
+                writeSet(out, key, FLAG_VALUE, value, 0, value.length);
+                commands++;
+            } else {
+                // chunks first, a reader finding the manifest finds its chunks
+                int chunks = (value.length + maxItemSize - 1) / maxItemSize;
+                validate(chunkKey(key, chunks - 1));
+                for (int i = 0; i < chunks; i++) {
+                    int offset = i * maxItemSize;
+                    writeSet(out, chunkKey(key, i), FLAG_VALUE, value, offset, Math.min(maxItemSize, value.length
+                            - offset));
+                    commands++;
+                }
+                byte[] manifest = Integer.toString(chunks).getBytes(StandardCharsets.US_ASCII);
+                writeSet(out, key, FLAG_CHUNKED, manifest, 0, manifest.length);
+                commands++;
+            }
+            out.flush();
+            for (int i = 0; i < commands; i++) {
+                String reply = readLine();
+                if (!"STORED".equals(reply)) {
+                    throw new ConfigLoaderException(ConfigLoaderError.CONFIG_CACHE_STORE_ERROR,
+                            "Failed to store key=" + key + " in memcached=" + address + ", reply=" + reply);
+                }
+            }
+        } catch (IOException e) {
+            throw failure("Error storing key=" + key, e);
+        }
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @param timeout
+     *            connect and read timeout in msec
+     */
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Error closing memcached connection={}", address);
+            }
+            socket = null;
+        }
+    }
+
+    /**
+     * pipelined multi-key gets, all batches are sent before reading responses
+     */
+    private Map<String, Item> fetch(Collection<String> keys) throws ConfigLoaderException {
+        Map<String, Item> items = new HashMap<String, Item>();
+        if (keys.isEmpty()) {
+            return items;
+        }
+        try {
+            OutputStream out = connection();
+            int batches = 0;
+            int batchSize = 0;
+            for (String key : keys) {
+                if (batchSize == 0) {
+                    out.write('g');
+                    out.write('e');
+                    out.write('t');
+                    batches++;
+                }
+                out.write(' ');
+                out.write(key.getBytes(StandardCharsets.US_ASCII));
+                if (++batchSize == GET_BATCH_SIZE) {
+                    out.write(CRLF);
+                    batchSize = 0;
+                }
+            }
+            if (batchSize > 0) {
+                out.write(CRLF);
+            }
+            out.flush();
+
+            while (batches > 0) {
+                String line = readLine();
+                if ("END".equals(line)) {
+                    batches--;
+                    continue;
+                }
+                String[] header = line.split(" ");
+                if (header.length < 4 || !"VALUE".equals(header[0])) {
+                    throw new IOException("Unexpected memcached reply=" + line);
+                }
+                byte[] data = new byte[Integer.parseInt(header[3])];
+                readFully(data);
+                if (in.read() != '\r' || in.read() != '\n') {
+                    throw new IOException("Malformed memcached value for key=" + header[1]);
+                }
+                items.put(header[1], new Item(Integer.parseInt(header[2]), data));
+            }
+            return items;
+        } catch (IOException | NumberFormatException e) {
+            throw failure("Error fetching " + keys.size() + " keys", e);
+        }
+    }
+
+    private void writeSet(OutputStream out, String key, int flags, byte[] value, int offset, int length)
+            throws IOException {
+        out.write(("set " + key + " " + flags + " " + expiration + " " + length).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+        out.write(value, offset, length);
+        out.write(CRLF);
+    }
+
+    private OutputStream connection() throws IOException {
+        if (socket == null) {
+            Socket created = new Socket();
+            created.setTcpNoDelay(true);
+            created.connect(address, timeout);
+            created.setSoTimeout(timeout);
+            socket = created;
+            in = new BufferedInputStream(created.getInputStream());
+            out = new BufferedOutputStream(created.getOutputStream());
+        }
+        return out;
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\r') {
+                if (in.read() != '\n') {
+                    throw new IOException("Malformed memcached reply=" + line);
+                }
+                return line.toString();
+            }
+            line.append((char) b);
+        }
+        throw new EOFException("memcached closed connection");
+    }
+
+    private void readFully(byte[] data) throws IOException {
+        int read = 0;
+        while (read < data.length) {
+            int count = in.read(data, read, data.length - read);
+            if (count == -1) {
+                throw new EOFException("memcached closed connection");
+            }
+            read += count;
+        }
+    }
+
+    /**
+     * connection state is unknown after an error, reconnect on next request
+     */
+    private ConfigLoaderException failure(String message, Exception e) {
+        close();
+        logger.warn("{} from memcached={}, Error={}", message, address, e.toString());
+        return new ConfigLoaderException(ConfigLoaderError.CONFIG_CACHE_STORE_ERROR, message + " from memcached="
+                + address);
+    }
+
+    private static int chunkCount(String key, Item manifest) throws ConfigLoaderException {
+        try {
+            return Integer.parseInt(new String(manifest.data, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new ConfigLoaderException(ConfigLoaderError.CONFIG_CACHE_STORE_ERROR, "Invalid chunk manifest key="
+                    + key);
+        }
+    }
+
+    private static String chunkKey(String key, int chunk) {
+        return key + CHUNK_SEPARATOR + chunk;
+    }
+
+    private static void validate(String key) throws ConfigLoaderException {
+        boolean valid = key != null && !key.isEmpty() && key.length() <= MAX_KEY_LENGTH;
+        for (int i = 0; valid && i < key.length(); i++) {
+            char c = key.charAt(i);
+            valid = c > ' ' && c < 127;
+        }
+        if (!valid) {
+            throw new ConfigLoaderException(ConfigLoaderError.CONFIG_CACHE_STORE_ERROR, "Invalid memcached key="
+                    + key);
+        }
+    }
+
+    private static final class Item {
+
+        private final int flags;
+
+        private final byte[] data;
+
+        private Item(int flags, byte[] data) {
+            this.flags = flags;
+            this.data = data;
+        }
+    }
+}
@@ -9,5 +9,10 @@ public enum ConfigLoaderError {
     INVALID_PROPERTY_DEFINITION,
     FAILED_TO_READ_CONFIG_FILE,
     PROPERTY_NOT_FOUND, 
-    PROPERTY_GROUP_NOT_FOUND;
+    PROPERTY_GROUP_NOT_FOUND,
+    CONFIG_LOAD_INTERRUPTED,
+    INVALID_CONFIG_SNAPSHOT,
+    FAILED_TO_WRITE_CONFIG_SNAPSHOT,
+    CONFIG_CACHE_STORE_ERROR,
+    METRICS_REGISTRATION_FAILED;
 }
@@ -8,10 +8,12 @@ import com.twitter.config.exception.ConfigLoaderError;
 import com.twitter.config.exception.ConfigLoaderException;
 import com.twitter.config.models.BooleanProperty;
 import com.twitter.config.models.DoubleProperty;
+import com.twitter.config.models.LazyProperty;
 import com.twitter.config.models.ListProperty;
 import com.twitter.config.models.LongProperty;
 import com.twitter.config.models.Property;
 import com.twitter.config.models.StringProperty;
+import com.twitter.config.utils.StringPool;
 
 public class PropertyFactory {
 
@@ -21,6 +23,16 @@ public class PropertyFactory {
 
     private static final String LIST_OF_PROPERTY_DELIMITER = ",";
 
+    private static final char LIST_DELIMITER = ',';
+
+    private static final String MAX_LONG_DIGITS = "9223372036854775807";
+
+    private static final String MIN_LONG_DIGITS = "9223372036854775808";
+
+    private static final String NAN = "NaN";
+
+    private static final String INFINITY = "Infinity";
+
     /**
      * Factory method returns Property object base of value type
      * 
@@ -30,6 +42,58 @@ public class PropertyFactory {
      * @throws ConfigLoaderException
      */
     public static Property getProperty(String key, String value) throws ConfigLoaderException {
+        return getProperty(key, value, null);
+    }
+
+    /**
+     * Factory method returns Property object base of value type, string values and list elements are deduplicated
+     * through pool
+     * 
+     * @param key
+     * @param value
+     * @param pool
+     *            null to keep strings as given
+     * @return
+     * @throws ConfigLoaderException
+     */
+    public static Property getProperty(String key, String value, StringPool pool) throws ConfigLoaderException {
+        validate(key, value);
+
+        switch (classify(value)) {
+        case LONG:
+            return new LongProperty(key, Long.parseLong(value));
+        case DOUBLE:
+            return new DoubleProperty(key, Double.parseDouble(value));
+        case BOOLEAN:
+            return new BooleanProperty(key, Boolean.parseBoolean(value));
+        case LIST:
+            String[] values = value.split(LIST_OF_PROPERTY_DELIMITER);
+            if (pool != null) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = pool.intern(values[i]);
+                }
+            }
+            return new ListProperty(key, Arrays.asList(values));
+        default:
+            return new StringProperty(key, pool == null ? value : pool.intern(value));
+        }
+    }
+
+    /**
+     * Factory method returns Property that keeps raw value and is typed on first read, typing never fails so invalid key
+     * or value are reported here
+     * 
+     * @param key
+     * @param value
+     * @return
+     * @throws ConfigLoaderException
+     */
+    public static Property getLazyProperty(String key, CharSequence value) throws ConfigLoaderException {
+        validate(key, value);
+        return new LazyProperty(key, value);
+    }
+
+    private static void validate(String key, CharSequence value) throws ConfigLoaderException {
         if (StringUtils.isBlank(key)) {
             throw new ConfigLoaderException(ConfigLoaderError.INVALID_PROPERTY_KEY, "Invalid property key=" + key);
         }
@@ -38,34 +102,134 @@ public class PropertyFactory {
             throw new ConfigLoaderException(ConfigLoaderError.INVALID_PROPERTY_VALUE, "Invalid property value=" + value
                     + " for key=" + key);
         }
+    }
 
+    /**
+     * Single pass lexical classification of value, accepts exactly what Long.parseLong and Double.parseDouble accept so
+     * values are parsed once and no NumberFormatException is thrown and caught on load.
+     * 
+     * @param value
+     * @return
+     */
+    private static ValueType classify(String value) {
         if (isLong(value)) {
-            return new LongProperty(key, Long.parseLong(value));
+            return ValueType.LONG;
         } else if (isDouble(value)) {
-            return new DoubleProperty(key, Double.parseDouble(value));
+            return ValueType.DOUBLE;
         } else if (isBoolean(value)) {
-            return new BooleanProperty(key, Boolean.parseBoolean(value));
+            return ValueType.BOOLEAN;
         } else if (isListOfValues(value)) {
-            return new ListProperty(key, Arrays.asList(value.split(LIST_OF_PROPERTY_DELIMITER)));
-        } else {
-            return new StringProperty(key, value);
+            return ValueType.LIST;
         }
+        return ValueType.STRING;
     }
 
     private static boolean isListOfValues(String value) {
-        return value.contains(LIST_OF_PROPERTY_DELIMITER);
+        return value.indexOf(LIST_DELIMITER) != -1;
     }
 
+    /**
+     * [+-]?digits within long range, digits as accepted by Character.digit
+     */
     private static boolean isLong(String value) {
-        try {
-            Long.parseLong(value);
-        } catch (NumberFormatException e) {
+        int length = value.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            negative = value.charAt(0) == '-';
+            i++;
+        }
+        if (i == length) {
             return false;
         }
+        // skip leading zeros, then compare significant digits against long range
+        while (i < length && Character.digit(value.charAt(i), 10) == 0) {
+            i++;
+        }
+        int significantDigits = length - i;
+        if (significantDigits > MAX_LONG_DIGITS.length()) {
+            return false;
+        }
+        String limit = negative ? MIN_LONG_DIGITS : MAX_LONG_DIGITS;
+        boolean compare = significantDigits == limit.length();
+        for (int j = 0; i < length; i++, j++) {
+            int digit = Character.digit(value.charAt(i), 10);
+            if (digit < 0) {
+                return false;
+            }
+            if (compare) {
+                int limitDigit = limit.charAt(j) - '0';
+                if (digit > limitDigit) {
+                    return false;
+                }
+                compare = digit == limitDigit;
+            }
+        }
         return true;
     }
 
+    /**
+     * Java floating point literal as accepted by Double.parseDouble: surrounding whitespace, [+-]?(NaN|Infinity) or
+     * [+-]?(digits[.digits]|.digits)([eE][+-]?digits)?[fFdD]?. Rare hexadecimal values are checked by parsing.
+     */
     private static boolean isDouble(String value) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int i = start;
+        if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        if (i == end) {
+            return false;
+        }
+        if (value.startsWith(NAN, i) || value.startsWith(INFINITY, i)) {
+            return i + (value.charAt(i) == 'N' ? NAN.length() : INFINITY.length()) == end;
+        }
+        if (value.charAt(i) == '0' && i + 1 < end && (value.charAt(i + 1) == 'x' || value.charAt(i + 1) == 'X')) {
+            return isHexDouble(value);
+        }
+        int digits = 0;
+        while (i < end && isAsciiDigit(value.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < end && value.charAt(i) == '.') {
+            i++;
+            while (i < end && isAsciiDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            while (i < end && isAsciiDigit(value.charAt(i))) {
+                i++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return false;
+            }
+        }
+        if (i < end && "fFdD".indexOf(value.charAt(i)) != -1) {
+            i++;
+        }
+        return i == end;
+    }
+
+    private static boolean isHexDouble(String value) {
         try {
             Double.parseDouble(value);
         } catch (NumberFormatException e) {
@@ -74,7 +238,15 @@ public class PropertyFactory {
         return true;
     }
 
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
     private static boolean isBoolean(String value) {
         return TRUE.equalsIgnoreCase(value) || FALSE.equalsIgnoreCase(value);
     }
+
+    private enum ValueType {
+        LONG, DOUBLE, BOOLEAN, LIST, STRING
+    }
 }
@@ -0,0 +1,95 @@
+package com.twitter.config.loader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Key of a config in the ConfigLoader cache: canonical path of the config file and its overrides. Overrides are
+ * normalized to a sorted list without duplicates and nulls since neither their order nor repeats change the loaded
+ * config (the override defined later in the file wins), so equivalent override lists share one cached config. Hash is
+ * computed once.
+ *
+ * @author agupta13
+ *
+ */
+public final class ConfigCacheKey {
+
+    private final String path;
+
+    private final List<String> overrides;
+
+    private final int hash;
+
+    private ConfigCacheKey(String path, List<String> overrides) {
+        this.path = path;
+        this.overrides = overrides;
+        this.hash = 31 * path.hashCode() + overrides.hashCode();
+    }
+
+    /**
+     * @param path
+     *            canonical path of config file
+     * @param overrides
+     *            may be null
+     * @return
+     */
+    public static ConfigCacheKey of(String path, List<String> overrides) {
+        return new ConfigCacheKey(path, normalize(overrides));
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return sorted overrides without duplicates and nulls
+     */
+    public List<String> getOverrides() {
+        return overrides;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ConfigCacheKey)) {
+            return false;
+        }
+        ConfigCacheKey other = (ConfigCacheKey) obj;
+        return hash == other.hash && path.equals(other.path) && overrides.equals(other.overrides);
+    }
+
+    @Override
+    public String toString() {
+        return path + overrides;
+    }
+
+    /**
+     * @return sorted overrides without duplicates and nulls, empty list for null
+     */
+    static List<String> normalize(List<String> overrides) {
+        if (overrides == null || overrides.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // common cases without a sorted set
+        if (overrides.size() == 1) {
+            String override = overrides.get(0);
+            return override == null ? Collections.<String> emptyList() : Collections.singletonList(override);
+        }
+        TreeSet<String> sorted = new TreeSet<String>();
+        for (String override : overrides) {
+            if (override != null) {
+                sorted.add(override);
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<String>(sorted));
+    }
+}
@@ -1,94 +1,889 @@
 package com.twitter.config.loader;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.twitter.config.binary.BinarySnapshot;
+import com.twitter.config.binary.SharedSnapshotStore;
+import com.twitter.config.cache.ConfigCache;
+import com.twitter.config.cache.ConfigCacheStore;
+import com.twitter.config.exception.ConfigLoaderError;
 import com.twitter.config.exception.ConfigLoaderException;
+import com.twitter.config.metrics.ConfigMetrics;
+import com.twitter.config.metrics.ConfigMetricsSnapshot;
 import com.twitter.config.models.Config;
+import com.twitter.config.models.ConfigHandle;
 import com.twitter.config.models.ConfigImpl;
+import com.twitter.config.models.ConfigLayers;
+import com.twitter.config.models.ConfigOptions;
+import com.twitter.config.models.ConfigSnapshot;
+import com.twitter.config.models.MeteredConfig;
+import com.twitter.config.models.ConfigSource;
+import com.twitter.config.utils.ConfigLoaderUtils;
 
 /**
  * ConfigLoader is a wrapper over Config that can cache config object so we need not to goto file system again. Cached
  * config is currently kept in application memory if huge OR same file is used by multiple services/applications can be
  * moved to Memcache.
  * 
+ * Each file is parsed once into ConfigLayers, configs for different overrides of the same file are views sharing the
+ * parsed layers. With snapshots enabled in ConfigOptions files are compiled to binary snapshots and later loads, also
+ * from other JVMs, map the snapshot instead of parsing the file. With a shared snapshot directory one process of the
+ * host parses a file and publishes its snapshot, the other processes map it. With a ConfigCacheStore set, snapshots
+ * are shared through the store keyed by file content and each content version is parsed once by the whole fleet. With
+ * off-heap storage parsed files are kept in direct buffers, reference counted by the source cache, the config cache
+ * and handles: memory of a file is freed once it and its configs are evicted or replaced by reload and no handle uses
+ * it. Configs returned by load must be retained to stay readable after that.
+ * 
+ * Configs are cached by canonical file path and overrides regardless of their order, so files loaded through
+ * symlinks and reordered override lists share one config. With hot reload enabled a symlink pointed at another file
+ * is followed to its new target on the next load. With shareIdenticalFiles set in ConfigOptions files of identical
+ * content at different paths also share one parsed copy.
+ * 
+ * ConfigLoader is thread-safe, concurrent loads of the same file and overrides parse the file only once. With hot
+ * reload enabled loaded files are watched, changed files are parsed again in background and the new config atomically
+ * replaces the cached one - readers never block and never see a partially loaded config. Configs returned by load are
+ * immutable snapshots, use loadHandle to follow reloads.
+ * 
+ * Load latency, cache counters and parse throughput are always recorded, reads of loaded configs when meteredGets is
+ * set in ConfigOptions. Read them with getMetrics() or over JMX after registerMBean.
+ * 
  * @author agupta13
  * 
  */
-public class ConfigLoader {
+public class ConfigLoader implements Closeable {
 
-    private static final String SEPARATOR = "-";
+    public static final int DEFAULT_MAXIMUM_CACHE_SIZE = 1024;
+
+    private static final String MBEAN_DOMAIN = "com.twitter.config";
+
+    /**
+     * watcher callback name of paths reached through symlinks, apart from the reload callback of the file
+     */
+    private static final String ALIAS_WATCH_PREFIX = "alias:";
 
     private static final Logger logger = LoggerFactory.getLogger(ConfigLoader.class);
 
-    private Map<String, Config> configCache;
+    private ConfigCache<ConfigCacheKey, Config> configCache;
+
+    /**
+     * parsed files or their snapshots by path
+     */
+    private ConfigCache<String, ConfigSource> sourceCache;
+
+    /**
+     * canonical path -> keys of configs loaded from path, to rebuild them on reload
+     */
+    private final ConcurrentMap<String, Set<ConfigCacheKey>> loadedConfigs = new ConcurrentHashMap<String, Set<ConfigCacheKey>>();
+
+    /**
+     * cache key -> handle given out by loadHandle, kept up to date by reload
+     */
+    private final ConcurrentMap<ConfigCacheKey, ConfigHandle> handles = new ConcurrentHashMap<ConfigCacheKey, ConfigHandle>();
+
+    /**
+     * path as given -> canonical path, bounded like the config cache. With hot reload paths reached through symlinks
+     * are watched and resolved again once the link or its target changes.
+     */
+    private final ConfigCache<String, String> canonicalPaths;
+
+    /**
+     * content hash -> source parsed from a file of that content, for shareIdenticalFiles. Cleared once no path uses it.
+     */
+    private final ConcurrentMap<String, WeakReference<ConfigSource>> identicalSources = new ConcurrentHashMap<String, WeakReference<ConfigSource>>();
+
+    /**
+     * canonical path -> state of file before it was last read, baseline of its watch. Kept while the path is loaded so
+     * files loaded before hot reload is enabled are watched from the state they were read in.
+     */
+    private final ConcurrentMap<String, ConfigWatcher.FileStat> sourceStats = new ConcurrentHashMap<String, ConfigWatcher.FileStat>();
+
+    private volatile ConfigWatcher configWatcher;
+
+    private volatile ConfigOptions configOptions = new ConfigOptions();
+
+    private final ConfigMetrics metrics = new ConfigMetrics();
+
+    /**
+     * name of registered ConfigMetricsMXBean, null when not registered
+     */
+    private ObjectName mbeanName;
+
+    /**
+     * out of process tier consulted before parsing, null when not used
+     */
+    private volatile ConfigCacheStore cacheStore;
+
+    /**
+     * runs loadAllAsync loads, created on first use when not set
+     */
+    private volatile Executor executor;
+
+    /**
+     * executor created by this loader, shut down on close
+     */
+    private ExecutorService defaultExecutor;
+
+    /**
+     * drops the cache reference to evicted files and stops watching them once no config or handle of them is cached
+     */
+    private final ConfigCache.EvictionListener<String, ConfigSource> sourceEvictionListener = new ConfigCache.EvictionListener<String, ConfigSource>() {
+        @Override
+        public void onEviction(String configFilePath, ConfigSource source) {
+            release(source);
+            unwatchIfUnused(configFilePath);
+        }
+    };
+
+    /**
+     * drops the cache reference to evicted configs, forgets those no handle follows, and stops watching their file once
+     * nothing loaded from it is cached
+     */
+    private final ConfigCache.EvictionListener<ConfigCacheKey, Config> configEvictionListener = new ConfigCache.EvictionListener<ConfigCacheKey, Config>() {
+        @Override
+        public void onEviction(ConfigCacheKey cacheKey, Config config) {
+            release(config);
+            Set<ConfigCacheKey> configs = loadedConfigs.get(cacheKey.getPath());
+            if (configs != null && !handles.containsKey(cacheKey)) {
+                configs.remove(cacheKey);
+            }
+            unwatchIfUnused(cacheKey.getPath());
+        }
+    };
+
+    public ConfigLoader() {
+        this(DEFAULT_MAXIMUM_CACHE_SIZE);
+    }
+
+    public ConfigLoader(int maximumCacheSize) {
+        this.canonicalPaths = new ConfigCache<String, String>(maximumCacheSize);
+        this.canonicalPaths.setEvictionListener(new ConfigCache.EvictionListener<String, String>() {
+            @Override
+            public void onEviction(String filePath, String canonicalPath) {
+                ConfigWatcher watcher = configWatcher;
+                if (watcher != null) {
+                    watcher.unwatch(new File(filePath), ALIAS_WATCH_PREFIX + filePath);
+                }
+            }
+        });
+        this.configCache = new ConfigCache<ConfigCacheKey, Config>(maximumCacheSize);
+        this.configCache.setEvictionListener(configEvictionListener);
+        this.sourceCache = new ConfigCache<String, ConfigSource>(maximumCacheSize);
+        this.sourceCache.setEvictionListener(sourceEvictionListener);
+        this.configOptions.setMetrics(metrics);
+    }
 
     /*
      * added in memory cache to speed up repeated config load - tested in
      * ConfigLoaderTest#testLoadSamplePropertyCacheTest
      */
-    public Config load(String configFilePath, List<String> overrides) throws ConfigLoaderException {
-        long startTime = System.currentTimeMillis();
-        logger.info("Load configuration called with file path={} and overrides={}", configFilePath, overrides);
+    public Config load(final String configFilePath, final List<String> overrides) throws ConfigLoaderException {
+        return load(configFilePath, overrides, null);
+    }
+
+    /**
+     * @param loaded
+     *            set when this call built the config, not set when it came from the cache or a concurrent load. May be
+     *            null.
+     */
+    private Config load(final String configFilePath, final List<String> overrides, final AtomicBoolean loaded)
+            throws ConfigLoaderException {
+        long startTime = System.nanoTime();
 
-        String hashKey = null;
+        Config config;
         if (StringUtils.isNotBlank(configFilePath)) {
-            hashKey = generateHashKey(configFilePath, overrides);
+            // load config from application cache, only one caller parses the file on a miss
+            final ConfigCacheKey cacheKey = cacheKey(configFilePath, overrides);
+            config = getConfigCache().get(cacheKey, new ConfigCache.Loader<Config>() {
+                @Override
+                public Config load() throws ConfigLoaderException {
+                    if (loaded != null) {
+                        loaded.set(true);
+                    }
+                    // registered first so the file is not unwatched as unused while the config is built
+                    Set<ConfigCacheKey> configs;
+                    synchronized (sourceStats) {
+                        configs = getLoadedConfigs(cacheKey.getPath());
+                        configs.add(cacheKey);
+                    }
+                    try {
+                        while (true) {
+                            ConfigSnapshot config = newConfig(loadSource(cacheKey.getPath()), cacheKey.getOverrides());
+                            // reference of the cache entry, fails if the source was evicted and freed meanwhile
+                            if (config.retain()) {
+                                return config;
+                            }
+                        }
+                    } catch (ConfigLoaderException | RuntimeException e) {
+                        configs.remove(cacheKey);
+                        unwatchIfUnused(cacheKey.getPath());
+                        throw e;
+                    }
+                }
+            });
+        } else {
+            if (loaded != null) {
+                loaded.set(true);
+            }
+            config = new ConfigImpl(configFilePath, overrides, configOptions);
+        }
+
+        long loadTime = System.nanoTime() - startTime;
+        metrics.recordLoad(loadTime);
+        // debug only, loads are mostly cache hits on hot paths
+        logger.debug("Loaded config file={} overrides={}, time taken={} usec", configFilePath, overrides,
+                loadTime / 1000);
+        return config;
+    }
+
+    /**
+     * Load config and return a handle to its current snapshot. With hot reload enabled the handle is switched to the
+     * new snapshot when the file changes, callers holding the handle see the change and can pin a generation with
+     * {@link ConfigHandle#get()}. Loads of the same file and overrides share one handle, handles are kept for the life
+     * of the loader and keep their current snapshot readable.
+     * 
+     * @param configFilePath
+     * @param overrides
+     * @return
+     * @throws ConfigLoaderException
+     */
+    public ConfigHandle loadHandle(String configFilePath, List<String> overrides) throws ConfigLoaderException {
+        ConfigSnapshot snapshot;
+        do {
+            // cached configs are created by a ConfigSource and are always snapshots, retried if freed meanwhile
+            snapshot = (ConfigSnapshot) load(configFilePath, overrides);
+        } while (!snapshot.retain());
+        ConfigCacheKey cacheKey = cacheKey(configFilePath, overrides);
+        ConfigHandle handle = handles.get(cacheKey);
+        try {
+            if (handle == null) {
+                ConfigHandle created = new ConfigHandle(snapshot, configOptions);
+                handle = handles.putIfAbsent(cacheKey, created);
+                if (handle == null) {
+                    handle = created;
+                } else {
+                    // reference of the discarded handle
+                    snapshot.release();
+                }
+            }
+        } finally {
+            snapshot.release();
+        }
+        // a reload may have published a newer snapshot before the handle was registered
+        Config cached = getConfigCache().getIfPresent(cacheKey);
+        handle.update(cached instanceof ConfigSnapshot ? (ConfigSnapshot) cached : snapshot);
+        return handle;
+    }
+
+    /**
+     * Load config files concurrently on the executor, loaded configs are cached like with load. Equal requests share the
+     * same future, requests of the same cached config (through symlinks or reordered overrides) are loaded once and
+     * files shared by several requests are parsed once. With a ConfigCacheStore set, snapshots of files not cached yet
+     * are looked up in the store with one batched request before the loads start.
+     * 
+     * @param requests
+     * @return future of each distinct request, in request order. Futures fail with ConfigLoaderException.
+     */
+    public Map<LoadRequest, CompletableFuture<LoadResult>> loadAllAsync(Collection<LoadRequest> requests) {
+        Map<LoadRequest, CompletableFuture<LoadResult>> results;
+        results = new LinkedHashMap<LoadRequest, CompletableFuture<LoadResult>>();
+        Map<ConfigCacheKey, CompletableFuture<LoadResult>> loads;
+        loads = new HashMap<ConfigCacheKey, CompletableFuture<LoadResult>>();
+        final List<LoadTask> tasks = new ArrayList<LoadTask>();
+        final Set<String> paths = new LinkedHashSet<String>();
+        for (final LoadRequest request : requests) {
+            if (results.containsKey(request)) {
+                continue;
+            }
+            ConfigCacheKey cacheKey = StringUtils.isNotBlank(request.getConfigFilePath()) ? cacheKey(
+                    request.getConfigFilePath(), request.getOverrides()) : null;
+            CompletableFuture<LoadResult> load = cacheKey == null ? null : loads.get(cacheKey);
+            if (load == null) {
+                LoadTask task = new LoadTask(request);
+                tasks.add(task);
+                load = task.result;
+                if (cacheKey != null) {
+                    loads.put(cacheKey, load);
+                    paths.add(cacheKey.getPath());
+                }
+                results.put(request, load);
+            } else {
+                results.put(request, load.thenApply(new Function<LoadResult, LoadResult>() {
+                    @Override
+                    public LoadResult apply(LoadResult result) {
+                        return new LoadResult(request, result.getConfig(), result.getLoadTime(), result.isCached());
+                    }
+                }));
+            }
+        }
+
+        final Executor executor = getExecutor();
+        final ConfigCacheStore store = cacheStore;
+        if (store == null || configOptions.getSharedSnapshotDirectory() != null || paths.size() < 2) {
+            for (LoadTask task : tasks) {
+                task.execute(executor);
+            }
+            return results;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        prefetch(paths, store);
+                    } finally {
+                        for (LoadTask task : tasks) {
+                            task.execute(executor);
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            for (LoadTask task : tasks) {
+                task.result.completeExceptionally(e);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Look up snapshots of files not cached yet in store with one batched request and cache the found ones like
+     * loadSource, files missing from store are loaded one by one
+     */
+    private void prefetch(Collection<String> configFilePaths, ConfigCacheStore store) {
+        Map<String, ConfigWatcher.FileStat> stats = new HashMap<String, ConfigWatcher.FileStat>();
+        for (String configFilePath : configFilePaths) {
+            if (!sourceCache.contains(configFilePath)) {
+                // stat before hashing, like loadSource
+                stats.put(configFilePath, ConfigWatcher.FileStat.of(new File(configFilePath)));
+            }
+        }
+        if (stats.size() < 2) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        Map<String, BinarySnapshot> snapshots = BinarySnapshot.loadAll(stats.keySet(), store);
+        for (final Map.Entry<String, BinarySnapshot> snapshot : snapshots.entrySet()) {
+            final ConfigWatcher.FileStat stat = stats.get(snapshot.getKey());
+            try {
+                sourceCache.get(snapshot.getKey(), new ConfigCache.Loader<ConfigSource>() {
+                    @Override
+                    public ConfigSource load() {
+                        return loaded(snapshot.getKey(), stat, snapshot.getValue());
+                    }
+                });
+            } catch (ConfigLoaderException e) {
+                // a concurrent load of the file failed, its request reports it
+            }
+        }
+        logger.info("Found {} of {} config files in store, time taken={} usec", snapshots.size(), stats.size(),
+                (System.nanoTime() - startTime) / 1000);
+    }
+
+    /**
+     * load of one distinct request of loadAllAsync
+     */
+    private final class LoadTask implements Runnable {
+
+        private final LoadRequest request;
+
+        private final CompletableFuture<LoadResult> result = new CompletableFuture<LoadResult>();
+
+        private LoadTask(LoadRequest request) {
+            this.request = request;
+        }
+
+        private void execute(Executor executor) {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(e);
+            }
         }
 
-        Config config = null;
-        // load config from application cache
-        if (StringUtils.isNotBlank(hashKey)) {
-            config = getConfigCache().get(hashKey);
+        @Override
+        public void run() {
+            String path = request.getConfigFilePath();
+            // set only by the caller that ran the single-flight load
+            AtomicBoolean loaded = new AtomicBoolean();
+            long startTime = System.nanoTime();
+            try {
+                Config config = load(path, request.getOverrides(), loaded);
+                long loadTime = System.nanoTime() - startTime;
+                logger.debug("Loaded config file={} async, time taken={} usec", path, loadTime / 1000);
+                result.complete(new LoadResult(request, config, loadTime, !loaded.get()));
+            } catch (ConfigLoaderException e) {
+                result.completeExceptionally(e);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
         }
+    }
 
-        if (config == null) {
-            logger.info("Loading config from FileSystem");
-            config = new ConfigImpl(configFilePath, overrides);
+    /**
+     * Enable hot reload of config files, changes are picked by WatchService or polled every pollInterval msec. Files
+     * loaded before this call are watched too, changed since they were loaded they are reloaded right away.
+     * 
+     * @param pollInterval
+     */
+    public synchronized void enableHotReload(long pollInterval) {
+        if (configWatcher == null) {
+            configWatcher = new ConfigWatcher(pollInterval);
+            for (String configFilePath : sourceStats.keySet()) {
+                watch(configFilePath);
+            }
+            // resolved again on next load, watching paths reached through symlinks
+            canonicalPaths.invalidateAll();
+        }
+    }
+
+    public void enableHotReload() {
+        enableHotReload(ConfigWatcher.DEFAULT_POLL_INTERVAL_MSEC);
+    }
+
+    /**
+     * @return point in time copy of load, parse and read metrics and cache stats
+     */
+    public ConfigMetricsSnapshot getMetrics() {
+        return metrics.snapshot(getConfigCache().stats(), getSourceCache().stats());
+    }
+
+    /**
+     * Register ConfigMetricsMXBean of this loader with the platform MBeanServer as
+     * com.twitter.config:type=ConfigLoader,name=name, unregistered on close
+     * 
+     * @param name
+     * @return registered name
+     * @throws ConfigLoaderException
+     *             if name is invalid or already registered
+     */
+    public synchronized ObjectName registerMBean(String name) throws ConfigLoaderException {
+        if (mbeanName != null) {
+            throw new ConfigLoaderException(ConfigLoaderError.METRICS_REGISTRATION_FAILED,
+                    "ConfigLoader metrics already registered as " + mbeanName);
+        }
+        try {
+            ObjectName objectName = new ObjectName(MBEAN_DOMAIN + ":type=ConfigLoader,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new ConfigLoaderMetrics(this), objectName);
+            mbeanName = objectName;
+            return objectName;
+        } catch (JMException e) {
+            logger.error("Failed to register ConfigLoader metrics name=" + name + ", Error=" + e);
+            throw new ConfigLoaderException(ConfigLoaderError.METRICS_REGISTRATION_FAILED,
+                    "Failed to register ConfigLoader metrics name=" + name);
+        }
+    }
+
+    /**
+     * Stop watching config files and the default async executor, unregister metrics MBean. Cached configs stay as they
+     * are.
+     */
+    @Override
+    public synchronized void close() {
+        if (mbeanName != null) {
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            try {
+                mbeanServer.unregisterMBean(mbeanName);
+            } catch (JMException e) {
+                logger.warn("Failed to unregister ConfigLoader metrics={}", mbeanName);
+            }
+            mbeanName = null;
+        }
+        if (configWatcher != null) {
+            configWatcher.close();
+            configWatcher = null;
+        }
+        if (defaultExecutor != null) {
+            defaultExecutor.shutdown();
+            if (executor == defaultExecutor) {
+                executor = null;
+            }
+            defaultExecutor = null;
+        }
+    }
+
+    /**
+     * @return executor set for async loads, or a virtual thread per task executor where the JDK supports it, otherwise a
+     *         pool of daemon threads sized to available processors
+     */
+    public Executor getExecutor() {
+        Executor current = executor;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (executor == null) {
+                defaultExecutor = newDefaultExecutor();
+                executor = defaultExecutor;
+            }
+            return executor;
+        }
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    private static ExecutorService newDefaultExecutor() {
+        try {
+            // Java 21+, looked up reflectively to keep Java 8 compatibility
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.debug("Virtual threads not supported, using a thread pool for async loads");
+        }
+        final AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "config-loader-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private ConfigSource loadSource(final String configFilePath) throws ConfigLoaderException {
+        return sourceCache.get(configFilePath, new ConfigCache.Loader<ConfigSource>() {
+            @Override
+            public ConfigSource load() throws ConfigLoaderException {
+                logger.debug("Loading config from FileSystem");
+                // stat before reading, a change made while reading is reloaded once watched
+                ConfigWatcher.FileStat stat = ConfigWatcher.FileStat.of(new File(configFilePath));
+                return loaded(configFilePath, stat, readSource(configFilePath, false));
+            }
+        });
+    }
+
+    /**
+     * remember state of file source was read from and watch it from that state
+     */
+    private ConfigSource loaded(String configFilePath, ConfigWatcher.FileStat stat, ConfigSource source) {
+        sourceStats.put(configFilePath, stat);
+        watch(configFilePath);
+        return source;
+    }
+
+    /**
+     * source of file by option precedence, or a source of a file with identical content when shareIdenticalFiles is set
+     * 
+     * @param configFilePath
+     *            canonical path
+     * @param reload
+     *            true to replace snapshots, false to use existing ones
+     */
+    private ConfigSource readSource(String configFilePath, boolean reload) throws ConfigLoaderException {
+        String contentHash = configOptions.isShareIdenticalFiles() ? contentHash(configFilePath) : null;
+        if (contentHash != null) {
+            WeakReference<ConfigSource> identical = identicalSources.get(contentHash);
+            ConfigSource source = identical == null ? null : identical.get();
+            // reference of the caller, fails if the source was evicted and freed meanwhile
+            if (source != null && retain(source)) {
+                logger.debug("Sharing config of identical content for file={}", configFilePath);
+                return source;
+            }
+        }
+
+        ConfigSource source;
+        if (configOptions.getSharedSnapshotDirectory() != null) {
+            // on reload every process watching the file reloads, the first one publishes and the others attach
+            source = reload ? getSharedSnapshotStore().publish(configFilePath, configOptions)
+                    : getSharedSnapshotStore().load(configFilePath, configOptions);
+        } else if (cacheStore != null) {
+            source = BinarySnapshot.load(configFilePath, configOptions, cacheStore);
+        } else if (configOptions.isSnapshot()) {
+            source = reload ? BinarySnapshot.compile(configFilePath, configOptions) : BinarySnapshot.load(
+                    configFilePath, configOptions);
         } else {
-            logger.info("Found config in cache");
+            source = parse(configFilePath);
         }
 
-        // put config in cache for later use
-        if (StringUtils.isNotBlank(hashKey) && config != null) {
-            getConfigCache().put(hashKey, config);
+        // file changed while reading, source doesn't match hash
+        if (contentHash != null && !contentHash.equals(contentHash(configFilePath))) {
+            logger.info("Config file={} changed while loading, not sharing it", configFilePath);
+            return source;
+        }
+        if (contentHash != null) {
+            for (Iterator<WeakReference<ConfigSource>> it = identicalSources.values().iterator(); it.hasNext();) {
+                if (it.next().get() == null) {
+                    it.remove();
+                }
+            }
+            identicalSources.put(contentHash, new WeakReference<ConfigSource>(source));
         }
+        return source;
+    }
 
-        logger.info("Loaded config succesfully, total time taken={} msec", (System.currentTimeMillis() - startTime));
-        return config;
+    /**
+     * @return hash of file content, null if file can't be read and identical files are not looked for
+     */
+    private static String contentHash(String configFilePath) {
+        try {
+            return ConfigLoaderUtils.contentHash(new File(configFilePath));
+        } catch (IOException e) {
+            logger.warn("Error hashing config file={}, not sharing it", configFilePath);
+            return null;
+        }
     }
 
     /**
-     * create hash key .i.e. filePath + overrides (appended by -)
+     * new config of source, metered when enabled in options
+     */
+    private ConfigSnapshot newConfig(ConfigSource source, List<String> overrides) {
+        ConfigSnapshot config = source.newConfig(overrides);
+        return configOptions.isMeteredGets() ? new MeteredConfig(config, metrics) : config;
+    }
+
+    private SharedSnapshotStore getSharedSnapshotStore() {
+        return new SharedSnapshotStore(new File(configOptions.getSharedSnapshotDirectory()));
+    }
+
+    private ConfigSource parse(String configFilePath) throws ConfigLoaderException {
+        ConfigLayers layers = ConfigLayers.load(configFilePath, configOptions);
+        return configOptions.isOffHeap() ? BinarySnapshot.offHeap(layers) : layers;
+    }
+
+    private static boolean retain(ConfigSource source) {
+        return !(source instanceof BinarySnapshot) || ((BinarySnapshot) source).retain();
+    }
+
+    /**
+     * drop a reference held by a cache entry or a reload, off-heap memory is freed with the last one
+     */
+    private static void release(Object sourceOrConfig) {
+        if (sourceOrConfig instanceof BinarySnapshot) {
+            ((BinarySnapshot) sourceOrConfig).release();
+        } else if (sourceOrConfig instanceof ConfigSnapshot) {
+            ((ConfigSnapshot) sourceOrConfig).release();
+        }
+    }
+
+    /**
+     * stop watching file once neither its source nor any config or handle of it is cached
+     */
+    private void unwatchIfUnused(String configFilePath) {
+        synchronized (sourceStats) {
+            Set<ConfigCacheKey> configs = loadedConfigs.get(configFilePath);
+            if ((configs != null && !configs.isEmpty()) || sourceCache.contains(configFilePath)) {
+                return;
+            }
+            if (configs != null) {
+                loadedConfigs.remove(configFilePath, configs);
+            }
+            sourceStats.remove(configFilePath);
+            ConfigWatcher watcher = configWatcher;
+            if (watcher != null) {
+                watcher.unwatch(new File(configFilePath), configFilePath);
+                logger.info("Stopped watching unused config file={}", configFilePath);
+            }
+        }
+    }
+
+    private Set<ConfigCacheKey> getLoadedConfigs(String configFilePath) {
+        Set<ConfigCacheKey> configs = loadedConfigs.get(configFilePath);
+        if (configs == null) {
+            Set<ConfigCacheKey> created = ConcurrentHashMap.<ConfigCacheKey> newKeySet();
+            configs = loadedConfigs.putIfAbsent(configFilePath, created);
+            if (configs == null) {
+                configs = created;
+            }
+        }
+        return configs;
+    }
+
+    private void watch(final String configFilePath) {
+        ConfigWatcher watcher = configWatcher;
+        if (watcher == null) {
+            return;
+        }
+        synchronized (sourceStats) {
+            ConfigWatcher.FileStat stat = sourceStats.get(configFilePath);
+            if (stat == null) {
+                // no longer used
+                return;
+            }
+            watcher.watch(new File(configFilePath), configFilePath, new Runnable() {
+                @Override
+                public void run() {
+                    reload(configFilePath);
+                }
+            }, stat);
+        }
+    }
+
+    /**
+     * parse changed file once off to the side and swap it and configs of every loaded override combination in cache, on
+     * failure keep serving the previous configs. Files whose source was evicted are reloaded as long as a cached config
+     * or handle still uses them.
+     */
+    private void reload(String configFilePath) {
+        Set<ConfigCacheKey> configs = loadedConfigs.get(configFilePath);
+        if ((configs == null || configs.isEmpty()) && !sourceCache.contains(configFilePath)) {
+            return;
+        }
+        try {
+            long startTime = System.currentTimeMillis();
+            ConfigSource source = readSource(configFilePath, true);
+            // an evicted source is not cached again, configs built from it hold it
+            ConfigSource replacedSource = sourceCache.replace(configFilePath, source);
+            for (ConfigCacheKey loaded : getLoadedConfigs(configFilePath)) {
+                ConfigSnapshot snapshot = newConfig(source, loaded.getOverrides());
+                // reference of the cache entry, dropped with the replaced config or if nothing was replaced
+                snapshot.retain();
+                Config replaced = getConfigCache().replace(loaded, snapshot);
+                release(replaced != null ? replaced : snapshot);
+                ConfigHandle handle = handles.get(loaded);
+                if (handle != null) {
+                    handle.update(snapshot);
+                } else if (replaced == null) {
+                    // evicted, next load builds it again
+                    getLoadedConfigs(configFilePath).remove(loaded);
+                }
+            }
+            // reference read with the source, kept by the cache entry if it was replaced
+            release(replacedSource != null ? replacedSource : source);
+            logger.info("Reloaded config file={}, total time taken={} msec", configFilePath,
+                    (System.currentTimeMillis() - startTime));
+        } catch (ConfigLoaderException e) {
+            logger.error("Failed to reload config file=" + configFilePath + ", keeping previous config. Error="
+                    + e.getErrorMsg());
+        }
+    }
+
+    /**
+     * cache key of canonical path and normalized overrides, so symlinks and reordered overrides share a config
      * 
      * @param filePath
      * @param overrides
      * @return
      */
-    private String generateHashKey(String filePath, List<String> overrides) {
-        String overrideKey = null;
-        if (overrides != null && !overrides.isEmpty()) {
-            StringBuffer hashKey = new StringBuffer();
-            for (String override : overrides) {
-                hashKey.append(override + SEPARATOR);
-            }
-            overrideKey = hashKey.toString();
+    private ConfigCacheKey cacheKey(String filePath, List<String> overrides) {
+        return ConfigCacheKey.of(canonicalPath(filePath), overrides);
+    }
+
+    private String canonicalPath(final String filePath) {
+        try {
+            return canonicalPaths.get(filePath, new ConfigCache.Loader<String>() {
+                @Override
+                public String load() {
+                    return resolve(filePath);
+                }
+            });
+        } catch (ConfigLoaderException e) {
+            // not thrown by resolve
+            return resolve(filePath);
         }
-        return filePath + overrideKey;
     }
 
-    public Map<String, Config> getConfigCache() {
-        if (configCache == null) {
-            configCache = new HashMap<String, Config>();
+    /**
+     * canonical path of file, a path reached through symlinks is watched to forget its canonical path once the link or
+     * its target changes
+     */
+    private String resolve(final String filePath) {
+        final File file = new File(filePath);
+        ConfigWatcher.FileStat stat = ConfigWatcher.FileStat.of(file);
+        String canonicalPath;
+        try {
+            canonicalPath = file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+        final ConfigWatcher watcher = configWatcher;
+        if (watcher != null && !canonicalPath.equals(file.toPath().toAbsolutePath().normalize().toString())) {
+            watcher.watch(file, ALIAS_WATCH_PREFIX + filePath, new Runnable() {
+                @Override
+                public void run() {
+                    logger.info("Config file path={} changed, resolving it again", filePath);
+                    watcher.unwatch(file, ALIAS_WATCH_PREFIX + filePath);
+                    canonicalPaths.invalidate(filePath);
+                }
+            }, stat);
         }
+        return canonicalPath;
+    }
+
+    public ConfigOptions getConfigOptions() {
+        return configOptions;
+    }
+
+    /**
+     * options used for configs loaded after this call. Options without metrics record parses in the metrics of this
+     * loader, through a copy so the given options are left as they are.
+     * 
+     * @param configOptions
+     */
+    public void setConfigOptions(ConfigOptions configOptions) {
+        if (configOptions.getMetrics() == null) {
+            configOptions = new ConfigOptions(configOptions);
+            configOptions.setMetrics(metrics);
+        }
+        this.configOptions = configOptions;
+    }
+
+    ConfigWatcher getConfigWatcher() {
+        return configWatcher;
+    }
+
+    public ConfigCacheStore getCacheStore() {
+        return cacheStore;
+    }
+
+    /**
+     * store consulted for snapshots of files not in the local cache, used for files loaded after this call. Shared
+     * snapshot directory takes precedence. Store is not closed by the loader.
+     * 
+     * @param cacheStore
+     *            null to parse files locally
+     */
+    public void setCacheStore(ConfigCacheStore cacheStore) {
+        this.cacheStore = cacheStore;
+    }
+
+    public ConfigCache<ConfigCacheKey, Config> getConfigCache() {
         return configCache;
     }
 
-    public void setConfigCache(Map<String, Config> configCache) {
+    public void setConfigCache(ConfigCache<ConfigCacheKey, Config> configCache) {
+        configCache.setEvictionListener(configEvictionListener);
         this.configCache = configCache;
     }
 
+    public ConfigCache<String, ConfigSource> getSourceCache() {
+        return sourceCache;
+    }
+
+    public void setSourceCache(ConfigCache<String, ConfigSource> sourceCache) {
+        sourceCache.setEvictionListener(sourceEvictionListener);
+        this.sourceCache = sourceCache;
+    }
+
 }
@@ -0,0 +1,130 @@
+package com.twitter.config.loader;
+
+import java.util.Map;
+
+import com.twitter.config.cache.CacheStats;
+import com.twitter.config.metrics.ConfigMetricsMXBean;
+import com.twitter.config.metrics.ConfigMetricsSnapshot;
+import com.twitter.config.metrics.HistogramSnapshot;
+
+/**
+ * ConfigMetricsMXBean of a ConfigLoader, registered by {@link ConfigLoader#registerMBean(String)}
+ *
+ * @author agupta13
+ *
+ */
+class ConfigLoaderMetrics implements ConfigMetricsMXBean {
+
+    private final ConfigLoader configLoader;
+
+    ConfigLoaderMetrics(ConfigLoader configLoader) {
+        this.configLoader = configLoader;
+    }
+
+    @Override
+    public long getLoadCount() {
+        return loadLatency().getCount();
+    }
+
+    @Override
+    public double getLoadLatencyMeanMicros() {
+        return loadLatency().getMean() / 1000;
+    }
+
+    @Override
+    public long getLoadLatencyP50Micros() {
+        return loadLatency().getPercentile(50) / 1000;
+    }
+
+    @Override
+    public long getLoadLatencyP99Micros() {
+        return loadLatency().getPercentile(99) / 1000;
+    }
+
+    @Override
+    public long getLoadLatencyMaxMicros() {
+        return loadLatency().getMax() / 1000;
+    }
+
+    @Override
+    public long getConfigCacheHitCount() {
+        return configCacheStats().getHitCount();
+    }
+
+    @Override
+    public long getConfigCacheMissCount() {
+        return configCacheStats().getMissCount();
+    }
+
+    @Override
+    public double getConfigCacheHitRate() {
+        return configCacheStats().getHitRate();
+    }
+
+    @Override
+    public long getConfigCacheEvictionCount() {
+        return configCacheStats().getEvictionCount();
+    }
+
+    @Override
+    public long getSourceCacheEvictionCount() {
+        return configLoader.getSourceCache().stats().getEvictionCount();
+    }
+
+    @Override
+    public long getParseCount() {
+        return snapshot().getParseLatency().getCount();
+    }
+
+    @Override
+    public long getParsedBytes() {
+        return snapshot().getParsedBytes();
+    }
+
+    @Override
+    public double getParseBytesPerSecond() {
+        return snapshot().getParseBytesPerSecond();
+    }
+
+    @Override
+    public double getParsedPropertiesPerSecond() {
+        return snapshot().getParsedPropertiesPerSecond();
+    }
+
+    @Override
+    public long getGetCount() {
+        return snapshot().getGetCount();
+    }
+
+    @Override
+    public long getGetMissCount() {
+        return snapshot().getGetMissCount();
+    }
+
+    @Override
+    public double getGetMissRate() {
+        return snapshot().getGetMissRate();
+    }
+
+    @Override
+    public Map<String, Long> getGroupGetCounts() {
+        return snapshot().getGroupGetCounts();
+    }
+
+    @Override
+    public Map<String, Double> getGroupMissRates() {
+        return snapshot().getGroupMissRates();
+    }
+
+    private ConfigMetricsSnapshot snapshot() {
+        return configLoader.getMetrics();
+    }
+
+    private HistogramSnapshot loadLatency() {
+        return snapshot().getLoadLatency();
+    }
+
+    private CacheStats configCacheStats() {
+        return configLoader.getConfigCache().stats();
+    }
+}
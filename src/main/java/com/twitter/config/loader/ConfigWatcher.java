@@ -0,0 +1,380 @@
+package com.twitter.config.loader;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches config files for changes and runs registered callbacks on a background thread. Directories of watched files
+ * are registered with a {@link WatchService}; files whose directory can't be registered (or when the platform has no
+ * WatchService) are polled for last modified time and size changes every pollInterval msec.
+ *
+ * A change is reported only when file's last modified time or size differ from the last seen values, so bursts of
+ * events for one save trigger one callback.
+ *
+ * @author agupta13
+ *
+ */
+public class ConfigWatcher implements Closeable {
+
+    public static final long DEFAULT_POLL_INTERVAL_MSEC = 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigWatcher.class);
+
+    private final long pollInterval;
+
+    private final ConcurrentMap<Path, WatchedFile> files = new ConcurrentHashMap<Path, WatchedFile>();
+
+    /**
+     * directory -> its registration with the WatchService, registered and cancelled under lock of the map
+     */
+    private final ConcurrentMap<Path, WatchKey> directories = new ConcurrentHashMap<Path, WatchKey>();
+
+    private final ExecutorService callbackExecutor;
+
+    private final Thread watcherThread;
+
+    private WatchService watchService;
+
+    private volatile boolean closed;
+
+    public ConfigWatcher() {
+        this(DEFAULT_POLL_INTERVAL_MSEC);
+    }
+
+    public ConfigWatcher(long pollInterval) {
+        if (pollInterval <= 0) {
+            throw new IllegalArgumentException("Invalid poll interval=" + pollInterval);
+        }
+        this.pollInterval = pollInterval;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("WatchService not available, falling back to polling every {} msec", pollInterval);
+        }
+        callbackExecutor = Executors.newSingleThreadExecutor(daemonThreadFactory("config-reloader"));
+        watcherThread = daemonThreadFactory("config-watcher").newThread(new Runnable() {
+            @Override
+            public void run() {
+                watchLoop();
+            }
+        });
+        watcherThread.start();
+    }
+
+    /**
+     * Register callback to run when file changes. Registering again with the same name replaces earlier callback.
+     *
+     * @param file
+     * @param name
+     * @param onChange
+     */
+    public void watch(File file, String name, Runnable onChange) {
+        watch(file, name, onChange, FileStat.of(file));
+    }
+
+    /**
+     * Register callback to run when file changes from baseline. Callback runs right away when file already differs from
+     * baseline, so a change made while the file was being read is not missed.
+     *
+     * @param file
+     * @param name
+     * @param onChange
+     * @param baseline
+     *            state of file when the caller read it
+     */
+    public void watch(File file, String name, Runnable onChange, FileStat baseline) {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        while (true) {
+            WatchedFile watched = files.get(path);
+            if (watched == null) {
+                WatchedFile created = new WatchedFile(path, baseline);
+                watched = files.putIfAbsent(path, created);
+                if (watched == null) {
+                    watched = created;
+                    register(watched);
+                }
+            }
+            boolean changed;
+            synchronized (watched) {
+                if (watched.removed) {
+                    // unwatched concurrently, register again
+                    continue;
+                }
+                watched.callbacks.put(name, onChange);
+                changed = watched.lastModified != baseline.getLastModified() || watched.size != baseline.getSize();
+            }
+            if (changed) {
+                logger.info("Config file={} changed since it was read", path);
+                execute(watched, onChange);
+            }
+            check(watched);
+            return;
+        }
+    }
+
+    /**
+     * Remove callback, file is no longer watched once it has no callbacks and its directory is no longer watched once
+     * it has no watched files
+     *
+     * @param file
+     * @param name
+     */
+    public void unwatch(File file, String name) {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        WatchedFile watched = files.get(path);
+        if (watched == null) {
+            return;
+        }
+        synchronized (watched) {
+            watched.callbacks.remove(name);
+            if (!watched.callbacks.isEmpty()) {
+                return;
+            }
+            watched.removed = true;
+            files.remove(path, watched);
+        }
+        unregister(path.getParent());
+    }
+
+    /**
+     * @return true if file has callbacks registered
+     */
+    public boolean isWatched(File file) {
+        return files.containsKey(file.toPath().toAbsolutePath().normalize());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        watcherThread.interrupt();
+        callbackExecutor.shutdownNow();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close WatchService", e);
+            }
+        }
+    }
+
+    /**
+     * @return true if directory is registered with the WatchService
+     */
+    boolean isWatched(Path directory) {
+        return directories.containsKey(directory.toAbsolutePath().normalize());
+    }
+
+    private void register(WatchedFile watched) {
+        if (watchService == null) {
+            return;
+        }
+        Path directory = watched.path.getParent();
+        synchronized (directories) {
+            try {
+                if (!directories.containsKey(directory)) {
+                    directories.put(directory, directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY));
+                }
+                watched.polled = false;
+            } catch (IOException e) {
+                logger.warn("Can't watch directory={}, polling file={} instead", directory, watched.path);
+            }
+        }
+    }
+
+    /**
+     * Cancel the watch of directory once none of its files are watched, so OS watches don't pile up for directories of
+     * short-lived files. Files are added to files before their directory is registered, a file watched concurrently
+     * keeps the directory registered.
+     */
+    private void unregister(Path directory) {
+        if (watchService == null) {
+            return;
+        }
+        synchronized (directories) {
+            for (Path path : files.keySet()) {
+                if (directory.equals(path.getParent())) {
+                    return;
+                }
+            }
+            WatchKey key = directories.remove(directory);
+            if (key != null) {
+                key.cancel();
+            }
+        }
+    }
+
+    private void watchLoop() {
+        long lastPoll = System.nanoTime();
+        while (!closed) {
+            try {
+                if (watchService == null) {
+                    Thread.sleep(pollInterval);
+                } else {
+                    WatchKey key = watchService.poll(pollInterval, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        processEvents(key);
+                    }
+                }
+                if (System.nanoTime() - lastPoll >= TimeUnit.MILLISECONDS.toNanos(pollInterval)) {
+                    lastPoll = System.nanoTime();
+                    for (WatchedFile watched : files.values()) {
+                        if (watched.polled) {
+                            check(watched);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                if (closed) {
+                    return;
+                }
+                logger.error("Unexpected error while watching config files", e);
+            }
+        }
+    }
+
+    private void processEvents(WatchKey key) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                for (WatchedFile watched : files.values()) {
+                    check(watched);
+                }
+                continue;
+            }
+            WatchedFile watched = files.get(directory.resolve((Path) event.context()));
+            if (watched != null) {
+                check(watched);
+            }
+        }
+        // a key cancelled by unregister is no longer in directories
+        if (!key.reset() && directories.remove(directory, key)) {
+            // directory is gone, poll its files till it comes back
+            for (WatchedFile watched : files.values()) {
+                if (directory.equals(watched.path.getParent())) {
+                    watched.polled = true;
+                }
+            }
+        }
+    }
+
+    private void check(WatchedFile watched) {
+        FileStat current = FileStat.of(watched.path.toFile());
+        synchronized (watched) {
+            if (current.getLastModified() == 0
+                    || (current.getLastModified() == watched.lastModified && current.getSize() == watched.size)) {
+                return;
+            }
+            watched.lastModified = current.getLastModified();
+            watched.size = current.getSize();
+        }
+        logger.info("Config file={} changed", watched.path);
+        for (Runnable callback : watched.callbacks.values()) {
+            execute(watched, callback);
+        }
+    }
+
+    private void execute(final WatchedFile watched, final Runnable callback) {
+        try {
+            callbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        callback.run();
+                    } catch (RuntimeException e) {
+                        logger.error("Failed to handle change of config file=" + watched.path, e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Watcher closed, ignoring change of config file={}", watched.path);
+        }
+    }
+
+    private static ThreadFactory daemonThreadFactory(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Last modified time and size of a file, 0 for a missing file
+     */
+    public static final class FileStat {
+
+        private final long lastModified;
+
+        private final long size;
+
+        private FileStat(long lastModified, long size) {
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        public static FileStat of(File file) {
+            return new FileStat(file.lastModified(), file.length());
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+
+    private static final class WatchedFile {
+
+        private final Path path;
+
+        private final Map<String, Runnable> callbacks = new ConcurrentHashMap<String, Runnable>();
+
+        private volatile boolean polled = true;
+
+        /**
+         * last seen state, guarded by this
+         */
+        private long lastModified;
+
+        private long size;
+
+        /**
+         * set under this when last callback is removed, a concurrent watch registers a new WatchedFile
+         */
+        private boolean removed;
+
+        private WatchedFile(Path path, FileStat baseline) {
+            this.path = path;
+            this.lastModified = baseline.getLastModified();
+            this.size = baseline.getSize();
+        }
+    }
+}
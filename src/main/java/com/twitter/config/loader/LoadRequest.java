@@ -0,0 +1,63 @@
+package com.twitter.config.loader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Config file and overrides to load with {@link ConfigLoader#loadAllAsync(java.util.Collection)}. Requests with same
+ * path and equivalent overrides are equal, overrides are compared normalized like in {@link ConfigCacheKey} so their
+ * order and repeats don't matter.
+ * 
+ * @author agupta13
+ * 
+ */
+public final class LoadRequest {
+
+    private final String configFilePath;
+
+    private final List<String> overrides;
+
+    /**
+     * overrides as compared by equals
+     */
+    private final List<String> normalizedOverrides;
+
+    public LoadRequest(String configFilePath, List<String> overrides) {
+        this.configFilePath = configFilePath;
+        this.overrides = overrides == null ? null : Collections.unmodifiableList(new ArrayList<String>(overrides));
+        this.normalizedOverrides = ConfigCacheKey.normalize(overrides);
+    }
+
+    public String getConfigFilePath() {
+        return configFilePath;
+    }
+
+    public List<String> getOverrides() {
+        return overrides;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof LoadRequest)) {
+            return false;
+        }
+        LoadRequest other = (LoadRequest) obj;
+        return (configFilePath == null ? other.configFilePath == null : configFilePath.equals(other.configFilePath))
+                && normalizedOverrides.equals(other.normalizedOverrides);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (configFilePath == null ? 0 : configFilePath.hashCode())
+                + normalizedOverrides.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "LoadRequest [configFilePath=" + configFilePath + ", overrides=" + overrides + "]";
+    }
+}
@@ -0,0 +1,54 @@
+package com.twitter.config.loader;
+
+import com.twitter.config.models.Config;
+
+/**
+ * Config loaded by {@link ConfigLoader#loadAllAsync(java.util.Collection)} with its load timing
+ * 
+ * @author agupta13
+ * 
+ */
+public final class LoadResult {
+
+    private final LoadRequest request;
+
+    private final Config config;
+
+    private final long loadTime;
+
+    private final boolean cached;
+
+    LoadResult(LoadRequest request, Config config, long loadTime, boolean cached) {
+        this.request = request;
+        this.config = config;
+        this.loadTime = loadTime;
+        this.cached = cached;
+    }
+
+    public LoadRequest getRequest() {
+        return request;
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    /**
+     * @return nanoseconds spent loading on the executor, excluding time queued
+     */
+    public long getLoadTime() {
+        return loadTime;
+    }
+
+    /**
+     * @return true if config came from the cache, loaded before or by a concurrent load, false if this load parsed it
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadResult [request=" + request + ", loadTime=" + loadTime + ", cached=" + cached + "]";
+    }
+}
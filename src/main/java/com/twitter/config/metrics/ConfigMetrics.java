@@ -0,0 +1,114 @@
+package com.twitter.config.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.twitter.config.cache.CacheStats;
+
+/**
+ * Records load latency, parse throughput and config reads. All counters are striped (LongAdder) so threads recording
+ * concurrently don't contend, reading the metrics is done with {@link #snapshot(CacheStats, CacheStats)}.
+ *
+ * Reads are counted per group for at most {@link #MAX_GROUPS} groups, reads of further groups are counted under
+ * {@link #OTHER_GROUPS} so keys requested by callers can't grow the metrics without bound.
+ *
+ * @author agupta13
+ *
+ */
+public class ConfigMetrics {
+
+    public static final int MAX_GROUPS = 1024;
+
+    public static final String OTHER_GROUPS = "(other)";
+
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+
+    private final LatencyHistogram parseLatency = new LatencyHistogram();
+
+    private final LongAdder parsedBytes = new LongAdder();
+
+    private final LongAdder parsedProperties = new LongAdder();
+
+    private final LongAdder getCount = new LongAdder();
+
+    private final LongAdder getMissCount = new LongAdder();
+
+    private final ConcurrentMap<String, GroupCounters> groups = new ConcurrentHashMap<String, GroupCounters>();
+
+    /**
+     * @param nanos
+     *            time taken by a ConfigLoader.load call, cached or not
+     */
+    public void recordLoad(long nanos) {
+        loadLatency.record(nanos);
+    }
+
+    /**
+     * @param bytes
+     *            size of parsed file
+     * @param properties
+     *            property definitions parsed
+     * @param nanos
+     *            time taken to parse
+     */
+    public void recordParse(long bytes, long properties, long nanos) {
+        parseLatency.record(nanos);
+        parsedBytes.add(bytes);
+        parsedProperties.add(properties);
+    }
+
+    /**
+     * @param group
+     *            group of requested key
+     * @param found
+     *            false if key is not present
+     */
+    public void recordGet(String group, boolean found) {
+        GroupCounters counters = groups.get(group);
+        if (counters == null) {
+            counters = groups.size() < MAX_GROUPS ? new GroupCounters() : null;
+            GroupCounters existing = groups.putIfAbsent(counters == null ? OTHER_GROUPS : group,
+                    counters == null ? new GroupCounters() : counters);
+            if (existing != null) {
+                counters = existing;
+            } else if (counters == null) {
+                counters = groups.get(OTHER_GROUPS);
+            }
+        }
+        getCount.increment();
+        counters.gets.increment();
+        if (!found) {
+            getMissCount.increment();
+            counters.misses.increment();
+        }
+    }
+
+    /**
+     * @param configCache
+     *            stats of cache holding configs, may be null
+     * @param sourceCache
+     *            stats of cache holding parsed files, may be null
+     * @return point in time copy of metrics
+     */
+    public ConfigMetricsSnapshot snapshot(CacheStats configCache, CacheStats sourceCache) {
+        Map<String, Long> groupGets = new HashMap<String, Long>();
+        Map<String, Long> groupMisses = new HashMap<String, Long>();
+        for (Map.Entry<String, GroupCounters> group : groups.entrySet()) {
+            groupGets.put(group.getKey(), group.getValue().gets.sum());
+            groupMisses.put(group.getKey(), group.getValue().misses.sum());
+        }
+        return new ConfigMetricsSnapshot(loadLatency.snapshot(), parseLatency.snapshot(), parsedBytes.sum(),
+                parsedProperties.sum(), getCount.sum(), getMissCount.sum(), groupGets, groupMisses, configCache,
+                sourceCache);
+    }
+
+    private static final class GroupCounters {
+
+        private final LongAdder gets = new LongAdder();
+
+        private final LongAdder misses = new LongAdder();
+    }
+}
@@ -0,0 +1,50 @@
+package com.twitter.config.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of ConfigLoader metrics, every attribute is read from a fresh snapshot. Latencies are in microseconds.
+ *
+ * @author agupta13
+ *
+ */
+public interface ConfigMetricsMXBean {
+
+    long getLoadCount();
+
+    double getLoadLatencyMeanMicros();
+
+    long getLoadLatencyP50Micros();
+
+    long getLoadLatencyP99Micros();
+
+    long getLoadLatencyMaxMicros();
+
+    long getConfigCacheHitCount();
+
+    long getConfigCacheMissCount();
+
+    double getConfigCacheHitRate();
+
+    long getConfigCacheEvictionCount();
+
+    long getSourceCacheEvictionCount();
+
+    long getParseCount();
+
+    long getParsedBytes();
+
+    double getParseBytesPerSecond();
+
+    double getParsedPropertiesPerSecond();
+
+    long getGetCount();
+
+    long getGetMissCount();
+
+    double getGetMissRate();
+
+    Map<String, Long> getGroupGetCounts();
+
+    Map<String, Double> getGroupMissRates();
+}
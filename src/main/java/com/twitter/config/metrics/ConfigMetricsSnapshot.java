@@ -0,0 +1,156 @@
+package com.twitter.config.metrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.twitter.config.cache.CacheStats;
+
+/**
+ * Point in time copy of ConfigMetrics and the stats of ConfigLoader caches
+ *
+ * @author agupta13
+ *
+ */
+public class ConfigMetricsSnapshot {
+
+    private final HistogramSnapshot loadLatency;
+
+    private final HistogramSnapshot parseLatency;
+
+    private final long parsedBytes;
+
+    private final long parsedProperties;
+
+    private final long getCount;
+
+    private final long getMissCount;
+
+    private final Map<String, Long> groupGetCounts;
+
+    private final Map<String, Long> groupMissCounts;
+
+    private final CacheStats configCacheStats;
+
+    private final CacheStats sourceCacheStats;
+
+    ConfigMetricsSnapshot(HistogramSnapshot loadLatency, HistogramSnapshot parseLatency, long parsedBytes,
+            long parsedProperties, long getCount, long getMissCount, Map<String, Long> groupGetCounts,
+            Map<String, Long> groupMissCounts, CacheStats configCacheStats, CacheStats sourceCacheStats) {
+        this.loadLatency = loadLatency;
+        this.parseLatency = parseLatency;
+        this.parsedBytes = parsedBytes;
+        this.parsedProperties = parsedProperties;
+        this.getCount = getCount;
+        this.getMissCount = getMissCount;
+        this.groupGetCounts = Collections.unmodifiableMap(groupGetCounts);
+        this.groupMissCounts = Collections.unmodifiableMap(groupMissCounts);
+        this.configCacheStats = configCacheStats;
+        this.sourceCacheStats = sourceCacheStats;
+    }
+
+    /**
+     * @return latency of ConfigLoader.load calls in nanoseconds
+     */
+    public HistogramSnapshot getLoadLatency() {
+        return loadLatency;
+    }
+
+    /**
+     * @return time taken to parse config files in nanoseconds
+     */
+    public HistogramSnapshot getParseLatency() {
+        return parseLatency;
+    }
+
+    public long getParsedBytes() {
+        return parsedBytes;
+    }
+
+    public long getParsedProperties() {
+        return parsedProperties;
+    }
+
+    /**
+     * @return bytes parsed per second of parse time
+     */
+    public double getParseBytesPerSecond() {
+        return perSecond(parsedBytes);
+    }
+
+    /**
+     * @return property definitions parsed per second of parse time
+     */
+    public double getParsedPropertiesPerSecond() {
+        return perSecond(parsedProperties);
+    }
+
+    /**
+     * @return reads of metered configs
+     */
+    public long getGetCount() {
+        return getCount;
+    }
+
+    public long getGetMissCount() {
+        return getMissCount;
+    }
+
+    public double getGetMissRate() {
+        return getCount == 0 ? 0.0 : (double) getMissCount / getCount;
+    }
+
+    /**
+     * @return group -> reads
+     */
+    public Map<String, Long> getGroupGetCounts() {
+        return groupGetCounts;
+    }
+
+    /**
+     * @return group -> reads of missing keys
+     */
+    public Map<String, Long> getGroupMissCounts() {
+        return groupMissCounts;
+    }
+
+    /**
+     * @return group -> share of reads of missing keys
+     */
+    public Map<String, Double> getGroupMissRates() {
+        Map<String, Double> missRates = new HashMap<String, Double>();
+        for (Map.Entry<String, Long> group : groupGetCounts.entrySet()) {
+            Long misses = groupMissCounts.get(group.getKey());
+            missRates.put(group.getKey(), group.getValue() == 0 || misses == null ? 0.0 : (double) misses
+                    / group.getValue());
+        }
+        return missRates;
+    }
+
+    /**
+     * @return stats of cache holding configs, null if not available
+     */
+    public CacheStats getConfigCacheStats() {
+        return configCacheStats;
+    }
+
+    /**
+     * @return stats of cache holding parsed files, null if not available
+     */
+    public CacheStats getSourceCacheStats() {
+        return sourceCacheStats;
+    }
+
+    private double perSecond(long value) {
+        double seconds = parseLatency.getMean() * parseLatency.getCount() / 1e9;
+        return seconds == 0 ? 0.0 : value / seconds;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigMetricsSnapshot [loadLatency=" + loadLatency + ", parseLatency=" + parseLatency
+                + ", parsedBytes=" + parsedBytes + ", parsedProperties=" + parsedProperties + ", getCount=" + getCount
+                + ", getMissCount=" + getMissCount + ", configCacheStats=" + configCacheStats
+                + ", sourceCacheStats=" + sourceCacheStats + "]";
+    }
+}
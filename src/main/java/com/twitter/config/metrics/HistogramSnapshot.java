@@ -0,0 +1,70 @@
+package com.twitter.config.metrics;
+
+/**
+ * Point in time copy of a LatencyHistogram
+ *
+ * @author agupta13
+ *
+ */
+public class HistogramSnapshot {
+
+    private final long[] buckets;
+
+    private final long count;
+
+    private final long total;
+
+    private final long max;
+
+    HistogramSnapshot(long[] buckets, long count, long total, long max) {
+        this.buckets = buckets;
+        this.count = count;
+        this.total = total;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return mean in nanoseconds, 0 if nothing was recorded
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile
+     *            0 to 100
+     * @return value in nanoseconds at or below which percentile of values fall, within histogram precision
+     */
+    public long getPercentile(double percentile) {
+        long recorded = 0;
+        for (long bucket : buckets) {
+            recorded += bucket;
+        }
+        if (recorded == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * recorded));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= target) {
+                return Math.min(LatencyHistogram.highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "HistogramSnapshot [count=" + count + ", mean=" + getMean() + ", p50=" + getPercentile(50) + ", p99="
+                + getPercentile(99) + ", max=" + max + "]";
+    }
+}
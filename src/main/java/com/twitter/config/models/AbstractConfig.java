@@ -0,0 +1,202 @@
+package com.twitter.config.models;
+
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Base Config implementing typed and ConfigKey accessors on top of a single property lookup. Typed accessors read the
+ * unboxed value of the property, return defaultValue when property is missing or of another type and never throw.
+ *
+ * @author agupta13
+ *
+ */
+@SuppressWarnings("rawtypes")
+public abstract class AbstractConfig implements Config {
+
+    private static final char PROPERTY_KEY_DELIMITER = '.';
+
+    /**
+     * @param group
+     * @param key
+     * @return property or null if not found
+     */
+    protected abstract Property lookup(String group, String key);
+
+    /**
+     * @return snapshot of current content, ConfigKey and ConfigKeySet reads are resolved in its slots
+     */
+    protected abstract ConfigSnapshot current();
+
+    @Override
+    public Object get(ConfigKey key) {
+        Property prop = resolve(key);
+        return prop == null ? null : prop.getValue();
+    }
+
+    @Override
+    public Object[] getAll(ConfigKeySet keys, Object[] values) {
+        Property[] properties = resolve(keys);
+        if (values == null || values.length < properties.length) {
+            values = new Object[properties.length];
+        }
+        for (int i = 0; i < properties.length; i++) {
+            values[i] = properties[i] == null ? null : properties[i].getValue();
+        }
+        return values;
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        return longValue(lookup(key), defaultValue);
+    }
+
+    @Override
+    public long getLong(ConfigKey key, long defaultValue) {
+        return longValue(resolve(key), defaultValue);
+    }
+
+    @Override
+    public double getDouble(String key, double defaultValue) {
+        return doubleValue(lookup(key), defaultValue);
+    }
+
+    @Override
+    public double getDouble(ConfigKey key, double defaultValue) {
+        return doubleValue(resolve(key), defaultValue);
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return booleanValue(lookup(key), defaultValue);
+    }
+
+    @Override
+    public boolean getBoolean(ConfigKey key, boolean defaultValue) {
+        return booleanValue(resolve(key), defaultValue);
+    }
+
+    @Override
+    public String getString(String key, String defaultValue) {
+        return stringValue(lookup(key), defaultValue);
+    }
+
+    @Override
+    public String getString(ConfigKey key, String defaultValue) {
+        return stringValue(resolve(key), defaultValue);
+    }
+
+    @Override
+    public List<String> getList(String key, List<String> defaultValue) {
+        return listValue(lookup(key), defaultValue);
+    }
+
+    @Override
+    public List<String> getList(ConfigKey key, List<String> defaultValue) {
+        return listValue(resolve(key), defaultValue);
+    }
+
+    /**
+     * lookup "group.key" property without regex split, null for malformed key
+     */
+    protected Property lookup(String key) {
+        int length = keyLength(key);
+        int delimiter = keyDelimiter(key, length);
+        if (delimiter == -1) {
+            return null;
+        }
+        return lookup(key.substring(0, delimiter), key.substring(delimiter + 1, length));
+    }
+
+    /**
+     * Length of "group.key" in key without trailing delimiters, ignored like key.split("\\.") does. Shared by all
+     * String key lookups so a key resolves the same way in every config mode.
+     *
+     * @param key
+     * @return length or -1 for blank key
+     */
+    protected static int keyLength(String key) {
+        if (StringUtils.isBlank(key)) {
+            return -1;
+        }
+        int length = key.length();
+        while (length > 0 && key.charAt(length - 1) == PROPERTY_KEY_DELIMITER) {
+            length--;
+        }
+        return length;
+    }
+
+    /**
+     * @param key
+     * @param length
+     *            from {@link #keyLength(String)}
+     * @return position of the delimiter between non empty group and key, -1 unless key.split("\\.") has exactly
+     *         those two parts
+     */
+    protected static int keyDelimiter(String key, int length) {
+        if (length <= 0) {
+            return -1;
+        }
+        int delimiter = key.indexOf(PROPERTY_KEY_DELIMITER);
+        if (delimiter <= 0 || delimiter >= length - 1) {
+            return -1;
+        }
+        int next = key.indexOf(PROPERTY_KEY_DELIMITER, delimiter + 1);
+        return next != -1 && next < length ? -1 : delimiter;
+    }
+
+    /**
+     * lookup with hash of "group.key" known, for configs able to use it
+     */
+    Property lookup(String group, String key, int hash) {
+        return lookup(group, key);
+    }
+
+    /**
+     * resolve precompiled key set in slots of current snapshot, lookups happen only on first read of set per snapshot
+     *
+     * @return properties in key order, must not be modified
+     */
+    protected Property[] resolve(ConfigKeySet keys) {
+        return current().getKeySlots().get(keys);
+    }
+
+    /**
+     * resolve precompiled key in slots of current snapshot, lookup happens only on first read of key per snapshot
+     */
+    protected Property resolve(ConfigKey key) {
+        return key == null ? null : current().getKeySlots().get(key);
+    }
+
+    private static Property unwrap(Property prop) {
+        return prop instanceof LazyProperty ? ((LazyProperty) prop).resolve() : prop;
+    }
+
+    static long longValue(Property prop, long defaultValue) {
+        prop = unwrap(prop);
+        return prop instanceof LongProperty ? ((LongProperty) prop).longValue() : defaultValue;
+    }
+
+    static double doubleValue(Property prop, double defaultValue) {
+        prop = unwrap(prop);
+        if (prop instanceof DoubleProperty) {
+            return ((DoubleProperty) prop).doubleValue();
+        }
+        return prop instanceof LongProperty ? ((LongProperty) prop).longValue() : defaultValue;
+    }
+
+    static boolean booleanValue(Property prop, boolean defaultValue) {
+        prop = unwrap(prop);
+        return prop instanceof BooleanProperty ? ((BooleanProperty) prop).booleanValue() : defaultValue;
+    }
+
+    static String stringValue(Property prop, String defaultValue) {
+        prop = unwrap(prop);
+        return prop instanceof StringProperty ? ((StringProperty) prop).getValue() : defaultValue;
+    }
+
+    static List<String> listValue(Property prop, List<String> defaultValue) {
+        prop = unwrap(prop);
+        return prop instanceof ListProperty ? ((ListProperty) prop).getValue() : defaultValue;
+    }
+}
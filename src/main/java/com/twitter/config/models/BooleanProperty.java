@@ -1,21 +1,28 @@
 package com.twitter.config.models;
 
 public class BooleanProperty implements Property<Boolean> {
-    private Boolean value;
+    private final boolean value;
 
-    private String key;
+    private final String key;
 
     @Override
     public Boolean getValue() {
         return value;
     }
 
+    /**
+     * @return unboxed value, use on hot path to avoid boxing
+     */
+    public boolean booleanValue() {
+        return value;
+    }
+
     @Override
     public String getKey() {
         return key;
     }
 
-    public BooleanProperty(String key, Boolean value) {
+    public BooleanProperty(String key, boolean value) {
         this.key = key;
         this.value = value;
     }
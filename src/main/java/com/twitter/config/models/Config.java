@@ -4,9 +4,66 @@ import java.util.List;
 
 import com.twitter.config.exception.ConfigLoaderException;
 
+/**
+ * Typed getters return the unboxed property value without allocation, defaultValue is returned when property is not
+ * found or is of another type (long values are widened for getDouble).
+ */
 public interface Config {
 
     Object get(String key);
 
+    Object get(ConfigKey key);
+
+    long getLong(String key, long defaultValue);
+
+    long getLong(ConfigKey key, long defaultValue);
+
+    double getDouble(String key, double defaultValue);
+
+    double getDouble(ConfigKey key, double defaultValue);
+
+    boolean getBoolean(String key, boolean defaultValue);
+
+    boolean getBoolean(ConfigKey key, boolean defaultValue);
+
+    String getString(String key, String defaultValue);
+
+    String getString(ConfigKey key, String defaultValue);
+
+    List<String> getList(String key, List<String> defaultValue);
+
+    List<String> getList(ConfigKey key, List<String> defaultValue);
+
+    /**
+     * Read all keys of the set, values are copied into values in key set order (null for keys not found)
+     * 
+     * @param keys
+     * @param values
+     *            reused result array, a new one is allocated when null or shorter than keys
+     * @return values
+     */
+    Object[] getAll(ConfigKeySet keys, Object[] values);
+
+    /**
+     * @param name
+     * @return view of group, empty if group is not defined
+     */
+    ConfigGroup group(String name);
+
+    /**
+     * @param prefix
+     * @return "group.key" names starting with prefix in sorted order, e.g. "http." for all keys of group http
+     */
+    List<String> keysWithPrefix(String prefix);
+
+    /**
+     * @param fromKey
+     *            inclusive, null for no lower bound
+     * @param toKey
+     *            exclusive, null for no upper bound
+     * @return "group.key" names in range in sorted order
+     */
+    List<String> keysInRange(String fromKey, String toKey);
+
     void load(String configFilePath, List<String> overrides) throws ConfigLoaderException;
 }
@@ -0,0 +1,71 @@
+package com.twitter.config.models;
+
+/**
+ * Change of one property between two generations of a config
+ *
+ * @author agupta13
+ *
+ */
+public final class ConfigChange {
+
+    public enum Type {
+        ADDED, CHANGED, REMOVED
+    }
+
+    private final Type type;
+
+    private final String group;
+
+    private final String key;
+
+    private final Object oldValue;
+
+    private final Object newValue;
+
+    public ConfigChange(Type type, String group, String key, Object oldValue, Object newValue) {
+        this.type = type;
+        this.group = group;
+        this.key = key;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return group.key
+     */
+    public String getName() {
+        return group + "." + key;
+    }
+
+    /**
+     * @return value before change, null if added
+     */
+    public Object getOldValue() {
+        return oldValue;
+    }
+
+    /**
+     * @return value after change, null if removed
+     */
+    public Object getNewValue() {
+        return newValue;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigChange [type=" + type + ", name=" + getName() + ", oldValue=" + oldValue + ", newValue="
+                + newValue + "]";
+    }
+}
@@ -0,0 +1,23 @@
+package com.twitter.config.models;
+
+import java.util.List;
+
+/**
+ * Receives property changes of a reloaded config, see {@link ConfigListeners}
+ *
+ * @author agupta13
+ *
+ */
+public interface ConfigChangeListener {
+
+    /**
+     * Called on the notifier thread once per reload with all matching changes, never with an empty list. Listeners
+     * should not block, later reloads are delivered after this call returns.
+     *
+     * @param changes
+     *            changed, added and removed properties
+     * @param config
+     *            config after the reload
+     */
+    void onChange(List<ConfigChange> changes, ConfigSnapshot config);
+}
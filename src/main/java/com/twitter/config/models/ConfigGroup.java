@@ -0,0 +1,97 @@
+package com.twitter.config.models;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only view of one group of a config snapshot, keys are known up front and reads take the group without building
+ * "group.key" names. Views of ConfigImpl and ConfigHandle read the snapshot current when the view was taken.
+ *
+ * @author agupta13
+ *
+ */
+@SuppressWarnings("rawtypes")
+public final class ConfigGroup {
+
+    private final AbstractConfig config;
+
+    private final String name;
+
+    private final List<String> keys;
+
+    ConfigGroup(AbstractConfig config, String name, List<String> keys) {
+        this.config = config;
+        this.name = name;
+        this.keys = keys;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return keys of group in sorted order, without group name
+     */
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    public boolean isEmpty() {
+        return keys.isEmpty();
+    }
+
+    /**
+     * @param key
+     *            key without group name
+     * @return value or null if not found
+     */
+    public Object get(String key) {
+        Property prop = lookup(key);
+        return prop == null ? null : prop.getValue();
+    }
+
+    public long getLong(String key, long defaultValue) {
+        return AbstractConfig.longValue(lookup(key), defaultValue);
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        return AbstractConfig.doubleValue(lookup(key), defaultValue);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return AbstractConfig.booleanValue(lookup(key), defaultValue);
+    }
+
+    public String getString(String key, String defaultValue) {
+        return AbstractConfig.stringValue(lookup(key), defaultValue);
+    }
+
+    public List<String> getList(String key, List<String> defaultValue) {
+        return AbstractConfig.listValue(lookup(key), defaultValue);
+    }
+
+    /**
+     * @return new key -> value map of group in key order
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        for (String key : keys) {
+            values.put(key, get(key));
+        }
+        return values;
+    }
+
+    private Property lookup(String key) {
+        return key == null ? null : config.lookup(name, key);
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigGroup [name=" + name + ", keys=" + keys + "]";
+    }
+}
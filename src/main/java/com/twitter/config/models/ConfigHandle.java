@@ -0,0 +1,295 @@
+package com.twitter.config.models;
+
+import java.util.List;
+
+import com.twitter.config.exception.ConfigLoaderException;
+
+/**
+ * Reference to the current {@link ConfigSnapshot} of a config, published RCU style: reloads build a new snapshot off
+ * to the side and swap it in atomically, readers take no locks and never see a partially loaded config. Publishers
+ * are serialized, so listeners get changes in the order snapshots were published.
+ *
+ * Config methods of the handle read the current snapshot on every call, so two calls may see different generations.
+ * To read many properties consistently pin a generation for the whole request:
+ *
+ * <pre>
+ * ConfigSnapshot config = handle.get();
+ * long limit = config.getLong(&quot;common.basic_size_limit&quot;, 0);
+ * String path = config.getString(&quot;ftp.path&quot;, null);
+ * </pre>
+ *
+ * The handle holds a reference to its current snapshot (see {@link ConfigSnapshot#retain()}) and drops it when a new
+ * one is published, so off-heap memory of replaced snapshots is freed right away. Pinned off-heap snapshots must be
+ * retained and released by the caller to outlive the next publication.
+ *
+ * @author agupta13
+ *
+ */
+public class ConfigHandle implements Config {
+
+    private volatile ConfigSnapshot current;
+
+    private final ConfigOptions options;
+
+    private final ConfigListeners listeners = new ConfigListeners();
+
+    public ConfigHandle(ConfigSnapshot snapshot) {
+        this(snapshot, new ConfigOptions());
+    }
+
+    /**
+     * @param snapshot
+     *            initial snapshot
+     * @param options
+     *            used by load
+     */
+    public ConfigHandle(ConfigSnapshot snapshot, ConfigOptions options) {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Config snapshot can't be null");
+        }
+        if (!snapshot.retain()) {
+            throw new IllegalStateException("Config snapshot is released");
+        }
+        this.current = snapshot;
+        this.options = options;
+    }
+
+    /**
+     * @return current snapshot, keep it to read a consistent generation
+     */
+    public ConfigSnapshot get() {
+        return current;
+    }
+
+    /**
+     * Publish snapshot unconditionally
+     *
+     * @param snapshot
+     * @return replaced snapshot, the reference of the handle to it is dropped
+     */
+    public synchronized ConfigSnapshot swap(ConfigSnapshot snapshot) {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Config snapshot can't be null");
+        }
+        if (!snapshot.retain()) {
+            throw new IllegalStateException("Config snapshot is released");
+        }
+        ConfigSnapshot previous = current;
+        current = snapshot;
+        // queued under the lock, so batches are diffs between consecutive snapshots
+        listeners.publish(previous, snapshot);
+        previous.release();
+        return previous;
+    }
+
+    /**
+     * Publish snapshot unless a newer generation is already published, concurrent reloads can't go back in time
+     *
+     * @param snapshot
+     * @return true if snapshot was published, false if a newer one is published or snapshot was released
+     */
+    public synchronized boolean update(ConfigSnapshot snapshot) {
+        ConfigSnapshot previous = current;
+        if (previous.getGeneration() >= snapshot.getGeneration() || !snapshot.retain()) {
+            return false;
+        }
+        current = snapshot;
+        listeners.publish(previous, snapshot);
+        previous.release();
+        return true;
+    }
+
+    /**
+     * @return listeners notified with key level changes when a new snapshot is published
+     */
+    public ConfigListeners getListeners() {
+        return listeners;
+    }
+
+    /**
+     * Parse config file into a new snapshot and publish it, on failure current snapshot stays
+     */
+    @Override
+    public void load(String configFilePath, List<String> overrides) throws ConfigLoaderException {
+        update(ConfigLayers.load(configFilePath, options).newConfig(overrides));
+    }
+
+    /**
+     * A read of the current snapshot can race with a publication releasing it, it is then retried on the snapshot that
+     * replaced it
+     *
+     * @return snapshot that replaced released one, to read again
+     * @throws IllegalStateException
+     *             if released snapshot is still current
+     */
+    private ConfigSnapshot replacing(ConfigSnapshot released, IllegalStateException e) {
+        ConfigSnapshot snapshot = current;
+        if (snapshot == released) {
+            throw e;
+        }
+        return snapshot;
+    }
+
+    @Override
+    public Object get(String key) {
+        ConfigSnapshot snapshot = current;
+        try {
+            return snapshot.get(key);
+        } catch (IllegalStateException e) {
+            return replacing(snapshot, e).get(key);
+        }
+    }
+
+    @Override
+    public Object get(ConfigKey key) {
+        ConfigSnapshot snapshot = current;
+        try {
+            return snapshot.get(key);
+        } catch (IllegalStateException e) {
+            return replacing(snapshot, e).get(key);
+        }
+    }
+
+    @Override
+    public Object[] getAll(ConfigKeySet keys, Object[] values) {
+        ConfigSnapshot snapshot = current;
+        try {
+            return snapshot.getAll(keys, values);
+        } catch (IllegalStateException e) {
+            return replacing(snapshot, e).getAll(keys, values);
+        }
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        ConfigSnapshot snapshot = current;
+        try {
+            return snapshot.getLong(key, defaultValue);
+        } catch (IllegalStateException e) {
+            return replacing(snapshot, e).getLong(key, defaultValue);
+        }
+    }
+
+    @Override
+    public long getLong(ConfigKey key, long defaultValue) {
+        ConfigSnapshot snapshot = current;
+        try {
+            return snapshot.getLong(key, defaultValue);
+        } catch (IllegalStateException e) {
+            return replacing(snapshot, e).getLong(key, defaultValue);
+        }
+    }
+
+    @Override
+    public double getDouble(String key, double defaultValue) {
+        ConfigSnapshot snapshot = current;
+        try {
+            return snapshot.getDouble(key, defaultValue);
+        } catch (IllegalStateException e) {
+            return replacing(snapshot, e).getDouble(key, defaultValue);
+        }
+    }
+
+    @Override
+    public double getDouble(ConfigKey key, double defaultValue) {
+        ConfigSnapshot snapshot = current;
+        try {
+            return snapshot.getDouble(key, defaultValue);
+        } catch (IllegalStateException e) {
+            return replacing(snapshot, e).getDouble(key, defaultValue);
+        }
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        ConfigSnapshot snapshot = current;
+        try {
+            return snapshot.getBoolean(key, defaultValue);
+        } catch (IllegalStateException e) {
+            return replacing(snapshot, e).getBoolean(key, defaultValue);
+        }
+    }
+
+    @Override
+    public boolean getBoolean(ConfigKey key, boolean defaultValue) {
+        ConfigSnapshot snapshot = current;
+        try {
+            return snapshot.getBoolean(key, defaultValue);
+        } catch (IllegalStateException e) {
+            return replacing(snapshot, e).getBoolean(key, defaultValue);
+        }
+    }
+
+    @Override
+    public String getString(String key, String defaultValue) {
+        ConfigSnapshot snapshot = current;
+        try {
+            return snapshot.getString(key, defaultValue);
+        } catch (IllegalStateException e) {
+            return replacing(snapshot, e).getString(key, defaultValue);
+        }
+    }
+
+    @Override
+    public String getString(ConfigKey key, String defaultValue) {
+        ConfigSnapshot snapshot = current;
+        try {
+            return snapshot.getString(key, defaultValue);
+        } catch (IllegalStateException e) {
+            return replacing(snapshot, e).getString(key, defaultValue);
+        }
+    }
+
+    @Override
+    public List<String> getList(String key, List<String> defaultValue) {
+        ConfigSnapshot snapshot = current;
+        try {
+            return snapshot.getList(key, defaultValue);
+        } catch (IllegalStateException e) {
+            return replacing(snapshot, e).getList(key, defaultValue);
+        }
+    }
+
+    @Override
+    public List<String> getList(ConfigKey key, List<String> defaultValue) {
+        ConfigSnapshot snapshot = current;
+        try {
+            return snapshot.getList(key, defaultValue);
+        } catch (IllegalStateException e) {
+            return replacing(snapshot, e).getList(key, defaultValue);
+        }
+    }
+
+    /**
+     * view of the current snapshot, not updated by later reloads
+     */
+    @Override
+    public ConfigGroup group(String name) {
+        ConfigSnapshot snapshot = current;
+        try {
+            return snapshot.group(name);
+        } catch (IllegalStateException e) {
+            return replacing(snapshot, e).group(name);
+        }
+    }
+
+    @Override
+    public List<String> keysWithPrefix(String prefix) {
+        ConfigSnapshot snapshot = current;
+        try {
+            return snapshot.keysWithPrefix(prefix);
+        } catch (IllegalStateException e) {
+            return replacing(snapshot, e).keysWithPrefix(prefix);
+        }
+    }
+
+    @Override
+    public List<String> keysInRange(String fromKey, String toKey) {
+        ConfigSnapshot snapshot = current;
+        try {
+            return snapshot.keysInRange(fromKey, toKey);
+        } catch (IllegalStateException e) {
+            return replacing(snapshot, e).keysInRange(fromKey, toKey);
+        }
+    }
+}
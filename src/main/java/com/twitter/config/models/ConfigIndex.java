@@ -0,0 +1,182 @@
+package com.twitter.config.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorted index of the "group.key" names of a config, built once per snapshot (the base layer index is shared by all
+ * snapshots of a file). Prefix and range queries are two binary searches and return views of the sorted names, a
+ * group is the range of names prefixed by "group.".
+ *
+ * @author agupta13
+ *
+ */
+final class ConfigIndex {
+
+    static final ConfigIndex EMPTY = new ConfigIndex(new String[0], new String[0], new String[0]);
+
+    private static final char PROPERTY_KEY_DELIMITER = '.';
+
+    /**
+     * sorted full names, groups and keys at the same positions
+     */
+    private final String[] names;
+
+    private final String[] groups;
+
+    private final String[] keys;
+
+    private final List<String> nameList;
+
+    private ConfigIndex(String[] names, String[] groups, String[] keys) {
+        this.names = names;
+        this.groups = groups;
+        this.keys = keys;
+        this.nameList = Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * @return index of names of table
+     */
+    static ConfigIndex of(PropertyTable table) {
+        List<String> groupNames = new ArrayList<String>(table.size());
+        List<String> keyNames = new ArrayList<String>(table.size());
+        table.collectNames(groupNames, keyNames, null);
+        return of(groupNames, keyNames);
+    }
+
+    /**
+     * @param table
+     *            properties indexed by this index
+     * @param overlay
+     *            properties added on top of table
+     * @return this index if overlay only replaces properties of table, otherwise index of names of both
+     */
+    ConfigIndex withOverlay(PropertyTable table, PropertyTable overlay) {
+        List<String> groupNames = new ArrayList<String>();
+        List<String> keyNames = new ArrayList<String>();
+        overlay.collectNames(groupNames, keyNames, table);
+        if (groupNames.isEmpty()) {
+            return this;
+        }
+        table.collectNames(groupNames, keyNames, null);
+        return of(groupNames, keyNames);
+    }
+
+    /**
+     * @param groupNames
+     *            group of each name, at the same positions as keyNames
+     */
+    static ConfigIndex of(List<String> groupNames, List<String> keyNames) {
+        int size = groupNames.size();
+        final String[] unsorted = new String[size];
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            unsorted[i] = groupNames.get(i) + PROPERTY_KEY_DELIMITER + keyNames.get(i);
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer left, Integer right) {
+                return unsorted[left].compareTo(unsorted[right]);
+            }
+        });
+        String[] names = new String[size];
+        String[] groups = new String[size];
+        String[] keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = unsorted[order[i]];
+            groups[i] = groupNames.get(order[i]);
+            keys[i] = keyNames.get(order[i]);
+        }
+        return new ConfigIndex(names, groups, keys);
+    }
+
+    /**
+     * @return all names in sorted order
+     */
+    List<String> names() {
+        return nameList;
+    }
+
+    /**
+     * @return sorted names starting with prefix
+     */
+    List<String> withPrefix(String prefix) {
+        int from = lowerBound(prefix);
+        return nameList.subList(from, prefixEnd(prefix, from));
+    }
+
+    /**
+     * @return sorted names from fromName inclusive to toName exclusive, either may be null for an open range
+     */
+    List<String> range(String fromName, String toName) {
+        int from = fromName == null ? 0 : lowerBound(fromName);
+        int to = toName == null ? names.length : lowerBound(toName);
+        return nameList.subList(from, Math.max(from, to));
+    }
+
+    /**
+     * @return view of group, empty if config has no such group
+     */
+    ConfigGroup group(AbstractConfig config, String name) {
+        String prefix = name + PROPERTY_KEY_DELIMITER;
+        int from = lowerBound(prefix);
+        int to = prefixEnd(prefix, from);
+        List<String> groupKeys = Arrays.asList(keys).subList(from, to);
+        for (int i = from; i < to; i++) {
+            if (!groups[i].equals(name)) {
+                // keys of groups named "name.something" sort in between
+                groupKeys = new ArrayList<String>();
+                for (int j = from; j < to; j++) {
+                    if (groups[j].equals(name)) {
+                        groupKeys.add(keys[j]);
+                    }
+                }
+                break;
+            }
+        }
+        return new ConfigGroup(config, name, Collections.unmodifiableList(groupKeys));
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    /**
+     * @return first position with name >= value
+     */
+    private int lowerBound(String value) {
+        int low = 0;
+        int high = names.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names[mid].compareTo(value) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return first position from lowerBound(prefix) on with a name not starting with prefix
+     */
+    private int prefixEnd(String prefix, int from) {
+        int low = from;
+        int high = names.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names[mid].startsWith(prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
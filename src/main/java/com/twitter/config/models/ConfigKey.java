@@ -0,0 +1,122 @@
+package com.twitter.config.models;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Precompiled property key i.e. "group.key" split once into group name and property key. Reading with
+ * {@link Config#get(ConfigKey)} resolves the key against a loaded config on first use and remembers the resolved
+ * property in a slot of that config, later reads of the same config need no split, hashing or allocation. Every
+ * config keeps its own slots, so a key read from several configs alternately is resolved once per config.
+ * 
+ * Slots are numbered by key name: keys of the same name share one slot id, ids are never reused.
+ * 
+ * ConfigKey is immutable and safe to share between threads, keep commonly read keys in static final fields.
+ * 
+ * @author agupta13
+ * 
+ */
+public final class ConfigKey {
+
+    private static final char PROPERTY_KEY_DELIMITER = '.';
+
+    /**
+     * name -> slot id
+     */
+    private static final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * names of ConfigKeySet keys -> slot id, key sets and keys share id space
+     */
+    private static final ConcurrentMap<List<String>, Integer> setIds = new ConcurrentHashMap<List<String>, Integer>();
+
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    private final String name;
+
+    private final String group;
+
+    private final String key;
+
+    /**
+     * slot of this key in KeySlots of every config
+     */
+    final int id;
+
+    /**
+     * String hash of name
+     */
+    final int hash;
+
+    private ConfigKey(String name, String group, String key) {
+        this.name = name;
+        this.group = group;
+        this.key = key;
+        this.id = id(name);
+        this.hash = name.hashCode();
+    }
+
+    /**
+     * Compile "group.key" property name into ConfigKey
+     * 
+     * @param name
+     * @return
+     * @throws IllegalArgumentException
+     *             if name is not of form group.key
+     */
+    public static ConfigKey of(String name) {
+        if (StringUtils.isBlank(name)) {
+            throw new IllegalArgumentException("Invalid empty or null property name");
+        }
+        int delimiter = name.indexOf(PROPERTY_KEY_DELIMITER);
+        if (delimiter <= 0 || delimiter == name.length() - 1
+                || name.indexOf(PROPERTY_KEY_DELIMITER, delimiter + 1) != -1) {
+            throw new IllegalArgumentException("Invalid property name=" + name + ", expected group.key");
+        }
+        return new ConfigKey(name, name.substring(0, delimiter), name.substring(delimiter + 1));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static int id(String name) {
+        return id(ids, name);
+    }
+
+    /**
+     * @return slot id of key set of names, sets of the same names in the same order share one id
+     */
+    static int setId(List<String> names) {
+        return id(setIds, names);
+    }
+
+    private static <T> int id(ConcurrentMap<T, Integer> ids, T name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            Integer created = nextId.getAndIncrement();
+            id = ids.putIfAbsent(name, created);
+            if (id == null) {
+                id = created;
+            }
+        }
+        return id;
+    }
+}
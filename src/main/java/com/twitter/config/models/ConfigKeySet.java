@@ -0,0 +1,90 @@
+package com.twitter.config.models;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Precompiled set of property keys read together, e.g. every key a request handler needs. Names are split and hashed
+ * once, lookups are ordered by group. Reading with {@link Config#getAll(ConfigKeySet, Object[])} resolves all keys on
+ * first use per config and remembers the resolved properties in a slot of that config, like single ConfigKeys. Later
+ * reads copy values into the caller's array without splitting, hashing or allocation, also when the set is read from
+ * several configs alternately.
+ *
+ * Like ConfigKey it is immutable and safe to share between threads.
+ *
+ * @author agupta13
+ *
+ */
+public final class ConfigKeySet {
+
+    private final ConfigKey[] keys;
+
+    /**
+     * key positions sorted by group
+     */
+    final int[] lookupOrder;
+
+    /**
+     * slot of resolved properties of the set in KeySlots of every config
+     */
+    final int id;
+
+    private ConfigKeySet(ConfigKey[] keys) {
+        this.keys = keys;
+        Integer[] order = new Integer[keys.length];
+        String[] names = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = i;
+            names[i] = keys[i].getName();
+        }
+        this.id = ConfigKey.setId(Arrays.asList(names));
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer left, Integer right) {
+                return ConfigKeySet.this.keys[left].getGroup().compareTo(ConfigKeySet.this.keys[right].getGroup());
+            }
+        });
+        this.lookupOrder = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            lookupOrder[i] = order[i];
+        }
+    }
+
+    /**
+     * Compile "group.key" property names, values are read in the same order
+     *
+     * @param names
+     * @return
+     * @throws IllegalArgumentException
+     *             if a name is not of form group.key
+     */
+    public static ConfigKeySet of(String... names) {
+        ConfigKey[] keys = new ConfigKey[names.length];
+        for (int i = 0; i < names.length; i++) {
+            keys[i] = ConfigKey.of(names[i]);
+        }
+        return new ConfigKeySet(keys);
+    }
+
+    public static ConfigKeySet of(List<String> names) {
+        return of(names.toArray(new String[names.size()]));
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @param index
+     * @return key read into values[index]
+     */
+    public ConfigKey get(int index) {
+        return keys[index];
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(keys);
+    }
+}
@@ -0,0 +1,468 @@
+package com.twitter.config.models;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.twitter.config.exception.ConfigLoaderError;
+import com.twitter.config.exception.ConfigLoaderException;
+import com.twitter.config.factory.PropertyFactory;
+import com.twitter.config.metrics.ConfigMetrics;
+import com.twitter.config.parser.ConfigParser;
+import com.twitter.config.parser.MappedConfigParser;
+import com.twitter.config.parser.ParallelConfigParser;
+import com.twitter.config.utils.StringPool;
+import com.twitter.config.utils.StringPoolStats;
+
+/**
+ * Config file parsed once, independent of overrides: a base layer with untagged properties and one layer per override
+ * tag (path&lt;production&gt;, path&lt;staging&gt;, ...). A Config for any override combination is a view over the
+ * shared base layer plus an overlay built from the requested override layers in O(overridden keys).
+ *
+ * Like a sequential read of the file, the property defined last in the file wins: tagged properties followed by an
+ * untagged definition of the same key are dropped from their layer, and between override layers the later definition
+ * wins.
+ *
+ * Layers are immutable once parsed and safe to share between threads.
+ *
+ * @author agupta13
+ *
+ */
+@SuppressWarnings("rawtypes")
+public class ConfigLayers implements ConfigSource {
+
+    private static final char OVERRIDE_START_TAG = '<';
+
+    private static final char OVERRIDE_END_TAG = '>';
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigLayers.class);
+
+    /**
+     * untagged properties by group.key
+     */
+    private final PropertyTable base;
+
+    /**
+     * override tag -> group -> key -> property
+     */
+    private final Map<String, Map<String, Map<String, OverrideEntry>>> overrideLayers;
+
+    /**
+     * string dedup statistics of the load, null when strings were not pooled
+     */
+    private final StringPoolStats stringStats;
+
+    /**
+     * sorted names of base layer, built on first group or key query of any view
+     */
+    private volatile ConfigIndex index;
+
+    /**
+     * base layer as maps, built on first getProperties of any view. Views share its group maps.
+     */
+    private volatile Map<String, Map<String, Property>> baseProperties;
+
+    public ConfigLayers(Map<String, Map<String, Property>> base) {
+        this(base, Collections.<String, Map<String, Map<String, OverrideEntry>>> emptyMap(), null);
+    }
+
+    private ConfigLayers(Map<String, Map<String, Property>> base,
+            Map<String, Map<String, Map<String, OverrideEntry>>> overrideLayers, StringPoolStats stringStats) {
+        this.base = new PropertyTable(base);
+        this.overrideLayers = overrideLayers;
+        this.stringStats = stringStats;
+    }
+
+    /**
+     * Parse config file into base and override layers
+     *
+     * @param configFilePath
+     * @param options
+     * @return
+     * @throws ConfigLoaderException
+     */
+    public static ConfigLayers load(String configFilePath, ConfigOptions options) throws ConfigLoaderException {
+        if (StringUtils.isBlank(configFilePath)) {
+            logger.error("Invalid empty or null config file path");
+            throw new ConfigLoaderException(ConfigLoaderError.INVALID_CONFIG_FILE_PATH_VALUE,
+                    "Invalid empty or null config file path");
+        }
+
+        File configFile = new File(configFilePath);
+
+        if (!configFile.exists()) {
+            logger.error("Can't find config file at path=" + configFilePath);
+            throw new ConfigLoaderException(ConfigLoaderError.CONFIG_FILE_NOT_FOUND, "Can't find config file at path="
+                    + configFilePath);
+        }
+
+        // pool lives as long as the load, pooled strings are kept alive by the properties only
+        final StringPool pool = options.isSharedStrings() ? new StringPool(StringPool.shared()) : options
+                .isDedupStrings() ? new StringPool() : null;
+        long startTime = System.nanoTime();
+        Builder builder;
+        if (options.isParallel()) {
+            final boolean lazy = options.isLazy();
+            List<Builder> chunks = ParallelConfigParser.parse(configFile,
+                    new ParallelConfigParser.HandlerFactory<Builder>() {
+                        @Override
+                        public Builder newHandler() {
+                            return new Builder(lazy, !lazy, pool);
+                        }
+                    });
+            builder = chunks.get(0);
+            for (int i = 1; i < chunks.size(); i++) {
+                builder.append(chunks.get(i));
+            }
+        } else {
+            builder = new Builder(options.isLazy(), false, pool);
+            if (options.isOffHeapValues()) {
+                MappedConfigParser.parse(configFile, builder);
+            } else {
+                ConfigParser.parse(configFile, builder);
+            }
+        }
+        ConfigMetrics metrics = options.getMetrics();
+        if (metrics != null) {
+            // ordinal counts every property definition of the file
+            metrics.recordParse(configFile.length(), builder.ordinal, System.nanoTime() - startTime);
+        }
+        return new ConfigLayers(builder.base, builder.overrideLayers, pool == null ? null : pool.stats());
+    }
+
+    /**
+     * Receives every property of the layers, see {@link ConfigLayers#accept(Visitor)}
+     */
+    public interface Visitor {
+
+        /**
+         * @param override
+         *            override tag, null for base layer
+         * @param group
+         * @param key
+         *            property key without override tag
+         * @param ordinal
+         *            position of definition in file, later definitions have higher ordinal. 0 for base layer.
+         * @param property
+         */
+        void property(String override, String group, String key, int ordinal, Property property);
+    }
+
+    @Override
+    public ConfigSnapshot newConfig(List<String> overrides) {
+        return new LayeredConfig(this, overrides);
+    }
+
+    /**
+     * Visit base layer followed by override layers
+     *
+     * @param visitor
+     */
+    public void accept(Visitor visitor) {
+        for (Map.Entry<String, Map<String, Property>> group : getBaseProperties().entrySet()) {
+            for (Map.Entry<String, Property> property : group.getValue().entrySet()) {
+                visitor.property(null, group.getKey(), property.getKey(), 0, property.getValue());
+            }
+        }
+        for (Map.Entry<String, Map<String, Map<String, OverrideEntry>>> layer : overrideLayers.entrySet()) {
+            for (Map.Entry<String, Map<String, OverrideEntry>> group : layer.getValue().entrySet()) {
+                for (OverrideEntry entry : group.getValue().values()) {
+                    visitor.property(layer.getKey(), group.getKey(), entry.key, entry.ordinal, entry.property);
+                }
+            }
+        }
+    }
+
+    /**
+     * Untagged properties, shared by all views
+     *
+     * @return
+     */
+    public PropertyTable getBase() {
+        return base;
+    }
+
+    /**
+     * @return unmodifiable group -> key -> property map of base layer, materialized once
+     */
+    Map<String, Map<String, Property>> getBaseProperties() {
+        Map<String, Map<String, Property>> result = baseProperties;
+        if (result == null) {
+            result = base.toMap();
+            baseProperties = result;
+        }
+        return result;
+    }
+
+    ConfigIndex getIndex() {
+        ConfigIndex result = index;
+        if (result == null) {
+            result = ConfigIndex.of(base);
+            index = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return strings deduplicated while loading, null unless loaded with ConfigOptions dedupStrings or sharedStrings
+     */
+    public StringPoolStats getStringStats() {
+        return stringStats;
+    }
+
+    /**
+     * @return override tags present in file
+     */
+    public Set<String> getOverrideNames() {
+        return Collections.unmodifiableSet(overrideLayers.keySet());
+    }
+
+    /**
+     * Properties replaced or added by the given overrides, O(properties tagged with these overrides)
+     *
+     * @param overrides
+     *            override tags, unknown tags and nulls are ignored and order doesn't matter
+     * @return properties of winning override definitions
+     */
+    public PropertyTable overlay(Collection<String> overrides) {
+        if (overrides == null || overrides.isEmpty() || overrideLayers.isEmpty()) {
+            return PropertyTable.EMPTY;
+        }
+        Map<String, Map<String, OverrideEntry>> winners = new HashMap<String, Map<String, OverrideEntry>>();
+        for (String override : new LinkedHashSet<String>(overrides)) {
+            Map<String, Map<String, OverrideEntry>> layer = override == null ? null : overrideLayers.get(override);
+            if (layer == null) {
+                continue;
+            }
+            for (Map.Entry<String, Map<String, OverrideEntry>> group : layer.entrySet()) {
+                Map<String, OverrideEntry> groupWinners = winners.get(group.getKey());
+                if (groupWinners == null) {
+                    groupWinners = new HashMap<String, OverrideEntry>();
+                    winners.put(group.getKey(), groupWinners);
+                }
+                for (OverrideEntry entry : group.getValue().values()) {
+                    OverrideEntry winner = groupWinners.get(entry.key);
+                    if (winner == null || entry.ordinal > winner.ordinal) {
+                        groupWinners.put(entry.key, entry);
+                    }
+                }
+            }
+        }
+
+        Map<String, Map<String, Property>> overlay = new HashMap<String, Map<String, Property>>();
+        for (Map.Entry<String, Map<String, OverrideEntry>> group : winners.entrySet()) {
+            Map<String, Property> groupMap = new HashMap<String, Property>();
+            for (OverrideEntry entry : group.getValue().values()) {
+                groupMap.put(entry.key, entry.property);
+            }
+            overlay.put(group.getKey(), groupMap);
+        }
+        return overlay.isEmpty() ? PropertyTable.EMPTY : new PropertyTable(overlay);
+    }
+
+    private static final class OverrideEntry {
+
+        private final String key;
+
+        private final int ordinal;
+
+        private final Property property;
+
+        private OverrideEntry(String key, int ordinal, Property property) {
+            this.key = key;
+            this.ordinal = ordinal;
+            this.property = property;
+        }
+    }
+
+    /**
+     * Collects parsed properties into layers
+     */
+    private static final class Builder implements ConfigParser.Handler {
+
+        private final boolean lazy;
+
+        /**
+         * type mapped values while parsing instead of on first read
+         */
+        private final boolean decodeMapped;
+
+        private final Map<String, Map<String, Property>> base = new HashMap<String, Map<String, Property>>();
+
+        private final Map<String, Map<String, Map<String, OverrideEntry>>> overrideLayers = new HashMap<String, Map<String, Map<String, OverrideEntry>>>();
+
+        /**
+         * group -> key -> tags defining it, to drop tagged properties redefined later without tag
+         */
+        private final Map<String, Map<String, Set<String>>> taggedKeys = new HashMap<String, Map<String, Set<String>>>();
+
+        private int ordinal;
+
+        /**
+         * null when strings are kept as parsed
+         */
+        private final StringPool pool;
+
+        private String parsedGroup;
+
+        private String pooledGroup;
+
+        private Builder(boolean lazy, boolean decodeMapped, StringPool pool) {
+            this.lazy = lazy;
+            this.decodeMapped = decodeMapped;
+            this.pool = pool;
+        }
+
+        @Override
+        public void property(String group, String key, CharSequence value) throws ConfigLoaderException {
+            ordinal++;
+            int overrideStart = key.indexOf(OVERRIDE_START_TAG);
+            if (pool != null) {
+                // parsers pass the same group instance for every property of a section
+                if (group != parsedGroup) {
+                    parsedGroup = group;
+                    pooledGroup = pool.intern(group);
+                }
+                group = pooledGroup;
+                if (overrideStart == -1) {
+                    key = pool.intern(key);
+                }
+            }
+            if (overrideStart == -1) {
+                Property property = newProperty(key, value);
+                Map<String, Property> groupMap = base.get(group);
+                if (groupMap == null) {
+                    groupMap = new HashMap<String, Property>();
+                    base.put(group, groupMap);
+                }
+                groupMap.put(key, property);
+                dropTagged(group, key);
+                return;
+            }
+
+            int overrideEnd = key.indexOf(OVERRIDE_END_TAG, overrideStart);
+            if (overrideStart == 0 || overrideEnd == -1) {
+                // malformed override tag is never applicable
+                return;
+            }
+            String override = key.substring(overrideStart + 1, overrideEnd);
+            key = key.substring(0, overrideStart).trim();
+            if (pool != null) {
+                override = pool.intern(override);
+                key = pool.intern(key);
+            }
+
+            Map<String, Map<String, OverrideEntry>> layer = overrideLayers.get(override);
+            if (layer == null) {
+                layer = new HashMap<String, Map<String, OverrideEntry>>();
+                overrideLayers.put(override, layer);
+            }
+            Map<String, OverrideEntry> groupMap = layer.get(group);
+            if (groupMap == null) {
+                groupMap = new HashMap<String, OverrideEntry>();
+                layer.put(group, groupMap);
+            }
+            groupMap.put(key, new OverrideEntry(key, ordinal, newProperty(key, value)));
+
+            Map<String, Set<String>> groupTags = taggedKeys.get(group);
+            if (groupTags == null) {
+                groupTags = new HashMap<String, Set<String>>();
+                taggedKeys.put(group, groupTags);
+            }
+            Set<String> tags = groupTags.get(key);
+            if (tags == null) {
+                tags = new LinkedHashSet<String>();
+                groupTags.put(key, tags);
+            }
+            tags.add(override);
+        }
+
+        private Property newProperty(String key, CharSequence value) throws ConfigLoaderException {
+            // lazy and mapped values are typed on first read
+            if (lazy || !(value instanceof String || decodeMapped)) {
+                return PropertyFactory.getLazyProperty(key, value);
+            }
+            return PropertyFactory.getProperty(key, value.toString(), pool);
+        }
+
+        /**
+         * Merge properties of the next chunk of the file into this builder, as if they were parsed by this builder.
+         * Chunks start at group headers so most groups are moved as a whole.
+         */
+        private void append(Builder next) {
+            for (Map.Entry<String, Map<String, Property>> group : next.base.entrySet()) {
+                Map<String, Property> groupMap = base.get(group.getKey());
+                if (groupMap == null) {
+                    base.put(group.getKey(), group.getValue());
+                } else {
+                    groupMap.putAll(group.getValue());
+                }
+                if (taggedKeys.containsKey(group.getKey())) {
+                    for (String key : group.getValue().keySet()) {
+                        dropTagged(group.getKey(), key);
+                    }
+                }
+            }
+
+            for (Map.Entry<String, Map<String, Map<String, OverrideEntry>>> nextLayer : next.overrideLayers.entrySet()) {
+                Map<String, Map<String, OverrideEntry>> layer = overrideLayers.get(nextLayer.getKey());
+                if (layer == null) {
+                    layer = new HashMap<String, Map<String, OverrideEntry>>();
+                    overrideLayers.put(nextLayer.getKey(), layer);
+                }
+                for (Map.Entry<String, Map<String, OverrideEntry>> group : nextLayer.getValue().entrySet()) {
+                    Map<String, OverrideEntry> groupMap = layer.get(group.getKey());
+                    if (groupMap == null) {
+                        groupMap = new HashMap<String, OverrideEntry>();
+                        layer.put(group.getKey(), groupMap);
+                    }
+                    for (OverrideEntry entry : group.getValue().values()) {
+                        groupMap.put(entry.key, new OverrideEntry(entry.key, ordinal + entry.ordinal, entry.property));
+                    }
+                }
+            }
+
+            for (Map.Entry<String, Map<String, Set<String>>> group : next.taggedKeys.entrySet()) {
+                Map<String, Set<String>> groupTags = taggedKeys.get(group.getKey());
+                if (groupTags == null) {
+                    taggedKeys.put(group.getKey(), group.getValue());
+                    continue;
+                }
+                for (Map.Entry<String, Set<String>> tags : group.getValue().entrySet()) {
+                    Set<String> keyTags = groupTags.get(tags.getKey());
+                    if (keyTags == null) {
+                        groupTags.put(tags.getKey(), tags.getValue());
+                    } else {
+                        keyTags.addAll(tags.getValue());
+                    }
+                }
+            }
+            ordinal += next.ordinal;
+        }
+
+        private void dropTagged(String group, String key) {
+            Map<String, Set<String>> groupTags = taggedKeys.get(group);
+            Set<String> tags = groupTags == null ? null : groupTags.remove(key);
+            if (tags == null) {
+                return;
+            }
+            for (String override : tags) {
+                Map<String, Map<String, OverrideEntry>> layer = overrideLayers.get(override);
+                Map<String, OverrideEntry> groupMap = layer.get(group);
+                groupMap.remove(key);
+                if (groupMap.isEmpty()) {
+                    layer.remove(group);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.twitter.config.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Change listeners of a config. When a new generation is published the key level diff to the previous generation is
+ * computed and delivered on a background notifier thread, so a large reload doesn't stall the reloading thread. Each
+ * listener gets one batch per reload with the changes matching its key prefix; listeners without matching changes are
+ * not called. Nothing is computed when no listener is registered.
+ *
+ * Batches are delivered in publication order.
+ *
+ * @author agupta13
+ *
+ */
+@SuppressWarnings("rawtypes")
+public class ConfigListeners {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigListeners.class);
+
+    private final List<Registration> registrations = new CopyOnWriteArrayList<Registration>();
+
+    private final Executor executor;
+
+    private static class NotifierHolder {
+
+        /**
+         * single thread keeps batches of all configs in publication order
+         */
+        private static final ExecutorService NOTIFIER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "config-change-notifier");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public ConfigListeners() {
+        this(null);
+    }
+
+    /**
+     * @param executor
+     *            delivers batches, must run tasks one at a time in submission order. null for shared notifier thread.
+     */
+    public ConfigListeners(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @param listener
+     *            receives all changes
+     */
+    public void addListener(ConfigChangeListener listener) {
+        addListener(listener, null);
+    }
+
+    /**
+     * @param listener
+     * @param keyPrefix
+     *            receive changes of properties whose group.key name starts with prefix, e.g. "ftp." for group ftp or
+     *            "ftp.path" for ftp.path and ftp.path_limit. null for all changes.
+     */
+    public void addListener(ConfigChangeListener listener, String keyPrefix) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener can't be null");
+        }
+        registrations.add(new Registration(listener, keyPrefix, null));
+    }
+
+    /**
+     * @param listener
+     * @param group
+     *            receive changes of properties of this group only, not of dotted subgroups like group.v2. Matched
+     *            exactly like ConfigIndex groups.
+     */
+    public void addGroupListener(ConfigChangeListener listener, String group) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener can't be null");
+        }
+        if (group == null) {
+            throw new IllegalArgumentException("Group can't be null");
+        }
+        registrations.add(new Registration(listener, null, group));
+    }
+
+    /**
+     * remove all registrations of listener
+     */
+    public void removeListener(ConfigChangeListener listener) {
+        for (Registration registration : registrations) {
+            if (registration.listener == listener) {
+                registrations.remove(registration);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return registrations.isEmpty();
+    }
+
+    /**
+     * Notify listeners about changes between previous and next generation. Both are retained till the diff is computed,
+     * listeners retain the config they are given to use it after onChange returns.
+     *
+     * @param previous
+     * @param next
+     */
+    public void publish(final ConfigSnapshot previous, final ConfigSnapshot next) {
+        if (registrations.isEmpty() || previous == next || previous == null) {
+            return;
+        }
+        if (!previous.retain()) {
+            logger.warn("Previous config snapshot already released, not notifying listeners");
+            return;
+        }
+        if (!next.retain()) {
+            previous.release();
+            logger.warn("Published config snapshot already released, not notifying listeners");
+            return;
+        }
+        Runnable notification = new Runnable() {
+            @Override
+            public void run() {
+                List<ConfigChange> changes;
+                try {
+                    changes = next.changesSince(previous);
+                } finally {
+                    previous.release();
+                }
+                try {
+                    deliver(changes, next);
+                } finally {
+                    next.release();
+                }
+            }
+        };
+        try {
+            (executor != null ? executor : NotifierHolder.NOTIFIER).execute(notification);
+        } catch (RuntimeException e) {
+            previous.release();
+            next.release();
+            throw e;
+        }
+    }
+
+    private void deliver(List<ConfigChange> changes, ConfigSnapshot config) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        for (Registration registration : registrations) {
+            List<ConfigChange> matching = changes;
+            if (registration.keyPrefix != null || registration.group != null) {
+                matching = new ArrayList<ConfigChange>();
+                for (ConfigChange change : changes) {
+                    if (registration.matches(change)) {
+                        matching.add(change);
+                    }
+                }
+            }
+            if (matching.isEmpty()) {
+                continue;
+            }
+            try {
+                registration.listener.onChange(Collections.unmodifiableList(matching), config);
+            } catch (RuntimeException e) {
+                logger.error("Config change listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * Key level diff, groups shared by both generations (like groups of views of the same layers that their overrides
+     * don't touch) are skipped without comparing their keys. Properties are compared by identity first and lazy ones
+     * by raw text, values are typed only for keys whose definition differs.
+     *
+     * @param previous
+     * @param next
+     * @return changes ordered by group
+     */
+    public static List<ConfigChange> diff(Map<String, Map<String, Property>> previous,
+            Map<String, Map<String, Property>> next) {
+        List<ConfigChange> changes = new ArrayList<ConfigChange>();
+        if (previous == next) {
+            return changes;
+        }
+        for (Map.Entry<String, Map<String, Property>> group : previous.entrySet()) {
+            Map<String, Property> nextGroup = next.get(group.getKey());
+            if (nextGroup == group.getValue()) {
+                continue;
+            }
+            for (Map.Entry<String, Property> property : group.getValue().entrySet()) {
+                Property previousProperty = property.getValue();
+                Property nextProperty = nextGroup == null ? null : nextGroup.get(property.getKey());
+                if (nextProperty == previousProperty || hasSameRawValue(previousProperty, nextProperty)) {
+                    continue;
+                }
+                Object oldValue = previousProperty.getValue();
+                if (nextProperty == null) {
+                    changes.add(new ConfigChange(ConfigChange.Type.REMOVED, group.getKey(), property.getKey(),
+                            oldValue, null));
+                } else {
+                    Object newValue = nextProperty.getValue();
+                    if (!oldValue.equals(newValue)) {
+                        changes.add(new ConfigChange(ConfigChange.Type.CHANGED, group.getKey(), property.getKey(),
+                                oldValue, newValue));
+                    }
+                }
+            }
+            if (nextGroup != null) {
+                addAll(changes, group.getKey(), nextGroup, group.getValue());
+            }
+        }
+        for (Map.Entry<String, Map<String, Property>> group : next.entrySet()) {
+            if (!previous.containsKey(group.getKey())) {
+                addAll(changes, group.getKey(), group.getValue(), null);
+            }
+        }
+        return changes;
+    }
+
+    private static boolean hasSameRawValue(Property previous, Property next) {
+        return previous instanceof LazyProperty && next instanceof LazyProperty
+                && ((LazyProperty) previous).hasSameRawValue((LazyProperty) next);
+    }
+
+    /**
+     * add properties of group missing from previous group as ADDED
+     */
+    private static void addAll(List<ConfigChange> changes, String group, Map<String, Property> properties,
+            Map<String, Property> previous) {
+        for (Map.Entry<String, Property> property : properties.entrySet()) {
+            if (previous == null || !previous.containsKey(property.getKey())) {
+                changes.add(new ConfigChange(ConfigChange.Type.ADDED, group, property.getKey(), null, property
+                        .getValue().getValue()));
+            }
+        }
+    }
+
+    private static final class Registration {
+
+        private final ConfigChangeListener listener;
+
+        private final String keyPrefix;
+
+        /**
+         * exact group to match, null to match by keyPrefix
+         */
+        private final String group;
+
+        private Registration(ConfigChangeListener listener, String keyPrefix, String group) {
+            this.listener = listener;
+            this.keyPrefix = keyPrefix;
+            this.group = group;
+        }
+
+        private boolean matches(ConfigChange change) {
+            if (group != null) {
+                return group.equals(change.getGroup());
+            }
+            // compare group and key without building group.key
+            String changeGroup = change.getGroup();
+            if (keyPrefix.length() <= changeGroup.length()) {
+                return changeGroup.startsWith(keyPrefix);
+            }
+            return keyPrefix.startsWith(changeGroup) && keyPrefix.charAt(changeGroup.length()) == '.'
+                    && change.getKey().startsWith(keyPrefix.substring(changeGroup.length() + 1));
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.twitter.config.models;
+
+import com.twitter.config.metrics.ConfigMetrics;
+
+/**
+ * Options controlling how ConfigImpl loads a config file, defaults match a plain streaming load. Options documented as
+ * "used by ConfigLoader" pick the kind of source the loader caches for a file (snapshots, off-heap storage, shared
+ * copies) and are ignored by ConfigImpl, ConfigLayers and ConfigHandle.load, which always parse into heap layers.
+ * 
+ * @author agupta13
+ * 
+ */
+public class ConfigOptions {
+
+    /**
+     * read config file with one bulk read into a direct (off-heap) buffer and parse directly over its bytes, values
+     * are kept as byte ranges of the buffer and decoded and typed on first read, so heap use grows with the keys read
+     * rather than the file size. The file is not mapped, loaded configs don't change when it is edited in place. Files
+     * are decoded as UTF-8.
+     */
+    private boolean offHeapValues;
+
+    /**
+     * keep raw value text on load and type it with PropertyFactory (including list splitting) on first read. Useful
+     * when a service reads a few keys of a big shared file. Loads with offHeapValues are always lazy.
+     */
+    private boolean lazy;
+
+    /**
+     * used by ConfigLoader - keep a compiled binary snapshot next to the config file (path.snapshot) and serve configs
+     * from the mapped snapshot, the config file is parsed only when it is newer than its snapshot
+     */
+    private boolean snapshot;
+
+    /**
+     * split large config files at group headers and parse the chunks on a ForkJoinPool, values are decoded and typed in
+     * parallel unless lazy is set. Files are read like offHeapValues ones and decoded as UTF-8, result is the same as a
+     * sequential load.
+     */
+    private boolean parallel;
+
+    /**
+     * deduplicate repeated keys, override tags, string values and list elements while loading so equal strings of one
+     * config share an instance, see ConfigLayers.getStringStats(). Lazy values are kept as raw text and not pooled.
+     */
+    private boolean dedupStrings;
+
+    /**
+     * like dedupStrings, and also share equal strings with every other config loaded with this option through the weakly
+     * held StringPool.shared(). Useful when many configs of the same or similar files are held at once.
+     */
+    private boolean sharedStrings;
+
+    /**
+     * used by ConfigLoader - compile parsed files into direct (off-heap) buffers in the binary snapshot format, the
+     * heap only holds a small per file index. Memory of a file is freed as soon as the file and its configs are evicted
+     * from the loader caches or replaced by hot reload and no handle uses it. Configs given out by load throw
+     * IllegalStateException on read after that unless retained, see ConfigSnapshot.retain().
+     */
+    private boolean offHeap;
+
+    /**
+     * used by ConfigLoader - share snapshots with other processes of the host through this local directory, see
+     * SharedSnapshotStore (SharedSnapshotStore.DEFAULT_DIRECTORY is a good default). The first process parses a file
+     * and publishes its snapshot, others map the published snapshot without parsing. Takes precedence over snapshot and
+     * offHeap, null to disable.
+     */
+    private String sharedSnapshotDirectory;
+
+    /**
+     * used by ConfigLoader - files of identical content share one parsed copy whatever their path, found by SHA-256 of
+     * the content. Costs one extra read of a file before parsing it.
+     */
+    private boolean shareIdenticalFiles;
+
+    /**
+     * records time, bytes and property count of every parse of a file loaded with these options, null to not record.
+     * ConfigLoader records parses of options without metrics in its own metrics, using a copy of the options.
+     */
+    private ConfigMetrics metrics;
+
+    /**
+     * used by ConfigLoader - count reads of loaded configs per group and how many of them miss, see ConfigMetrics.
+     * Costs a group lookup per read, typed reads of binary configs lose their allocation free path.
+     */
+    private boolean meteredGets;
+
+    public ConfigOptions() {
+    }
+
+    /**
+     * copy of options, shares their metrics
+     *
+     * @param options
+     */
+    public ConfigOptions(ConfigOptions options) {
+        this.offHeapValues = options.offHeapValues;
+        this.lazy = options.lazy;
+        this.snapshot = options.snapshot;
+        this.parallel = options.parallel;
+        this.dedupStrings = options.dedupStrings;
+        this.sharedStrings = options.sharedStrings;
+        this.offHeap = options.offHeap;
+        this.sharedSnapshotDirectory = options.sharedSnapshotDirectory;
+        this.shareIdenticalFiles = options.shareIdenticalFiles;
+        this.metrics = options.metrics;
+        this.meteredGets = options.meteredGets;
+    }
+
+    public boolean isOffHeapValues() {
+        return offHeapValues;
+    }
+
+    public void setOffHeapValues(boolean offHeapValues) {
+        this.offHeapValues = offHeapValues;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(boolean snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public boolean isDedupStrings() {
+        return dedupStrings;
+    }
+
+    public void setDedupStrings(boolean dedupStrings) {
+        this.dedupStrings = dedupStrings;
+    }
+
+    public boolean isSharedStrings() {
+        return sharedStrings;
+    }
+
+    public void setSharedStrings(boolean sharedStrings) {
+        this.sharedStrings = sharedStrings;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    public void setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    public String getSharedSnapshotDirectory() {
+        return sharedSnapshotDirectory;
+    }
+
+    public void setSharedSnapshotDirectory(String sharedSnapshotDirectory) {
+        this.sharedSnapshotDirectory = sharedSnapshotDirectory;
+    }
+
+    public boolean isShareIdenticalFiles() {
+        return shareIdenticalFiles;
+    }
+
+    public void setShareIdenticalFiles(boolean shareIdenticalFiles) {
+        this.shareIdenticalFiles = shareIdenticalFiles;
+    }
+
+    public ConfigMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(ConfigMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public boolean isMeteredGets() {
+        return meteredGets;
+    }
+
+    public void setMeteredGets(boolean meteredGets) {
+        this.meteredGets = meteredGets;
+    }
+}
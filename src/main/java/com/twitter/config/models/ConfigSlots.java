@@ -0,0 +1,81 @@
+package com.twitter.config.models;
+
+import java.util.List;
+
+/**
+ * Typed reads of a ConfigKeySet by slot, used by accessors generated by ConfigAccessorProcessor. Keys are resolved once
+ * per snapshot like ConfigKeys, a read is an array read. Slots of a ConfigHandle follow its reloads. Reads are counted
+ * by MeteredConfig like ConfigKey reads.
+ *
+ * @author agupta13
+ *
+ */
+@SuppressWarnings("rawtypes")
+public final class ConfigSlots {
+
+    /**
+     * read config, null when reading through handle
+     */
+    private final AbstractConfig config;
+
+    private final ConfigHandle handle;
+
+    private final ConfigKeySet keys;
+
+    /**
+     * @param config
+     *            config built by this library, e.g. a ConfigSnapshot, ConfigImpl or ConfigHandle
+     * @param keys
+     *            read by slot
+     * @throws IllegalArgumentException
+     *             for other Config implementations
+     */
+    public ConfigSlots(Config config, ConfigKeySet keys) {
+        if (config instanceof ConfigHandle) {
+            this.config = null;
+            this.handle = (ConfigHandle) config;
+        } else if (config instanceof AbstractConfig) {
+            this.config = (AbstractConfig) config;
+            this.handle = null;
+        } else {
+            throw new IllegalArgumentException("Unsupported config type=" + config);
+        }
+        this.keys = keys;
+    }
+
+    public ConfigKeySet getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return value or null if not found
+     */
+    public Object get(int slot) {
+        Property prop = property(slot);
+        return prop == null ? null : prop.getValue();
+    }
+
+    public long getLong(int slot, long defaultValue) {
+        return AbstractConfig.longValue(property(slot), defaultValue);
+    }
+
+    public double getDouble(int slot, double defaultValue) {
+        return AbstractConfig.doubleValue(property(slot), defaultValue);
+    }
+
+    public boolean getBoolean(int slot, boolean defaultValue) {
+        return AbstractConfig.booleanValue(property(slot), defaultValue);
+    }
+
+    public String getString(int slot, String defaultValue) {
+        return AbstractConfig.stringValue(property(slot), defaultValue);
+    }
+
+    public List<String> getList(int slot, List<String> defaultValue) {
+        return AbstractConfig.listValue(property(slot), defaultValue);
+    }
+
+    private Property property(int slot) {
+        return (handle != null ? handle.get() : config).resolve(keys.get(slot));
+    }
+}
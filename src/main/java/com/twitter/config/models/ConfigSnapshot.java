@@ -0,0 +1,131 @@
+package com.twitter.config.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable config, content never changes after construction and all fields are final so a snapshot is safely
+ * published to any thread that gets a reference to it. A reload creates a new snapshot, see {@link ConfigHandle}.
+ *
+ * @author agupta13
+ *
+ */
+@SuppressWarnings("rawtypes")
+public abstract class ConfigSnapshot extends AbstractConfig {
+
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    private final long generation = GENERATIONS.incrementAndGet();
+
+    /**
+     * properties of ConfigKeys read from this snapshot
+     */
+    private final KeySlots keySlots = new KeySlots(this);
+
+    /**
+     * sorted names, built on first group or key query
+     */
+    private volatile ConfigIndex index;
+
+    /**
+     * @return unique number of this snapshot, snapshots created later have higher generation
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return all properties with overrides applied, group -> key -> property. Must not be modified.
+     */
+    public abstract Map<String, Map<String, Property>> getProperties();
+
+    @Override
+    public ConfigGroup group(String name) {
+        return (name == null ? ConfigIndex.EMPTY : getIndex()).group(this, name);
+    }
+
+    @Override
+    public List<String> keysWithPrefix(String prefix) {
+        return getIndex().withPrefix(prefix == null ? "" : prefix);
+    }
+
+    @Override
+    public List<String> keysInRange(String fromKey, String toKey) {
+        return getIndex().range(fromKey, toKey);
+    }
+
+    /**
+     * Snapshots are immutable, reload through ConfigHandle or ConfigLoader
+     */
+    @Override
+    public final void load(String configFilePath, List<String> overrides) {
+        throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+    }
+
+    @Override
+    protected final ConfigSnapshot current() {
+        return this;
+    }
+
+    /**
+     * Key level changes from previous snapshot to this one, see {@link ConfigListeners#diff(Map, Map)}. Snapshots that
+     * can compare values without materializing properties override it.
+     */
+    protected List<ConfigChange> changesSince(ConfigSnapshot previous) {
+        return ConfigListeners.diff(previous.getProperties(), getProperties());
+    }
+
+    /**
+     * Take a reference to memory of a snapshot held outside the heap, see BinarySnapshot. Holders drop it with release
+     * once they stop using the snapshot. Snapshots on the heap are not counted.
+     *
+     * @return false if memory was already freed, the snapshot must not be used
+     */
+    public boolean retain() {
+        return true;
+    }
+
+    /**
+     * Drop a reference taken by retain, memory of an off-heap snapshot is freed with its last reference
+     */
+    public void release() {
+    }
+
+    KeySlots getKeySlots() {
+        return keySlots;
+    }
+
+    ConfigIndex getIndex() {
+        ConfigIndex result = index;
+        if (result == null) {
+            result = buildIndex();
+            index = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return index of names added by collectNames, O(N log N)
+     */
+    ConfigIndex buildIndex() {
+        List<String> groupNames = new ArrayList<String>();
+        List<String> keyNames = new ArrayList<String>();
+        collectNames(groupNames, keyNames);
+        return ConfigIndex.of(groupNames, keyNames);
+    }
+
+    /**
+     * Adds group and key of every property to the lists, at the same positions. Defaults to the names of
+     * getProperties(), snapshots that can list names without materializing properties override it.
+     */
+    protected void collectNames(List<String> groupNames, List<String> keyNames) {
+        for (Map.Entry<String, Map<String, Property>> group : getProperties().entrySet()) {
+            for (String key : group.getValue().keySet()) {
+                groupNames.add(group.getKey());
+                keyNames.add(key);
+            }
+        }
+    }
+}
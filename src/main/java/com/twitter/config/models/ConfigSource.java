@@ -0,0 +1,19 @@
+package com.twitter.config.models;
+
+import java.util.List;
+
+/**
+ * Config file read once and shared by the configs of all override combinations of that file
+ *
+ * @author agupta13
+ *
+ */
+public interface ConfigSource {
+
+    /**
+     * @param overrides
+     *            override tags to apply, may be null
+     * @return immutable config for given overrides
+     */
+    ConfigSnapshot newConfig(List<String> overrides);
+}
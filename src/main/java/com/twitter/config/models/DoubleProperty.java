@@ -2,21 +2,28 @@ package com.twitter.config.models;
 
 public class DoubleProperty implements Property<Double> {
 
-    private Double value;
+    private final double value;
 
-    private String key;
+    private final String key;
 
     @Override
     public Double getValue() {
         return value;
     }
 
+    /**
+     * @return unboxed value, use on hot path to avoid boxing
+     */
+    public double doubleValue() {
+        return value;
+    }
+
     @Override
     public String getKey() {
         return key;
     }
 
-    public DoubleProperty(String key, Double value) {
+    public DoubleProperty(String key, double value) {
         this.key = key;
         this.value = value;
     }
@@ -0,0 +1,104 @@
+package com.twitter.config.models;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Properties of one snapshot resolved by ConfigKey and ConfigKeySet, indexed by their ids. A key is looked up in the
+ * snapshot on its first read and later reads are one array read, the table grows by doubling when a key of a higher id
+ * is first read. Keys not present are remembered as {@link #MISSING}, a key set as the array of its properties.
+ *
+ * Entries are set at most once per snapshot, concurrent first reads of a key may both look it up. Entries are
+ * published through the table, so properties need no final fields to be read safely from other threads.
+ *
+ * @author agupta13
+ *
+ */
+@SuppressWarnings("rawtypes")
+final class KeySlots {
+
+    /**
+     * resolved entry of a key not present in snapshot
+     */
+    static final Property MISSING = new Property() {
+        @Override
+        public Object getValue() {
+            return null;
+        }
+
+        @Override
+        public String getKey() {
+            return null;
+        }
+    };
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private final AbstractConfig snapshot;
+
+    private volatile AtomicReferenceArray<Object> table = new AtomicReferenceArray<Object>(0);
+
+    KeySlots(AbstractConfig snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @return property or null if key is not present
+     */
+    Property get(ConfigKey key) {
+        AtomicReferenceArray<Object> current = table;
+        if (key.id < current.length()) {
+            Object prop = current.get(key.id);
+            if (prop != null) {
+                return prop == MISSING ? null : (Property) prop;
+            }
+        }
+        Property prop = snapshot.lookup(key.getGroup(), key.getKey(), key.hash);
+        store(key.id, prop == null ? MISSING : prop);
+        return prop;
+    }
+
+    /**
+     * @return properties of keys in key order, null for keys not present. Must not be modified.
+     */
+    Property[] get(ConfigKeySet keys) {
+        AtomicReferenceArray<Object> current = table;
+        if (keys.id < current.length()) {
+            Object properties = current.get(keys.id);
+            if (properties != null) {
+                return (Property[]) properties;
+            }
+        }
+        Property[] properties = new Property[keys.size()];
+        for (int index : keys.lookupOrder) {
+            properties[index] = get(keys.get(index));
+        }
+        store(keys.id, properties);
+        return properties;
+    }
+
+    private void store(int id, Object value) {
+        AtomicReferenceArray<Object> current = table;
+        if (id >= current.length()) {
+            current = grow(id);
+        }
+        current.set(id, value);
+    }
+
+    /**
+     * @return table able to hold id, resolved entries are copied. Entries set in the replaced table after the copy are
+     *         resolved again on their next read.
+     */
+    private synchronized AtomicReferenceArray<Object> grow(int id) {
+        AtomicReferenceArray<Object> current = table;
+        if (id < current.length()) {
+            return current;
+        }
+        AtomicReferenceArray<Object> grown = new AtomicReferenceArray<Object>(Math.max(Math.max(id + 1,
+                2 * current.length()), MINIMUM_CAPACITY));
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        table = grown;
+        return grown;
+    }
+}
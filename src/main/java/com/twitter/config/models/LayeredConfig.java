@@ -0,0 +1,117 @@
+package com.twitter.config.models;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of parsed config layers with overrides applied, base layer is shared with other snapshots of the same file.
+ *
+ * @author agupta13
+ *
+ */
+@SuppressWarnings("rawtypes")
+final class LayeredConfig extends ConfigSnapshot {
+
+    private final ConfigLayers layers;
+
+    /**
+     * properties replaced or added by overrides, checked before base layer
+     */
+    private final PropertyTable overlay;
+
+    /**
+     * materialized on first getProperties call
+     */
+    private volatile Map<String, Map<String, Property>> properties;
+
+    LayeredConfig(ConfigLayers layers, List<String> overrides) {
+        this.layers = layers;
+        this.overlay = layers.overlay(overrides);
+    }
+
+    /**
+     * O(1) get property should never throw exception return null value if not found. Same key rules as
+     * key.split("\\.") with exactly two parts (trailing delimiters are ignored), without splitting.
+     */
+    @Override
+    public Object get(String key) {
+        int length = keyLength(key);
+        if (keyDelimiter(key, length) == -1) {
+            return null;
+        }
+        String name = length == key.length() ? key : key.substring(0, length);
+        Property prop = overlay.isEmpty() ? null : overlay.get(name);
+        if (prop == null) {
+            prop = layers.getBase().get(name);
+        }
+        return prop == null ? null : prop.getValue();
+    }
+
+    @Override
+    protected Property lookup(String group, String key) {
+        if (!overlay.isEmpty()) {
+            Property prop = overlay.get(group, key);
+            if (prop != null) {
+                return prop;
+            }
+        }
+        return layers.getBase().get(group, key);
+    }
+
+    @Override
+    Property lookup(String group, String key, int hash) {
+        if (!overlay.isEmpty()) {
+            Property prop = overlay.get(group, key, hash);
+            if (prop != null) {
+                return prop;
+            }
+        }
+        return layers.getBase().get(group, key, hash);
+    }
+
+    ConfigLayers getLayers() {
+        return layers;
+    }
+
+    /**
+     * base layer index of the file, rebuilt only when overrides add keys
+     */
+    @Override
+    ConfigIndex buildIndex() {
+        ConfigIndex baseIndex = layers.getIndex();
+        return overlay.isEmpty() ? baseIndex : baseIndex.withOverlay(layers.getBase(), overlay);
+    }
+
+    /**
+     * Base layer maps shared by all views of the layers, groups not touched by overrides are the same instances in
+     * every view so diffs between views skip them. Overridden groups are copied on first call, O(groups + keys of
+     * overridden groups).
+     */
+    @Override
+    public Map<String, Map<String, Property>> getProperties() {
+        if (overlay.isEmpty()) {
+            return layers.getBaseProperties();
+        }
+        Map<String, Map<String, Property>> result = properties;
+        if (result == null) {
+            result = merge(layers.getBaseProperties(), overlay.toMap());
+            properties = result;
+        }
+        return result;
+    }
+
+    private static Map<String, Map<String, Property>> merge(Map<String, Map<String, Property>> base,
+            Map<String, Map<String, Property>> overlay) {
+        Map<String, Map<String, Property>> properties = new HashMap<String, Map<String, Property>>(base);
+        for (Map.Entry<String, Map<String, Property>> group : overlay.entrySet()) {
+            Map<String, Property> baseGroup = base.get(group.getKey());
+            Map<String, Property> groupMap = baseGroup == null ? new HashMap<String, Property>()
+                    : new HashMap<String, Property>(baseGroup);
+            groupMap.putAll(group.getValue());
+            properties.put(group.getKey(), Collections.unmodifiableMap(groupMap));
+        }
+        return Collections.unmodifiableMap(properties);
+    }
+}
@@ -0,0 +1,76 @@
+package com.twitter.config.models;
+
+import com.twitter.config.exception.ConfigLoaderException;
+import com.twitter.config.factory.PropertyFactory;
+import com.twitter.config.parser.MappedValue;
+
+/**
+ * Property holding raw value text, typed by PropertyFactory on first access. Resolution is thread-safe and happens once,
+ * raw value is released after resolution.
+ * 
+ * @author agupta13
+ * 
+ */
+@SuppressWarnings("rawtypes")
+public class LazyProperty implements Property<Object> {
+
+    private final String key;
+
+    private CharSequence rawValue;
+
+    private volatile Property property;
+
+    public LazyProperty(String key, CharSequence rawValue) {
+        this.key = key;
+        this.rawValue = rawValue;
+    }
+
+    @Override
+    public Object getValue() {
+        return resolve().getValue();
+    }
+
+    @Override
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return true if both still hold raw value text and the texts are equal, so their typed values are equal too.
+     *         False doesn't mean the values differ, "1" and "01" type to the same long.
+     */
+    boolean hasSameRawValue(LazyProperty other) {
+        CharSequence raw = rawValue;
+        CharSequence otherRaw = other.rawValue;
+        if (raw == null || otherRaw == null) {
+            return false;
+        }
+        if (raw instanceof MappedValue && otherRaw instanceof MappedValue) {
+            // compared as bytes, decoding would keep the decoded text of unread values on the heap
+            return ((MappedValue) raw).contentEquals((MappedValue) otherRaw);
+        }
+        return raw.toString().equals(otherRaw.toString());
+    }
+
+    /**
+     * @return typed property for raw value
+     */
+    public Property resolve() {
+        Property resolved = property;
+        if (resolved == null) {
+            synchronized (this) {
+                resolved = property;
+                if (resolved == null) {
+                    try {
+                        resolved = PropertyFactory.getProperty(key, rawValue.toString());
+                    } catch (ConfigLoaderException e) {
+                        throw new IllegalStateException("Invalid property key=" + key + ". Error=" + e.getErrorMsg());
+                    }
+                    property = resolved;
+                    rawValue = null;
+                }
+            }
+        }
+        return resolved;
+    }
+}
@@ -2,21 +2,28 @@ package com.twitter.config.models;
 
 public class LongProperty implements Property<Long> {
 
-    private Long value;
+    private final long value;
 
-    private String key;
+    private final String key;
 
     @Override
     public Long getValue() {
         return value;
     }
 
+    /**
+     * @return unboxed value, use on hot path to avoid boxing
+     */
+    public long longValue() {
+        return value;
+    }
+
     @Override
     public String getKey() {
         return key;
     }
 
-    public LongProperty(String key, Long value) {
+    public LongProperty(String key, long value) {
         this.key = key;
         this.value = value;
     }
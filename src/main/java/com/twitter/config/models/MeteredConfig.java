@@ -0,0 +1,111 @@
+package com.twitter.config.models;
+
+import java.util.List;
+import java.util.Map;
+
+import com.twitter.config.metrics.ConfigMetrics;
+
+/**
+ * Snapshot counting reads of a wrapped snapshot per group in ConfigMetrics, a read is a miss when the key is not
+ * present. Reads of malformed keys are counted under the empty group. ConfigKey reads are counted on every read even
+ * though the wrapped lookup happens once per snapshot.
+ *
+ * @author agupta13
+ *
+ */
+@SuppressWarnings("rawtypes")
+public class MeteredConfig extends ConfigSnapshot {
+
+    private static final char PROPERTY_KEY_DELIMITER = '.';
+
+    private final ConfigSnapshot config;
+
+    private final ConfigMetrics metrics;
+
+    public MeteredConfig(ConfigSnapshot config, ConfigMetrics metrics) {
+        this.config = config;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object get(String key) {
+        Object value = config.get(key);
+        metrics.recordGet(groupOf(key), value != null);
+        return value;
+    }
+
+    @Override
+    public Map<String, Map<String, Property>> getProperties() {
+        return config.getProperties();
+    }
+
+    @Override
+    protected List<ConfigChange> changesSince(ConfigSnapshot previous) {
+        return config.changesSince(previous instanceof MeteredConfig ? ((MeteredConfig) previous).config : previous);
+    }
+
+    @Override
+    public boolean retain() {
+        return config.retain();
+    }
+
+    @Override
+    public void release() {
+        config.release();
+    }
+
+    /**
+     * @return wrapped snapshot
+     */
+    public ConfigSnapshot getConfig() {
+        return config;
+    }
+
+    @Override
+    protected Property lookup(String key) {
+        Property prop = super.lookup(key);
+        metrics.recordGet(groupOf(key), prop != null);
+        return prop;
+    }
+
+    /**
+     * resolved in slots of wrapped snapshot, shared with its unmetered reads
+     */
+    @Override
+    protected Property resolve(ConfigKey key) {
+        Property prop = config.resolve(key);
+        if (key != null) {
+            metrics.recordGet(key.getGroup(), prop != null);
+        }
+        return prop;
+    }
+
+    @Override
+    protected Property[] resolve(ConfigKeySet keys) {
+        Property[] properties = config.resolve(keys);
+        for (int i = 0; i < properties.length; i++) {
+            metrics.recordGet(keys.get(i).getGroup(), properties[i] != null);
+        }
+        return properties;
+    }
+
+    @Override
+    protected Property lookup(String group, String key) {
+        return config.lookup(group, key);
+    }
+
+    @Override
+    Property lookup(String group, String key, int hash) {
+        return config.lookup(group, key, hash);
+    }
+
+    @Override
+    ConfigIndex buildIndex() {
+        return config.getIndex();
+    }
+
+    private static String groupOf(String key) {
+        int delimiter = key == null ? -1 : key.indexOf(PROPERTY_KEY_DELIMITER);
+        return delimiter <= 0 ? "" : key.substring(0, delimiter);
+    }
+}
@@ -0,0 +1,185 @@
+package com.twitter.config.models;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable open addressing (linear probing) table of properties keyed by full "group.key" name. Groups, keys, values
+ * and name hashes are kept in parallel arrays, no entry objects or per-group tables. Lookup by name uses the hash code
+ * cached in the name String and compares in place, lookup by group and key computes the same hash without building
+ * the name, neither allocates.
+ *
+ * The key set is fixed after parsing, capacity keeps load factor under 2/3 so probes stay short.
+ *
+ * @author agupta13
+ *
+ */
+@SuppressWarnings("rawtypes")
+public final class PropertyTable {
+
+    public static final PropertyTable EMPTY = new PropertyTable(Collections.<String, Map<String, Property>> emptyMap());
+
+    private static final char PROPERTY_KEY_DELIMITER = '.';
+
+    /**
+     * String hash of "group.key"
+     */
+    private final int[] hashes;
+
+    private final String[] groups;
+
+    private final String[] keys;
+
+    private final Property[] values;
+
+    private final int mask;
+
+    private final int size;
+
+    /**
+     * @param properties
+     *            group -> key -> property
+     */
+    public PropertyTable(Map<String, Map<String, Property>> properties) {
+        int size = 0;
+        for (Map<String, Property> group : properties.values()) {
+            size += group.size();
+        }
+        int capacity = 2;
+        while (capacity * 2 < size * 3) {
+            capacity <<= 1;
+        }
+        this.hashes = new int[capacity];
+        this.groups = new String[capacity];
+        this.keys = new String[capacity];
+        this.values = new Property[capacity];
+        this.mask = capacity - 1;
+        this.size = size;
+        for (Map.Entry<String, Map<String, Property>> group : properties.entrySet()) {
+            for (Map.Entry<String, Property> property : group.getValue().entrySet()) {
+                int hash = hash(group.getKey(), property.getKey());
+                int index = spread(hash) & mask;
+                while (groups[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                hashes[index] = hash;
+                groups[index] = group.getKey();
+                keys[index] = property.getKey();
+                values[index] = property.getValue();
+            }
+        }
+    }
+
+    /**
+     * @param name
+     *            group.key
+     * @return property or null if not found
+     */
+    public Property get(String name) {
+        int hash = name.hashCode();
+        int index = spread(hash) & mask;
+        String group;
+        while ((group = groups[index]) != null) {
+            if (hashes[index] == hash) {
+                String key = keys[index];
+                int groupLength = group.length();
+                if (name.length() == groupLength + 1 + key.length() && name.startsWith(group)
+                        && name.charAt(groupLength) == PROPERTY_KEY_DELIMITER && name.endsWith(key)) {
+                    return values[index];
+                }
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @return property or null if not found
+     */
+    public Property get(String group, String key) {
+        return get(group, key, hash(group, key));
+    }
+
+    /**
+     * @param hash
+     *            hash of "group.key"
+     * @return property or null if not found
+     */
+    Property get(String group, String key, int hash) {
+        int index = spread(hash) & mask;
+        while (groups[index] != null) {
+            if (hashes[index] == hash && groups[index].equals(group) && keys[index].equals(key)) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return new unmodifiable group -> key -> property map, O(N)
+     */
+    public Map<String, Map<String, Property>> toMap() {
+        Map<String, Map<String, Property>> properties = new HashMap<String, Map<String, Property>>();
+        for (int index = 0; index < groups.length; index++) {
+            if (groups[index] == null) {
+                continue;
+            }
+            Map<String, Property> groupMap = properties.get(groups[index]);
+            if (groupMap == null) {
+                groupMap = new HashMap<String, Property>();
+                properties.put(groups[index], groupMap);
+            }
+            groupMap.put(keys[index], values[index]);
+        }
+        for (Map.Entry<String, Map<String, Property>> group : properties.entrySet()) {
+            group.setValue(Collections.unmodifiableMap(group.getValue()));
+        }
+        return Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * add group and key of every property not in exclude, in table order
+     */
+    void collectNames(List<String> groupNames, List<String> keyNames, PropertyTable exclude) {
+        for (int index = 0; index < groups.length; index++) {
+            if (groups[index] != null && (exclude == null || exclude.get(groups[index], keys[index]) == null)) {
+                groupNames.add(groups[index]);
+                keyNames.add(keys[index]);
+            }
+        }
+    }
+
+    /**
+     * same as (group + "." + key).hashCode()
+     */
+    static int hash(String group, String key) {
+        int hash = 31 * group.hashCode() + PROPERTY_KEY_DELIMITER;
+        int power = 1;
+        for (int i = key.length(); i > 0; i--) {
+            power *= 31;
+        }
+        return hash * power + key.hashCode();
+    }
+
+    /**
+     * String hash codes of similar names are close, murmur3 finalizer spreads them over the table
+     */
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,159 @@
+package com.twitter.config.parser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.twitter.config.exception.ConfigLoaderError;
+import com.twitter.config.exception.ConfigLoaderException;
+
+/**
+ * Single pass streaming parser for config files. Lines are read one at a time and scanned by index for group, comment,
+ * key, value and inline comment, only key and value strings are created. Memory use is bounded by the longest line, not
+ * the file size.
+ *
+ * <pre>
+ * [group]
+ * key = value
+ * key&lt;override&gt; = value ; inline comment
+ * ; comment
+ * </pre>
+ *
+ * @author agupta13
+ *
+ */
+public class ConfigParser {
+
+    private static final char GROUP_START_TAG = '[';
+
+    private static final char GROUP_END_TAG = ']';
+
+    private static final char COMMENT_TAG = ';';
+
+    private static final char PROPERTY_TOKENIZER = '=';
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigParser.class);
+
+    /**
+     * Receives properties in file order
+     */
+    public interface Handler {
+
+        /**
+         * @param group
+         *            non blank group name
+         * @param key
+         *            trimmed property key, including override tag if any e.g. path&lt;production&gt;
+         * @param value
+         *            trimmed property value without inline comment, a String or a lazily decoded view
+         * @throws ConfigLoaderException
+         */
+        void property(String group, String key, CharSequence value) throws ConfigLoaderException;
+    }
+
+    /**
+     * Parse config file with platform default charset
+     *
+     * @param configFile
+     * @param handler
+     * @throws ConfigLoaderException
+     */
+    public static void parse(File configFile, Handler handler) throws ConfigLoaderException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(configFile),
+                Charset.defaultCharset()), BUFFER_SIZE)) {
+            parse(reader, handler);
+        } catch (IOException e) {
+            logger.error("Error reading configFile=" + configFile);
+            throw new ConfigLoaderException(ConfigLoaderError.FAILED_TO_READ_CONFIG_FILE, "Error reading configFile="
+                    + configFile);
+        }
+    }
+
+    public static void parse(BufferedReader reader, Handler handler) throws IOException, ConfigLoaderException {
+        String propertyGroup = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            // trim by index
+            int start = 0;
+            int end = line.length();
+            while (start < end && line.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && line.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (isBlank(line, start, end) || line.charAt(start) == COMMENT_TAG) {
+                continue;
+            }
+
+            if (line.charAt(start) == GROUP_START_TAG && line.charAt(end - 1) == GROUP_END_TAG && end - start > 1) {
+                propertyGroup = line.substring(start + 1, end - 1);
+                continue;
+            }
+
+            // error case blank property group
+            if (StringUtils.isBlank(propertyGroup)) {
+                logger.error("Property can't have blank group");
+                throw new ConfigLoaderException(ConfigLoaderError.PROPERTY_GROUP_NULL, "Property can't have blank group");
+            }
+
+            // error case property don't have =
+            int tokenizer = line.indexOf(PROPERTY_TOKENIZER, start);
+            if (tokenizer == -1 || tokenizer >= end) {
+                logger.error("Found config line={}, which is niether a group, comment or prpoperty. "
+                        + "Please check property file", line);
+                throw new ConfigLoaderException(ConfigLoaderError.INVALID_PROPERTY_DEFINITION, "Found config line="
+                        + line + ", which is niether a group, comment or prpoperty. Please check property file");
+            }
+
+            // exactly one key and one value, trailing = are ignored
+            int valueEnd = end;
+            while (valueEnd > tokenizer + 1 && line.charAt(valueEnd - 1) == PROPERTY_TOKENIZER) {
+                valueEnd--;
+            }
+            int nextTokenizer = line.indexOf(PROPERTY_TOKENIZER, tokenizer + 1);
+            if (valueEnd == tokenizer + 1 || (nextTokenizer != -1 && nextTokenizer < valueEnd)) {
+                throw new ConfigLoaderException(ConfigLoaderError.INVALID_PROPERTY_DEFINITION,
+                        "Failed to read property from property file. Invalid value at line=" + line);
+            }
+
+            // if value contains comment trim it off
+            int comment = line.indexOf(COMMENT_TAG, tokenizer + 1);
+            if (comment != -1 && comment < valueEnd) {
+                valueEnd = comment;
+            }
+
+            int keyEnd = tokenizer;
+            while (keyEnd > start && line.charAt(keyEnd - 1) <= ' ') {
+                keyEnd--;
+            }
+            int valueStart = tokenizer + 1;
+            while (valueStart < valueEnd && line.charAt(valueStart) <= ' ') {
+                valueStart++;
+            }
+            while (valueEnd > valueStart && line.charAt(valueEnd - 1) <= ' ') {
+                valueEnd--;
+            }
+
+            handler.property(propertyGroup, line.substring(start, keyEnd), line.substring(valueStart, valueEnd));
+        }
+    }
+
+    private static boolean isBlank(String line, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,199 @@
+package com.twitter.config.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.twitter.config.exception.ConfigLoaderError;
+import com.twitter.config.exception.ConfigLoaderException;
+
+/**
+ * Single-copy variant of ConfigParser. Config file is read with one bulk read into a direct (off-heap) buffer and
+ * scanned byte by byte with the same rules as ConfigParser; only group names and keys are decoded, values are handed
+ * out as {@link MappedValue} views over the buffer and decoded when first read, so the heap holds the keys and the
+ * values actually read, not the file. File is expected to be UTF-8 (or ASCII).
+ *
+ * The file itself is not kept mapped: values of a MAP_SHARED mapping would change when the file is edited in place
+ * and reading past a truncated end would fail, so loaded configs could not be immutable. The copy is freed by GC once
+ * no value of it is reachable.
+ *
+ * @author agupta13
+ *
+ */
+public class MappedConfigParser {
+
+    private static final byte GROUP_START_TAG = '[';
+
+    private static final byte GROUP_END_TAG = ']';
+
+    private static final byte COMMENT_TAG = ';';
+
+    private static final byte PROPERTY_TOKENIZER = '=';
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedConfigParser.class);
+
+    public static void parse(File configFile, ConfigParser.Handler handler) throws ConfigLoaderException {
+        ByteBuffer buffer = read(configFile);
+        if (buffer == null) {
+            logger.warn("Config file={} is too large to buffer, streaming it instead", configFile);
+            ConfigParser.parse(configFile, handler);
+            return;
+        }
+        parse(buffer, handler);
+    }
+
+    /**
+     * Read whole file into a direct buffer owned by the caller, later changes of the file don't affect it
+     *
+     * @param configFile
+     * @return buffer from 0 to file size, null if file is larger than a buffer can hold
+     * @throws ConfigLoaderException
+     */
+    static ByteBuffer read(File configFile) throws ConfigLoaderException {
+        try (FileChannel channel = FileChannel.open(configFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+            // a file truncated while reading is parsed up to where it ended
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                continue;
+            }
+            buffer.flip();
+            return buffer;
+        } catch (IOException e) {
+            logger.error("Error reading configFile=" + configFile);
+            throw new ConfigLoaderException(ConfigLoaderError.FAILED_TO_READ_CONFIG_FILE, "Error reading configFile="
+                    + configFile);
+        }
+    }
+
+    /**
+     * Parse buffer from 0 to limit, buffer position is not used or modified
+     *
+     * @param buffer
+     * @param handler
+     * @throws ConfigLoaderException
+     */
+    public static void parse(ByteBuffer buffer, ConfigParser.Handler handler) throws ConfigLoaderException {
+        String propertyGroup = null;
+        byte[] scratch = new byte[256];
+        int limit = buffer.limit();
+        int next = 0;
+        while (next < limit) {
+            int lineStart = next;
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n' && buffer.get(lineEnd) != '\r') {
+                lineEnd++;
+            }
+            next = lineEnd + 1;
+            if (lineEnd < limit && buffer.get(lineEnd) == '\r' && next < limit && buffer.get(next) == '\n') {
+                next++;
+            }
+
+            // trim by index
+            int start = lineStart;
+            int end = lineEnd;
+            while (start < end && isWhitespace(buffer.get(start))) {
+                start++;
+            }
+            while (end > start && isWhitespace(buffer.get(end - 1))) {
+                end--;
+            }
+            if (start == end || buffer.get(start) == COMMENT_TAG) {
+                continue;
+            }
+
+            if (buffer.get(start) == GROUP_START_TAG && buffer.get(end - 1) == GROUP_END_TAG && end - start > 1) {
+                scratch = ensureCapacity(scratch, end - start);
+                propertyGroup = decode(buffer, start + 1, end - 1, scratch);
+                continue;
+            }
+
+            // error case blank property group
+            if (StringUtils.isBlank(propertyGroup)) {
+                logger.error("Property can't have blank group");
+                throw new ConfigLoaderException(ConfigLoaderError.PROPERTY_GROUP_NULL,
+                        "Property can't have blank group");
+            }
+
+            // error case property don't have =
+            int tokenizer = indexOf(buffer, PROPERTY_TOKENIZER, start, end);
+            if (tokenizer == -1) {
+                String line = decode(buffer, start, end, ensureCapacity(scratch, end - start));
+                logger.error("Found config line={}, which is niether a group, comment or prpoperty. "
+                        + "Please check property file", line);
+                throw new ConfigLoaderException(ConfigLoaderError.INVALID_PROPERTY_DEFINITION, "Found config line="
+                        + line + ", which is niether a group, comment or prpoperty. Please check property file");
+            }
+
+            // exactly one key and one value, trailing = are ignored
+            int valueEnd = end;
+            while (valueEnd > tokenizer + 1 && buffer.get(valueEnd - 1) == PROPERTY_TOKENIZER) {
+                valueEnd--;
+            }
+            if (valueEnd == tokenizer + 1 || indexOf(buffer, PROPERTY_TOKENIZER, tokenizer + 1, valueEnd) != -1) {
+                String line = decode(buffer, start, end, ensureCapacity(scratch, end - start));
+                throw new ConfigLoaderException(ConfigLoaderError.INVALID_PROPERTY_DEFINITION,
+                        "Failed to read property from property file. Invalid value at line=" + line);
+            }
+
+            // if value contains comment trim it off
+            int comment = indexOf(buffer, COMMENT_TAG, tokenizer + 1, valueEnd);
+            if (comment != -1) {
+                valueEnd = comment;
+            }
+
+            int keyEnd = tokenizer;
+            while (keyEnd > start && isWhitespace(buffer.get(keyEnd - 1))) {
+                keyEnd--;
+            }
+            int valueStart = tokenizer + 1;
+            while (valueStart < valueEnd && isWhitespace(buffer.get(valueStart))) {
+                valueStart++;
+            }
+            while (valueEnd > valueStart && isWhitespace(buffer.get(valueEnd - 1))) {
+                valueEnd--;
+            }
+
+            scratch = ensureCapacity(scratch, keyEnd - start);
+            handler.property(propertyGroup, decode(buffer, start, keyEnd, scratch), new MappedValue(buffer,
+                    valueStart, valueEnd - valueStart));
+        }
+    }
+
+    /**
+     * same as String.trim(), control characters and space. UTF-8 multi byte sequences are never whitespace.
+     */
+    private static boolean isWhitespace(byte b) {
+        return (b & 0xff) <= ' ';
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] ensureCapacity(byte[] scratch, int length) {
+        return scratch.length >= length ? scratch : new byte[Math.max(length, scratch.length * 2)];
+    }
+
+    private static String decode(ByteBuffer buffer, int from, int to, byte[] scratch) {
+        for (int i = from; i < to; i++) {
+            scratch[i - from] = buffer.get(i);
+        }
+        return new String(scratch, 0, to - from, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,71 @@
+package com.twitter.config.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 value text viewed in place in the direct buffer the parser read the file into, decoded to String on first use
+ * 
+ * @author agupta13
+ * 
+ */
+public final class MappedValue implements CharSequence {
+
+    private final ByteBuffer buffer;
+
+    private final int offset;
+
+    private final int length;
+
+    private String decoded;
+
+    public MappedValue(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    /**
+     * @return true if both hold the same UTF-8 bytes, compared without decoding
+     */
+    public boolean contentEquals(MappedValue other) {
+        if (length != other.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(offset + i) != other.buffer.get(other.offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        String value = decoded;
+        if (value == null) {
+            byte[] bytes = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset);
+            view.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            decoded = value;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,196 @@
+package com.twitter.config.parser;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.twitter.config.exception.ConfigLoaderException;
+
+/**
+ * Parses large config files on a ForkJoinPool. The file is read into a direct buffer, see MappedConfigParser, and split
+ * into chunks starting at [group] header lines, each chunk is parsed by {@link MappedConfigParser} into its own
+ * handler. Handlers are returned in file order so the caller can merge them with the same last-wins semantics as a
+ * sequential parse. On errors the exception of the first failing chunk in file order is thrown, which is the error a
+ * sequential parse would report.
+ *
+ * @author agupta13
+ *
+ */
+public class ParallelConfigParser {
+
+    /**
+     * files are split in chunks of at least this size, smaller files are parsed by the calling thread
+     */
+    static final int MIN_CHUNK_SIZE = 256 * 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelConfigParser.class);
+
+    /**
+     * Creates the handler receiving properties of one chunk
+     */
+    public interface HandlerFactory<H extends ConfigParser.Handler> {
+
+        H newHandler();
+    }
+
+    private static class PoolHolder {
+
+        private static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    /**
+     * @param configFile
+     * @param factory
+     * @return chunk handlers in file order
+     * @throws ConfigLoaderException
+     */
+    public static <H extends ConfigParser.Handler> List<H> parse(File configFile, HandlerFactory<H> factory)
+            throws ConfigLoaderException {
+        return parse(configFile, factory, MIN_CHUNK_SIZE);
+    }
+
+    static <H extends ConfigParser.Handler> List<H> parse(File configFile, HandlerFactory<H> factory, int chunkSize)
+            throws ConfigLoaderException {
+        ByteBuffer buffer = MappedConfigParser.read(configFile);
+        if (buffer == null) {
+            logger.warn("Config file={} is too large to buffer, streaming it instead", configFile);
+            H handler = factory.newHandler();
+            ConfigParser.parse(configFile, handler);
+            List<H> handlers = new ArrayList<H>();
+            handlers.add(handler);
+            return handlers;
+        }
+        return parse(buffer, factory, chunkSize);
+    }
+
+    static <H extends ConfigParser.Handler> List<H> parse(ByteBuffer buffer, HandlerFactory<H> factory,
+            int chunkSize) throws ConfigLoaderException {
+        int parallelism = PoolHolder.POOL.getParallelism();
+        int targetSize = Math.max(chunkSize, buffer.limit() / (parallelism * 4));
+        List<ByteBuffer> chunks = split(buffer, targetSize);
+
+        List<H> handlers = new ArrayList<H>(chunks.size());
+        if (chunks.size() == 1) {
+            H handler = factory.newHandler();
+            MappedConfigParser.parse(buffer, handler);
+            handlers.add(handler);
+            return handlers;
+        }
+
+        List<ChunkTask<H>> tasks = new ArrayList<ChunkTask<H>>(chunks.size());
+        for (ByteBuffer chunk : chunks) {
+            ChunkTask<H> task = new ChunkTask<H>(chunk, factory.newHandler());
+            PoolHolder.POOL.execute(task);
+            tasks.add(task);
+        }
+        try {
+            for (ChunkTask<H> task : tasks) {
+                task.join();
+                if (task.exception != null) {
+                    throw task.exception;
+                }
+                handlers.add(task.handler);
+            }
+        } finally {
+            for (ChunkTask<H> task : tasks) {
+                task.cancel(false);
+            }
+        }
+        return handlers;
+    }
+
+    /**
+     * parses one chunk, parse errors are kept to be reported in file order
+     */
+    private static class ChunkTask<H extends ConfigParser.Handler> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer chunk;
+
+        private final H handler;
+
+        private ConfigLoaderException exception;
+
+        private ChunkTask(ByteBuffer chunk, H handler) {
+            this.chunk = chunk;
+            this.handler = handler;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                MappedConfigParser.parse(chunk, handler);
+            } catch (ConfigLoaderException e) {
+                exception = e;
+            }
+        }
+    }
+
+    /**
+     * split buffer in chunks of about targetSize, every chunk except the first starts at a group header line
+     */
+    static List<ByteBuffer> split(ByteBuffer buffer, int targetSize) {
+        List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+        int limit = buffer.limit();
+        int start = 0;
+        while (start < limit) {
+            int end = start + targetSize >= limit || start + targetSize < 0 ? limit : nextGroup(buffer,
+                    start + targetSize);
+            ByteBuffer chunk = buffer.duplicate();
+            chunk.limit(end);
+            chunk.position(start);
+            chunks.add(chunk.slice());
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * @return start of first group header line starting after from, or limit
+     */
+    private static int nextGroup(ByteBuffer buffer, int from) {
+        int limit = buffer.limit();
+        int lineStart = nextLine(buffer, from);
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n' && buffer.get(lineEnd) != '\r') {
+                lineEnd++;
+            }
+            // same rule as MappedConfigParser: trimmed line is [...] with at least two characters
+            int start = lineStart;
+            int end = lineEnd;
+            while (start < end && (buffer.get(start) & 0xff) <= ' ') {
+                start++;
+            }
+            while (end > start && (buffer.get(end - 1) & 0xff) <= ' ') {
+                end--;
+            }
+            if (end - start > 1 && buffer.get(start) == '[' && buffer.get(end - 1) == ']') {
+                return lineStart;
+            }
+            lineStart = nextLine(buffer, lineEnd);
+        }
+        return limit;
+    }
+
+    /**
+     * @return start of line following the line containing position
+     */
+    private static int nextLine(ByteBuffer buffer, int position) {
+        int limit = buffer.limit();
+        while (position < limit && buffer.get(position) != '\n' && buffer.get(position) != '\r') {
+            position++;
+        }
+        if (position + 1 < limit && buffer.get(position) == '\r' && buffer.get(position + 1) == '\n') {
+            return position + 2;
+        }
+        return Math.min(position + 1, limit);
+    }
+}
@@ -0,0 +1,379 @@
+package com.twitter.config.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import javax.tools.StandardLocation;
+
+import com.twitter.config.annotation.ConfigAccessor;
+import com.twitter.config.annotation.ConfigProperty;
+import com.twitter.config.exception.ConfigLoaderException;
+import com.twitter.config.models.BooleanProperty;
+import com.twitter.config.models.ConfigKey;
+import com.twitter.config.models.ConfigLayers;
+import com.twitter.config.models.ConfigOptions;
+import com.twitter.config.models.DoubleProperty;
+import com.twitter.config.models.ListProperty;
+import com.twitter.config.models.LongProperty;
+import com.twitter.config.models.Property;
+import com.twitter.config.models.StringProperty;
+
+/**
+ * Generates implementations of {@link ConfigAccessor} interfaces reading their properties from ConfigSlots. Property
+ * names are checked at build time, and when the accessor names a config file every name must be defined in it (base or
+ * override) with values of the accessor's return type. Violations are compile errors on the offending method.
+ *
+ * Registered as a service, so it runs whenever config-loader is on the compile class path.
+ *
+ * @author agupta13
+ *
+ */
+@SupportedAnnotationTypes("com.twitter.config.annotation.ConfigAccessor")
+@SupportedOptions(ConfigAccessorProcessor.CONFIG_DIR_OPTION)
+public class ConfigAccessorProcessor extends AbstractProcessor {
+
+    /**
+     * directory config files named by ConfigAccessor.file are looked up in first
+     */
+    public static final String CONFIG_DIR_OPTION = "configAccessor.configDir";
+
+    private static final String IMPL_SUFFIX = "Impl";
+
+    /**
+     * accessor return types and property types they read
+     */
+    private enum ValueType {
+        LONG("long", "getLong", "0L", LongProperty.class),
+        DOUBLE("double", "getDouble", "0.0", DoubleProperty.class, LongProperty.class),
+        BOOLEAN("boolean", "getBoolean", "false", BooleanProperty.class),
+        STRING("java.lang.String", "getString", "null", StringProperty.class),
+        LIST("java.util.List<java.lang.String>", "getList", "null", ListProperty.class),
+        OBJECT("java.lang.Object", "get", "null", Property.class);
+
+        private final String typeName;
+
+        private final String getter;
+
+        private final String defaultValue;
+
+        private final Class<?>[] propertyTypes;
+
+        private ValueType(String typeName, String getter, String defaultValue, Class<?>... propertyTypes) {
+            this.typeName = typeName;
+            this.getter = getter;
+            this.defaultValue = defaultValue;
+            this.propertyTypes = propertyTypes;
+        }
+
+        private boolean reads(Class<?> propertyType) {
+            for (Class<?> type : propertyTypes) {
+                if (type.isAssignableFrom(propertyType)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static ValueType of(TypeMirror type) {
+            for (ValueType valueType : values()) {
+                if (valueType.typeName.equals(type.toString())) {
+                    return valueType;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(ConfigAccessor.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error(element, "@ConfigAccessor must annotate an interface");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            try {
+                generate(type);
+            } catch (IOException e) {
+                error(type, "Failed to generate accessor of " + type.getQualifiedName() + ", Error=" + e);
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        if (type.getModifiers().contains(Modifier.PRIVATE) || !type.getTypeParameters().isEmpty()) {
+            error(type, "@ConfigAccessor interface must be non-private and not generic");
+            return;
+        }
+        String file = type.getAnnotation(ConfigAccessor.class).file();
+        Map<String, Set<Class<?>>> definitions = null;
+        if (!file.isEmpty()) {
+            definitions = loadDefinitions(type, file);
+            if (definitions == null) {
+                return;
+            }
+        }
+
+        // property name -> slot
+        Map<String, Integer> slots = new LinkedHashMap<String, Integer>();
+        List<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+        // same method inherited from several interfaces is implemented once
+        Set<String> signatures = new HashSet<String>();
+        boolean valid = true;
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (!method.getModifiers().contains(Modifier.ABSTRACT)
+                    || !signatures.add(method.getSimpleName() + method.asType().toString())) {
+                continue;
+            }
+            if (!validate(method, file, definitions)) {
+                valid = false;
+                continue;
+            }
+            String name = method.getAnnotation(ConfigProperty.class).value();
+            if (!slots.containsKey(name)) {
+                slots.put(name, slots.size());
+            }
+            methods.add(method);
+        }
+        if (valid) {
+            write(type, slots, methods);
+        }
+    }
+
+    /**
+     * @return true if accessor method can be generated
+     */
+    private boolean validate(ExecutableElement method, String file, Map<String, Set<Class<?>>> definitions) {
+        ConfigProperty property = method.getAnnotation(ConfigProperty.class);
+        if (property == null) {
+            error(method, "Accessor method must be annotated with @ConfigProperty");
+            return false;
+        }
+        String name = property.value();
+        try {
+            ConfigKey.of(name);
+        } catch (IllegalArgumentException e) {
+            error(method, e.getMessage());
+            return false;
+        }
+        ValueType valueType = ValueType.of(method.getReturnType());
+        if (valueType == null) {
+            error(method, "Unsupported return type=" + method.getReturnType()
+                    + ", expected long, double, boolean, String, List<String> or Object");
+            return false;
+        }
+        List<? extends VariableElement> parameters = method.getParameters();
+        if (parameters.size() > 1
+                || (parameters.size() == 1 && !processingEnv.getTypeUtils().isSameType(parameters.get(0).asType(),
+                        method.getReturnType())) || !method.getThrownTypes().isEmpty()
+                || !method.getTypeParameters().isEmpty()) {
+            error(method, "Accessor method takes no parameter or a default value of its return type");
+            return false;
+        }
+        if (definitions == null) {
+            return true;
+        }
+        Set<Class<?>> propertyTypes = definitions.get(name);
+        if (propertyTypes == null) {
+            error(method, "Property name=" + name + " is not defined in config file=" + file);
+            return false;
+        }
+        for (Class<?> propertyType : propertyTypes) {
+            if (!valueType.reads(propertyType)) {
+                error(method, "Property name=" + name + " has " + propertyType.getSimpleName()
+                        + " values in config file=" + file + ", can't be read as " + method.getReturnType());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return property name -> types of its values in base and override layers, null if file can't be loaded
+     */
+    @SuppressWarnings("rawtypes")
+    private Map<String, Set<Class<?>>> loadDefinitions(TypeElement type, String file) {
+        File configFile = locate(file);
+        if (configFile == null) {
+            error(type, "Can't find config file=" + file + ", put it on the class path or set -A" + CONFIG_DIR_OPTION);
+            return null;
+        }
+        final Map<String, Set<Class<?>>> definitions = new HashMap<String, Set<Class<?>>>();
+        try {
+            ConfigLayers.load(configFile.getPath(), new ConfigOptions()).accept(new ConfigLayers.Visitor() {
+                @Override
+                public void property(String override, String group, String key, int ordinal, Property property) {
+                    String name = group + "." + key;
+                    Set<Class<?>> propertyTypes = definitions.get(name);
+                    if (propertyTypes == null) {
+                        propertyTypes = new HashSet<Class<?>>();
+                        definitions.put(name, propertyTypes);
+                    }
+                    propertyTypes.add(property.getClass());
+                }
+            });
+        } catch (ConfigLoaderException e) {
+            error(type, "Failed to load config file=" + file + ", Error=" + e.getErrorMsg());
+            return null;
+        }
+        return definitions;
+    }
+
+    /**
+     * @return config file by option directory, absolute path or class path, null if not found
+     */
+    private File locate(String file) {
+        String configDir = processingEnv.getOptions().get(CONFIG_DIR_OPTION);
+        if (configDir != null && new File(configDir, file).isFile()) {
+            return new File(configDir, file);
+        }
+        if (new File(file).isAbsolute()) {
+            return new File(file).isFile() ? new File(file) : null;
+        }
+        for (JavaFileManager.Location location : new JavaFileManager.Location[] { StandardLocation.CLASS_PATH,
+                StandardLocation.SOURCE_PATH }) {
+            try {
+                FileObject resource = processingEnv.getFiler().getResource(location, "", file);
+                URI uri = resource.toUri();
+                if ("file".equals(uri.getScheme())) {
+                    if (new File(uri).isFile()) {
+                        return new File(uri);
+                    }
+                    continue;
+                }
+                // resource in a jar, parser needs a file
+                File copy = File.createTempFile("config-accessor", ".properties");
+                copy.deleteOnExit();
+                try (InputStream in = resource.openInputStream()) {
+                    Files.copy(in, copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                return copy;
+            } catch (IOException | IllegalArgumentException e) {
+                // not in this location
+            }
+        }
+        return null;
+    }
+
+    private void write(TypeElement type, Map<String, Integer> slots, List<ExecutableElement> methods)
+            throws IOException {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = packageElement.isUnnamed() ? null : packageElement.getQualifiedName().toString();
+        String simpleName = implName(type);
+        String qualifiedName = packageName == null ? simpleName : packageName + "." + simpleName;
+
+        StringWriter source = new StringWriter();
+        try (PrintWriter out = new PrintWriter(source)) {
+            if (packageName != null) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("import com.twitter.config.models.Config;");
+            out.println("import com.twitter.config.models.ConfigKeySet;");
+            out.println("import com.twitter.config.models.ConfigSlots;");
+            out.println();
+            out.println("/**");
+            out.println(" * Generated by ConfigAccessorProcessor from " + type.getQualifiedName() + ", do not edit");
+            out.println(" */");
+            out.println("public final class " + simpleName + " implements " + type.getQualifiedName() + " {");
+            out.println();
+            out.println("    private static final String[] NAMES = {");
+            for (String name : slots.keySet()) {
+                out.println("        \"" + name.replace("\\", "\\\\").replace("\"", "\\\"") + "\",");
+            }
+            out.println("    };");
+            out.println();
+            out.println("    private final ConfigSlots slots;");
+            out.println();
+            out.println("    public " + simpleName + "(Config config) {");
+            out.println("        this.slots = new ConfigSlots(config, ConfigKeySet.of(NAMES));");
+            out.println("    }");
+            for (ExecutableElement method : methods) {
+                ValueType valueType = ValueType.of(method.getReturnType());
+                int slot = slots.get(method.getAnnotation(ConfigProperty.class).value());
+                String parameter = method.getParameters().isEmpty() ? null : method.getParameters().get(0)
+                        .getSimpleName().toString();
+                out.println();
+                out.println("    @Override");
+                out.println("    public " + valueType.typeName + " " + method.getSimpleName() + "("
+                        + (parameter == null ? "" : valueType.typeName + " " + parameter) + ") {");
+                String defaultValue = parameter == null ? valueType.defaultValue : parameter;
+                if (valueType == ValueType.OBJECT) {
+                    out.println("        Object value = slots.get(" + slot + ");");
+                    out.println("        return value == null ? " + defaultValue + " : value;");
+                } else {
+                    out.println("        return slots." + valueType.getter + "(" + slot + ", " + defaultValue + ");");
+                }
+                out.println("    }");
+            }
+            out.println("}");
+        }
+
+        // incremental builds pass previously generated sources back to the compiler, Filer can't recreate them
+        if (processingEnv.getElementUtils().getTypeElement(qualifiedName) != null) {
+            FileObject generated = processingEnv.getFiler().getResource(StandardLocation.SOURCE_OUTPUT,
+                    packageName == null ? "" : packageName, simpleName + ".java");
+            if (!source.toString().equals(generated.getCharContent(true).toString())) {
+                error(type, "Generated accessor " + qualifiedName + " is out of date, rebuild from clean");
+            }
+            return;
+        }
+        try (Writer out = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            out.write(source.toString());
+        }
+    }
+
+    /**
+     * Impl suffixed name, enclosing type names are prefixed for nested interfaces
+     */
+    private static String implName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing instanceof TypeElement) {
+            name.insert(0, enclosing.getSimpleName() + "_");
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name.append(IMPL_SUFFIX).toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,129 @@
+package com.twitter.config.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deduplicates equal strings so repeated keys, override tags, values and list elements share one instance. A pool is
+ * created per load and dropped with it; a load pool can fall back to the {@link #shared()} pool, which holds strings
+ * weakly and dedups across all configs loaded with it.
+ *
+ * Unlike String.intern() the pool is ordinary heap, it never pins strings of unloaded configs. Pools are thread-safe.
+ *
+ * @author agupta13
+ *
+ */
+public class StringPool {
+
+    /**
+     * estimated retained size of a String besides its characters: object header, fields and char array header
+     */
+    private static final int STRING_OVERHEAD = 40;
+
+    private static final StringPool SHARED = new StringPool(null, true);
+
+    private final Map<String, Object> strings;
+
+    private final boolean weak;
+
+    private final StringPool parent;
+
+    private final AtomicLong lookupCount = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    /**
+     * load scoped pool
+     */
+    public StringPool() {
+        this(null);
+    }
+
+    /**
+     * load scoped pool, strings not yet seen by this pool are looked up in parent
+     *
+     * @param parent
+     *            typically {@link #shared()}, or null
+     */
+    public StringPool(StringPool parent) {
+        this(parent, false);
+    }
+
+    private StringPool(StringPool parent, boolean weak) {
+        this.parent = parent;
+        this.weak = weak;
+        this.strings = weak ? new WeakHashMap<String, Object>() : new ConcurrentHashMap<String, Object>();
+    }
+
+    /**
+     * @return process wide pool holding strings weakly, entries go away once no config references them
+     */
+    public static StringPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param value
+     * @return pooled instance equal to value, value itself when seen first; null for null
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        lookupCount.incrementAndGet();
+        String pooled = weak ? weakIntern(value) : localIntern(value);
+        if (pooled != value) {
+            hitCount.incrementAndGet();
+            bytesSaved.addAndGet(sizeOf(value));
+        }
+        return pooled;
+    }
+
+    private String localIntern(String value) {
+        String pooled = (String) strings.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        String canonical = parent == null ? value : parent.intern(value);
+        pooled = (String) ((ConcurrentHashMap<String, Object>) strings).putIfAbsent(canonical, canonical);
+        return pooled == null ? canonical : pooled;
+    }
+
+    private synchronized String weakIntern(String value) {
+        WeakReference<?> ref = (WeakReference<?>) strings.get(value);
+        String pooled = ref == null ? null : (String) ref.get();
+        if (pooled == null) {
+            strings.put(value, new WeakReference<String>(value));
+            pooled = value;
+        }
+        return pooled;
+    }
+
+    /**
+     * @return distinct strings held
+     */
+    public int size() {
+        if (weak) {
+            synchronized (this) {
+                return strings.size();
+            }
+        }
+        return strings.size();
+    }
+
+    /**
+     * @return point in time statistics of this pool
+     */
+    public StringPoolStats stats() {
+        return new StringPoolStats(size(), lookupCount.get(), hitCount.get(), bytesSaved.get());
+    }
+
+    private static long sizeOf(String value) {
+        return STRING_OVERHEAD + 2L * value.length();
+    }
+}
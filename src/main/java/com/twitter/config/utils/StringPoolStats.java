@@ -0,0 +1,57 @@
+package com.twitter.config.utils;
+
+/**
+ * Point in time snapshot of StringPool statistics
+ * 
+ * @author agupta13
+ * 
+ */
+public class StringPoolStats {
+
+    private final int size;
+
+    private final long lookupCount;
+
+    private final long hitCount;
+
+    private final long bytesSaved;
+
+    public StringPoolStats(int size, long lookupCount, long hitCount, long bytesSaved) {
+        this.size = size;
+        this.lookupCount = lookupCount;
+        this.hitCount = hitCount;
+        this.bytesSaved = bytesSaved;
+    }
+
+    /**
+     * @return distinct strings held by the pool
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public long getLookupCount() {
+        return lookupCount;
+    }
+
+    /**
+     * @return lookups answered with an already pooled instance
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return estimated bytes of duplicate strings made unreachable by returning pooled instances, assuming two bytes
+     *         per character
+     */
+    public long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    @Override
+    public String toString() {
+        return "StringPoolStats [size=" + size + ", lookupCount=" + lookupCount + ", hitCount=" + hitCount
+                + ", bytesSaved=" + bytesSaved + "]";
+    }
+}
@@ -0,0 +1,427 @@
+package com.twitter.config.binary;
+
+import static com.twitter.config.utils.ConfigLoaderUtils.getResourceFilePath;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.twitter.config.cache.InMemoryConfigCacheStore;
+import com.twitter.config.exception.ConfigLoaderError;
+import com.twitter.config.exception.ConfigLoaderException;
+import com.twitter.config.loader.ConfigLoader;
+import com.twitter.config.models.Config;
+import com.twitter.config.models.ConfigChange;
+import com.twitter.config.models.ConfigHandle;
+import com.twitter.config.models.ConfigImpl;
+import com.twitter.config.models.ConfigLayers;
+import com.twitter.config.models.ConfigListeners;
+import com.twitter.config.models.ConfigOptions;
+import com.twitter.config.models.ConfigSnapshot;
+import com.twitter.config.models.ConfigSource;
+import com.twitter.config.models.Property;
+
+/**
+ * 
+ * @author agupta13
+ * 
+ */
+public class BinaryConfigTest {
+
+    private static final String SAMPLE_CONFIG_FILE = "sample.properties";
+
+    @SuppressWarnings("unchecked")
+    @Test(enabled = true, groups = "unit")
+    public void testSnapshotMatchesParsedConfigPositiveTest() throws Exception {
+        File source = copySample();
+        File snapshotFile = new File(source.getPath() + ".snapshot");
+        ConfigImpl parsed = new ConfigImpl(source.getPath(), null);
+        BinaryConfigCompiler.compile(parsed, source, snapshotFile);
+        BinarySnapshot snapshot = BinarySnapshot.open(snapshotFile);
+        Assert.assertTrue(snapshot.isCompiledFrom(source));
+        Assert.assertEquals(snapshot.getOverrideNames(), parsed.getLayers().getOverrideNames());
+
+        for (List<String> overrides : Arrays.asList(null, Collections.singletonList("production"),
+                Arrays.asList("itscript", "ubuntu", "test"), Arrays.asList("ubuntu", "staging"))) {
+            ConfigImpl expected = new ConfigImpl(source.getPath(), overrides);
+            Config actual = snapshot.newConfig(overrides);
+            for (String group : expected.getProperties().keySet()) {
+                for (Object entry : expected.getProperties().get(group).values()) {
+                    String key = group + "." + ((Property) entry).getKey();
+                    Assert.assertEquals(actual.get(key), expected.get(key), key + " overrides=" + overrides);
+                }
+            }
+            Assert.assertEquals(actual.keysWithPrefix(""), expected.keysWithPrefix(""), "overrides=" + overrides);
+            Assert.assertNull(actual.get("wrong-key"));
+            Assert.assertNull(actual.get("ftp.missing"));
+        }
+
+        Config config = snapshot.newConfig(null);
+        Assert.assertEquals(config.getLong("common.paid_users_size_limit", 0), 2147483648L);
+        Assert.assertEquals(config.getDouble("common.basic_size_limit", 0), 26214400d);
+        Assert.assertEquals(config.getList("http.params", null), Arrays.asList("array", "of", "values"));
+        Assert.assertEquals(config.getLong("ftp.path", -1), -1);
+    }
+
+    /* binary configs are diffed on encoded values, with the same changes as a diff of their properties */
+    @Test(enabled = true, groups = "unit")
+    public void testBinaryDiffMatchesPropertyDiffPositiveTest() throws Exception {
+        File source = copySample();
+        ConfigImpl parsed = new ConfigImpl(source.getPath(), null);
+        BinarySnapshot snapshot = BinarySnapshot.offHeap(parsed.getLayers());
+        FileUtils.writeStringToFile(source, "[ftp]\npath = /x\nenabled = no\n[new]\nlist = a,b\n");
+        BinarySnapshot changed = BinarySnapshot.offHeap(new ConfigImpl(source.getPath(), null).getLayers());
+        List<List<String>> overrideSets = Arrays.asList(null, Collections.singletonList("production"),
+                Arrays.asList("ubuntu", "staging"));
+        for (List<String> from : overrideSets) {
+            for (List<String> to : overrideSets) {
+                for (BinarySnapshot next : Arrays.asList(snapshot, changed)) {
+                    ConfigSnapshot previousConfig = snapshot.newConfig(from);
+                    ConfigSnapshot nextConfig = next.newConfig(to);
+                    List<ConfigChange> changes = ConfigListeners.diff(previousConfig.getProperties(), nextConfig
+                            .getProperties());
+                    Set<String> expected = new TreeSet<String>();
+                    for (ConfigChange change : changes) {
+                        expected.add(change.toString());
+                    }
+                    Set<String> actual = new TreeSet<String>();
+                    for (ConfigChange change : ((BinaryConfig) nextConfig).changesSince(previousConfig)) {
+                        actual.add(change.toString());
+                    }
+                    Assert.assertEquals(actual, expected, from + " -> " + to);
+                }
+            }
+        }
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testCorruptedSnapshotNegativeTest() throws Exception {
+        File source = copySample();
+        File snapshotFile = new File(source.getPath() + ".snapshot");
+        BinaryConfigCompiler.compile(new ConfigImpl(source.getPath(), null), source, snapshotFile);
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+            file.seek(file.length() - 1);
+            int last = file.read();
+            file.seek(file.length() - 1);
+            file.write(last ^ 0xff);
+        }
+        try {
+            BinarySnapshot.open(snapshotFile);
+            Assert.fail("Corrupted snapshot should throw exception");
+        } catch (ConfigLoaderException e) {
+            Assert.assertEquals(e.getErrorCode(), ConfigLoaderError.INVALID_CONFIG_SNAPSHOT.name());
+        }
+        // loader falls back to parsing and replaces corrupted snapshot
+        Assert.assertTrue(BinarySnapshot.load(source.getPath(), new ConfigOptions()) instanceof BinarySnapshot);
+        Assert.assertTrue(BinarySnapshot.open(snapshotFile).isCompiledFrom(source));
+    }
+
+    /* a CRC-valid snapshot with offsets outside of it or a table without empty slot is rejected on open */
+    @Test(enabled = true, groups = "unit")
+    public void testMalformedSnapshotNegativeTest() throws Exception {
+        ConfigLayers layers = new ConfigImpl(copySample().getPath(), null).getLayers();
+        ByteBuffer compiled = BinaryConfigCompiler.compile(layers, 0, 0);
+        byte[] valid = new byte[compiled.remaining()];
+        compiled.get(valid);
+        Assert.assertEquals(new BinarySnapshot(ByteBuffer.wrap(valid)).newConfig(null).get("ftp.path"), "/tmp/");
+
+        ByteBuffer snapshot = ByteBuffer.wrap(valid);
+        int base = snapshot.getInt(BinaryConfigFormat.LAYER_DIRECTORY_OFFSET);
+        int capacity = snapshot.getInt(base + 4);
+        int table = snapshot.getInt(base + 8);
+        int occupied = table;
+        while (snapshot.getInt(occupied + BinaryConfigFormat.SLOT_GROUP) == 0) {
+            occupied += BinaryConfigFormat.SLOT_SIZE;
+        }
+        for (int corruption = 0; corruption < 5; corruption++) {
+            ByteBuffer malformed = ByteBuffer.wrap(valid.clone());
+            switch (corruption) {
+            case 0:
+                malformed.putInt(base + 4, 1 << 28);
+                break;
+            case 1:
+                malformed.putInt(BinaryConfigFormat.LAYER_COUNT_OFFSET, 1 << 20);
+                break;
+            case 2:
+                malformed.putInt(occupied + BinaryConfigFormat.SLOT_KEY, Integer.MAX_VALUE - 2);
+                break;
+            case 3:
+                malformed.putInt(occupied + BinaryConfigFormat.SLOT_TYPE, BinaryConfigFormat.TYPE_LIST);
+                malformed.putLong(occupied + BinaryConfigFormat.SLOT_VALUE, -8);
+                break;
+            default:
+                // lookups of missing keys would probe forever
+                for (int slot = table; slot < table + capacity * BinaryConfigFormat.SLOT_SIZE;
+                        slot += BinaryConfigFormat.SLOT_SIZE) {
+                    malformed.putInt(slot + BinaryConfigFormat.SLOT_GROUP, malformed.getInt(occupied
+                            + BinaryConfigFormat.SLOT_GROUP));
+                }
+            }
+            CRC32 crc = new CRC32();
+            crc.update(malformed.array(), BinaryConfigFormat.HEADER_SIZE, valid.length
+                    - BinaryConfigFormat.HEADER_SIZE);
+            malformed.putInt(BinaryConfigFormat.CRC_OFFSET, (int) crc.getValue());
+            try {
+                new BinarySnapshot(malformed);
+                Assert.fail("Malformed snapshot should throw exception, corruption=" + corruption);
+            } catch (ConfigLoaderException e) {
+                Assert.assertEquals(e.getErrorCode(), ConfigLoaderError.INVALID_CONFIG_SNAPSHOT.name());
+            }
+        }
+    }
+
+    /* snapshots are written through a unique temp file, removed when the write fails */
+    @Test(enabled = true, groups = "unit")
+    public void testSnapshotWriteFailureLeavesNoTempFileNegativeTest() throws Exception {
+        File source = copySample();
+        File snapshotFile = new File(source.getPath() + ".snapshot");
+        // a non empty directory can't be replaced by the snapshot
+        Assert.assertTrue(new File(snapshotFile, "blocker").mkdirs());
+        try {
+            BinaryConfigCompiler.compile(new ConfigImpl(source.getPath(), null), source, snapshotFile);
+            Assert.fail("Snapshot should not replace a directory");
+        } catch (ConfigLoaderException e) {
+            Assert.assertEquals(e.getErrorCode(), ConfigLoaderError.FAILED_TO_WRITE_CONFIG_SNAPSHOT.name());
+        }
+        Assert.assertEquals(source.getParentFile().list().length, 2);
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testConfigLoaderUsesSnapshotPositiveTest() throws Exception {
+        File source = copySample();
+        File snapshotFile = new File(source.getPath() + ".snapshot");
+        ConfigOptions options = new ConfigOptions();
+        options.setSnapshot(true);
+
+        ConfigLoader loader = new ConfigLoader();
+        loader.setConfigOptions(options);
+        Config config = loader.load(source.getPath(), Collections.singletonList("ubuntu"));
+        Assert.assertTrue(snapshotFile.exists());
+        Assert.assertTrue(config instanceof BinaryConfig);
+        Assert.assertEquals(config.get("ftp.path"), "/etc/var/uploads");
+
+        // source changed, stale snapshot is compiled again
+        FileUtils.writeStringToFile(source, "[ftp]\npath = /changed/\n");
+        source.setLastModified(source.lastModified() + 2000);
+        Assert.assertFalse(BinarySnapshot.open(snapshotFile).isCompiledFrom(source));
+        ConfigLoader reloaded = new ConfigLoader();
+        reloaded.setConfigOptions(options);
+        Assert.assertEquals(reloaded.load(source.getPath(), null).get("ftp.path"), "/changed/");
+        Assert.assertTrue(BinarySnapshot.open(snapshotFile).isCompiledFrom(source));
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testOffHeapSnapshotReleasedOnEvictionPositiveTest() throws Exception {
+        File source = copySample();
+        List<String> overrides = Collections.singletonList("production");
+        ConfigImpl parsed = new ConfigImpl(source.getPath(), overrides);
+        BinarySnapshot snapshot = BinarySnapshot.offHeap(parsed.getLayers());
+        Assert.assertTrue(snapshot.isOffHeap());
+        Assert.assertFalse(snapshot.isCompiledFrom(source));
+        ConfigSnapshot config = snapshot.newConfig(overrides);
+        Assert.assertEquals(config.get("ftp.path"), parsed.get("ftp.path"));
+        for (String group : parsed.getProperties().keySet()) {
+            Assert.assertEquals(((BinaryConfig) config).getProperties().get(group).keySet(), parsed.getProperties()
+                    .get(group).keySet());
+            for (Object entry : parsed.getProperties().get(group).values()) {
+                String key = group + "." + ((Property) entry).getKey();
+                Assert.assertEquals(config.get(key), parsed.get(key), key);
+            }
+        }
+
+        // a handle keeps its snapshot till it publishes the next one
+        ConfigHandle handle = new ConfigHandle(config);
+        snapshot.release();
+        Assert.assertFalse(snapshot.isReleased());
+        Assert.assertEquals(handle.getString("ftp.path", null), "/srv/var/tmp/");
+        handle.swap(parsed.getLayers().newConfig(overrides));
+        Assert.assertTrue(snapshot.isReleased());
+        Assert.assertFalse(config.retain());
+        Assert.assertTrue(DirectBuffers.free(ByteBuffer.allocateDirect(16)));
+        try {
+            config.get("ftp.path");
+            Assert.fail("Released off-heap config should not be readable");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Assert.assertEquals(handle.getString("ftp.path", null), "/srv/var/tmp/");
+
+        ConfigOptions options = new ConfigOptions();
+        options.setOffHeap(true);
+        ConfigLoader loader = new ConfigLoader(1);
+        loader.setConfigOptions(options);
+        ConfigSnapshot first = (ConfigSnapshot) loader.load(source.getPath(), overrides);
+        Config unretained = loader.load(source.getPath(), null);
+        Assert.assertTrue(first instanceof BinaryConfig);
+        Assert.assertEquals(first.getString("ftp.path", null), "/srv/var/tmp/");
+        Assert.assertEquals(first.getList("http.params", null), Arrays.asList("array", "of", "values"));
+        Assert.assertTrue(first.retain());
+
+        // loading another file evicts the first one, its memory is freed with the last reference
+        File other = copySample();
+        Assert.assertEquals(loader.load(other.getPath(), null).get("ftp.path"), "/tmp/");
+        Assert.assertFalse(loader.getSourceCache().contains(source.getCanonicalPath()));
+        Assert.assertEquals(first.getLong("common.basic_size_limit", 0), 26214400L);
+        Assert.assertEquals(unretained.getString("ftp.path", null), "/tmp/");
+        first.release();
+        Assert.assertTrue(((BinaryConfig) first).getSnapshot().isReleased());
+        try {
+            first.getLong("common.basic_size_limit", 0);
+            Assert.fail("Evicted off-heap config should not be readable");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Config reloaded = loader.load(source.getPath(), overrides);
+        Assert.assertNotSame(reloaded, first);
+        Assert.assertEquals(reloaded.getLong("common.basic_size_limit", 0), 26214400L);
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testSharedSnapshotPublishedOncePositiveTest() throws Exception {
+        final File source = copySample();
+        File directory = new File(source.getParentFile(), "shared");
+        final SharedSnapshotStore store = new SharedSnapshotStore(directory);
+        Assert.assertEquals(store.getGeneration(source.getPath()), 0);
+
+        // another process publishes, this one attaches without parsing
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                PublishSnapshot.class.getName(), directory.getPath(), source.getPath()).inheritIO().start();
+        Assert.assertEquals(process.waitFor(), 0);
+        Assert.assertEquals(store.getGeneration(source.getPath()), 1);
+        ConfigSource attached = store.load(source.getPath(), new ConfigOptions());
+        Assert.assertTrue(attached instanceof BinarySnapshot);
+        Assert.assertEquals(store.getGeneration(source.getPath()), 1);
+        Assert.assertEquals(attached.newConfig(Collections.singletonList("staging")).get("ftp.path"), "/srv/uploads/");
+
+        // changed file is published once however many callers reload it
+        FileUtils.writeStringToFile(source, "[ftp]\npath = /changed/\n");
+        source.setLastModified(source.lastModified() + 2000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<ConfigSource>> reloads = new ArrayList<Future<ConfigSource>>();
+        for (int i = 0; i < 4; i++) {
+            reloads.add(executor.submit(new Callable<ConfigSource>() {
+                @Override
+                public ConfigSource call() throws Exception {
+                    return store.publish(source.getPath(), new ConfigOptions());
+                }
+            }));
+        }
+        for (Future<ConfigSource> reload : reloads) {
+            Assert.assertEquals(reload.get().newConfig(null).get("ftp.path"), "/changed/");
+        }
+        executor.shutdown();
+        Assert.assertEquals(store.getGeneration(source.getPath()), 2);
+
+        ConfigOptions options = new ConfigOptions();
+        options.setSharedSnapshotDirectory(directory.getPath());
+        ConfigLoader loader = new ConfigLoader();
+        loader.setConfigOptions(options);
+        Config config = loader.load(source.getPath(), null);
+        Assert.assertTrue(config instanceof BinaryConfig);
+        Assert.assertEquals(config.get("ftp.path"), "/changed/");
+        Assert.assertEquals(store.getGeneration(source.getPath()), 2);
+        Assert.assertFalse(new File(source.getPath() + ".snapshot").exists());
+    }
+
+    /* store creates its directory owner-only and doesn't use a directory others can write to */
+    @Test(enabled = true, groups = "unit")
+    public void testSharedSnapshotDirectoryWritableByOthersNegativeTest() throws Exception {
+        File source = copySample();
+        File directory = new File(source.getParentFile(), "shared");
+        SharedSnapshotStore store = new SharedSnapshotStore(directory);
+        Assert.assertTrue(store.load(source.getPath(), new ConfigOptions()) instanceof BinarySnapshot);
+        Assert.assertEquals(PosixFilePermissions.toString(Files.getPosixFilePermissions(directory.toPath())),
+                "rwx------");
+
+        File open = new File(source.getParentFile(), "open");
+        Assert.assertTrue(open.mkdir());
+        Files.setPosixFilePermissions(open.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+        ConfigSource parsed = new SharedSnapshotStore(open).load(source.getPath(), new ConfigOptions());
+        Assert.assertTrue(parsed instanceof ConfigLayers);
+        Assert.assertEquals(parsed.newConfig(null).get("ftp.path"), "/tmp/");
+        Assert.assertEquals(open.list().length, 0);
+    }
+
+    /* keys resolve like key.split("\\.") whatever the options, trailing delimiters are ignored */
+    @Test(enabled = true, groups = "unit")
+    public void testTrailingDelimiterKeyInEveryModePositiveTest() throws Exception {
+        File source = copySample();
+        InMemoryConfigCacheStore store = new InMemoryConfigCacheStore();
+        List<Config> configs = new ArrayList<Config>();
+        configs.add(new ConfigImpl(source.getPath(), null));
+        for (int mode = 0; mode < 7; mode++) {
+            ConfigOptions options = new ConfigOptions();
+            options.setLazy(mode == 1);
+            options.setOffHeapValues(mode == 2);
+            options.setSnapshot(mode == 3);
+            options.setOffHeap(mode == 4);
+            if (mode == 5) {
+                options.setSharedSnapshotDirectory(new File(source.getParentFile(), "shared").getPath());
+            }
+            ConfigLoader loader = new ConfigLoader();
+            loader.setConfigOptions(options);
+            if (mode == 6) {
+                // parsed by another loader first, this one attaches to the stored snapshot
+                loader.setCacheStore(store);
+                ConfigLoader parsing = new ConfigLoader();
+                parsing.setCacheStore(store);
+                parsing.load(source.getPath(), null);
+            }
+            configs.add(loader.load(source.getPath(), null));
+        }
+        for (Config config : configs.subList(4, configs.size())) {
+            Assert.assertTrue(config instanceof BinaryConfig);
+        }
+
+        for (Config config : configs) {
+            Assert.assertEquals(config.get("ftp.path."), "/tmp/");
+            Assert.assertEquals(config.getString("ftp.path..", null), "/tmp/");
+            Assert.assertEquals(config.getLong("common.basic_size_limit.", -1), 26214400L);
+            Assert.assertEquals(config.getList("http.params.", null), Arrays.asList("array", "of", "values"));
+            Assert.assertNull(config.get("ftp."));
+            Assert.assertNull(config.get(".path"));
+            Assert.assertNull(config.get("ftp..path"));
+            Assert.assertNull(config.get("ftp.path.x"));
+        }
+    }
+
+    /**
+     * publishes snapshot of a config file from a separate process
+     */
+    public static class PublishSnapshot {
+
+        public static void main(String[] args) throws Exception {
+            new SharedSnapshotStore(new File(args[0])).load(args[1], new ConfigOptions());
+        }
+    }
+
+    private static File copySample() throws Exception {
+        File dir = File.createTempFile("binary-config", "");
+        dir.delete();
+        dir.mkdirs();
+        dir.deleteOnExit();
+        File source = new File(dir, SAMPLE_CONFIG_FILE);
+        FileUtils.copyFile(new File(getResourceFilePath(SAMPLE_CONFIG_FILE)), source);
+        source.deleteOnExit();
+        new File(source.getPath() + ".snapshot").deleteOnExit();
+        return source;
+    }
+}
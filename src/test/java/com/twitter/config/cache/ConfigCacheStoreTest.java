@@ -0,0 +1,237 @@
+package com.twitter.config.cache;
+
+import static com.twitter.config.utils.ConfigLoaderUtils.getResourceFilePath;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.twitter.config.binary.BinaryConfig;
+import com.twitter.config.exception.ConfigLoaderError;
+import com.twitter.config.exception.ConfigLoaderException;
+import com.twitter.config.loader.ConfigLoader;
+import com.twitter.config.loader.LoadRequest;
+import com.twitter.config.loader.LoadResult;
+import com.twitter.config.models.Config;
+
+/**
+ *
+ * @author agupta13
+ *
+ */
+public class ConfigCacheStoreTest {
+
+    private static final String SAMPLE_CONFIG_FILE = "sample.properties";
+
+    @Test(enabled = true, groups = "unit")
+    public void testMemcachedPipelinedGetPositiveTest() throws Exception {
+        try (MemcachedTestServer server = new MemcachedTestServer();
+                MemcachedConfigCacheStore store = new MemcachedConfigCacheStore(server.getAddress(), 64, 0)) {
+            byte[] small = "small value".getBytes("UTF-8");
+            byte[] large = new byte[1000];
+            for (int i = 0; i < large.length; i++) {
+                large[i] = (byte) i;
+            }
+            store.put("small", small);
+            store.put("large", large);
+            // 16 chunks and manifest
+            Assert.assertEquals(server.getSetCommands(), 18);
+
+            Map<String, byte[]> values = store.getAll(Arrays.asList("small", "large", "missing"));
+            Assert.assertEquals(values.size(), 2);
+            Assert.assertEquals(values.get("small"), small);
+            Assert.assertEquals(values.get("large"), large);
+            // one get for the keys, one for all chunks
+            Assert.assertEquals(server.getGetCommands(), 2);
+            Assert.assertNull(store.get("missing"));
+
+            List<String> keys = new ArrayList<String>();
+            for (int i = 0; i < 250; i++) {
+                keys.add("key" + i);
+                store.put("key" + i, Integer.toString(i).getBytes("UTF-8"));
+            }
+            int getCommands = server.getGetCommands();
+            values = store.getAll(keys);
+            Assert.assertEquals(values.size(), 250);
+            Assert.assertEquals(new String(values.get("key249"), "UTF-8"), "249");
+            Assert.assertEquals(server.getGetCommands() - getCommands,
+                    (250 + MemcachedConfigCacheStore.GET_BATCH_SIZE - 1) / MemcachedConfigCacheStore.GET_BATCH_SIZE);
+
+            // value with an evicted chunk is absent
+            server.remove("large:3");
+            Assert.assertNull(store.get("large"));
+        }
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testMemcachedInvalidKeyNegativeTest() throws Exception {
+        try (MemcachedTestServer server = new MemcachedTestServer();
+                MemcachedConfigCacheStore store = new MemcachedConfigCacheStore(server.getAddress(), 64, 0)) {
+            store.put("key with space", new byte[1]);
+            Assert.fail("Invalid memcached key should throw exception");
+        } catch (ConfigLoaderException e) {
+            Assert.assertEquals(e.getErrorCode(), ConfigLoaderError.CONFIG_CACHE_STORE_ERROR.name());
+        }
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testConfigLoaderUsesCacheStorePositiveTest() throws Exception {
+        File source = File.createTempFile("config-cache-store", ".properties");
+        source.deleteOnExit();
+        FileUtils.copyFile(new File(getResourceFilePath(SAMPLE_CONFIG_FILE)), source);
+        List<String> overrides = Collections.singletonList("production");
+
+        InMemoryConfigCacheStore inMemory = new InMemoryConfigCacheStore();
+        ConfigLoader parsing = new ConfigLoader();
+        parsing.setCacheStore(inMemory);
+        Config parsed = parsing.load(source.getPath(), overrides);
+        Assert.assertFalse(parsed instanceof BinaryConfig);
+        Assert.assertEquals(inMemory.size(), 1);
+
+        // another JVM finds the snapshot in store and doesn't parse
+        ConfigLoader attaching = new ConfigLoader();
+        attaching.setCacheStore(inMemory);
+        Config attached = attaching.load(source.getPath(), overrides);
+        Assert.assertTrue(attached instanceof BinaryConfig);
+        Assert.assertEquals(attached.get("ftp.path"), parsed.get("ftp.path"));
+        Assert.assertEquals(attaching.load(source.getPath(), null).get("ftp.path"), "/tmp/");
+        Assert.assertEquals(inMemory.size(), 1);
+
+        try (MemcachedTestServer server = new MemcachedTestServer();
+                MemcachedConfigCacheStore memcached = new MemcachedConfigCacheStore(server.getAddress(), 256, 0)) {
+            ConfigLoader first = new ConfigLoader();
+            first.setCacheStore(memcached);
+            first.load(source.getPath(), overrides);
+            ConfigLoader second = new ConfigLoader();
+            second.setCacheStore(memcached);
+            Config config = second.load(source.getPath(), overrides);
+            Assert.assertTrue(config instanceof BinaryConfig);
+            Assert.assertEquals(config.getList("http.params", null), Arrays.asList("array", "of", "values"));
+            Assert.assertEquals(config.get("ftp.path"), "/srv/var/tmp/");
+
+            // changed content is a new key
+            FileUtils.writeStringToFile(source, "[ftp]\npath = /changed/\n");
+            ConfigLoader third = new ConfigLoader();
+            third.setCacheStore(memcached);
+            Assert.assertEquals(third.load(source.getPath(), null).get("ftp.path"), "/changed/");
+        }
+
+        // unreachable store falls back to parsing
+        MemcachedConfigCacheStore down = new MemcachedConfigCacheStore("127.0.0.1", 1);
+        down.setTimeout(500);
+        ConfigLoader fallback = new ConfigLoader();
+        fallback.setCacheStore(down);
+        Assert.assertEquals(fallback.load(source.getPath(), null).get("ftp.path"), "/changed/");
+    }
+
+    /* a corrupt stored value is ignored like a miss, the file is parsed and its snapshot stored again */
+    @Test(enabled = true, groups = "unit")
+    public void testCacheStoreCorruptSnapshotNegativeTest() throws Exception {
+        File source = File.createTempFile("config-cache-store", ".properties");
+        source.deleteOnExit();
+        FileUtils.writeStringToFile(source, "[ftp]\npath = /tmp/\n");
+
+        CountingConfigCacheStore store = new CountingConfigCacheStore();
+        ConfigLoader parsing = new ConfigLoader();
+        parsing.setCacheStore(store);
+        parsing.load(source.getPath(), null);
+        Map.Entry<String, byte[]> stored = store.values.entrySet().iterator().next();
+        byte[] corrupt = stored.getValue().clone();
+        corrupt[corrupt.length - 1] ^= 0xff;
+        store.values.put(stored.getKey(), corrupt);
+
+        ConfigLoader attaching = new ConfigLoader();
+        attaching.setCacheStore(store);
+        Config config = attaching.load(source.getPath(), null);
+        Assert.assertFalse(config instanceof BinaryConfig);
+        Assert.assertEquals(config.get("ftp.path"), "/tmp/");
+        Assert.assertEquals(store.values.get(stored.getKey()), stored.getValue());
+    }
+
+    /* loadAllAsync looks up all files in one batched store request */
+    @Test(enabled = true, groups = "unit")
+    public void testLoadAllAsyncBatchesStoreLookupsPositiveTest() throws Exception {
+        CountingConfigCacheStore store = new CountingConfigCacheStore();
+        List<LoadRequest> requests = new ArrayList<LoadRequest>();
+        ConfigLoader parsing = new ConfigLoader();
+        parsing.setCacheStore(store);
+        for (int i = 0; i < 3; i++) {
+            File source = File.createTempFile("config-cache-store", ".properties");
+            source.deleteOnExit();
+            FileUtils.writeStringToFile(source, "[ftp]\npath = /tmp/" + i + "\n");
+            parsing.load(source.getPath(), null);
+            requests.add(new LoadRequest(source.getPath(), null));
+            requests.add(new LoadRequest(source.getPath(), Collections.singletonList("production")));
+        }
+        Assert.assertEquals(store.values.size(), 3);
+        store.gets.set(0);
+
+        ConfigLoader loader = new ConfigLoader();
+        loader.setCacheStore(store);
+        try {
+            Map<LoadRequest, CompletableFuture<LoadResult>> results = loader.loadAllAsync(requests);
+            for (int i = 0; i < requests.size(); i++) {
+                Config config = results.get(requests.get(i)).get(10, TimeUnit.SECONDS).getConfig();
+                Assert.assertTrue(config instanceof BinaryConfig);
+                Assert.assertEquals(config.get("ftp.path"), "/tmp/" + i / 2);
+            }
+            Assert.assertEquals(store.getAlls.get(), 1);
+            Assert.assertEquals(store.gets.get(), 0);
+            Assert.assertEquals(loader.getSourceCache().stats().getLoadSuccessCount(), 3);
+        } finally {
+            loader.close();
+        }
+    }
+
+    /**
+     * in memory store counting lookups
+     */
+    private static class CountingConfigCacheStore implements ConfigCacheStore {
+
+        private final Map<String, byte[]> values = new ConcurrentHashMap<String, byte[]>();
+
+        private final AtomicInteger gets = new AtomicInteger();
+
+        private final AtomicInteger getAlls = new AtomicInteger();
+
+        @Override
+        public byte[] get(String key) {
+            gets.incrementAndGet();
+            return values.get(key);
+        }
+
+        @Override
+        public Map<String, byte[]> getAll(Collection<String> keys) {
+            getAlls.incrementAndGet();
+            Map<String, byte[]> found = new HashMap<String, byte[]>();
+            for (String key : keys) {
+                if (values.containsKey(key)) {
+                    found.put(key, values.get(key));
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public void put(String key, byte[] value) {
+            values.put(key, value);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
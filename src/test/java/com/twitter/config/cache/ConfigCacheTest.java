@@ -0,0 +1,138 @@
+package com.twitter.config.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.twitter.config.exception.ConfigLoaderError;
+import com.twitter.config.exception.ConfigLoaderException;
+
+/**
+ *
+ * @author agupta13
+ *
+ */
+public class ConfigCacheTest {
+
+    @Test(enabled = true, groups = "unit")
+    public void testConcurrentGetLoadsOnce() throws Exception {
+        final ConfigCache<String, Object> cache = new ConfigCache<String, Object>(10);
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ConfigCache.Loader<Object> loader = new ConfigCache.Loader<Object>() {
+            @Override
+            public Object load() {
+                loads.incrementAndGet();
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new Object();
+            }
+        };
+
+        int threads = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() throws Exception {
+                        start.await();
+                        return cache.get("key", loader);
+                    }
+                }));
+            }
+            start.countDown();
+            Object first = results.get(0).get();
+            for (Future<Object> result : results) {
+                Assert.assertSame(result.get(), first);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(loads.get(), 1);
+        CacheStats stats = cache.stats();
+        Assert.assertEquals(stats.getMissCount(), 1);
+        Assert.assertEquals(stats.getHitCount(), threads - 1);
+        Assert.assertEquals(stats.getLoadSuccessCount(), 1);
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        ConfigCache<String, String> cache = new ConfigCache<String, String>(2);
+        cache.get("a", value("a"));
+        Thread.sleep(1);
+        cache.get("b", value("b"));
+        Thread.sleep(1);
+        // touch a so b becomes least recently used
+        cache.get("a", value("a"));
+        Thread.sleep(1);
+        cache.get("c", value("c"));
+
+        Assert.assertEquals(cache.size(), 2);
+        Assert.assertEquals(cache.getIfPresent("a"), "a");
+        Assert.assertNull(cache.getIfPresent("b"));
+        Assert.assertEquals(cache.getIfPresent("c"), "c");
+        Assert.assertEquals(cache.stats().getEvictionCount(), 1);
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testEvictionQueueStaysBounded() throws Exception {
+        ConfigCache<String, String> cache = new ConfigCache<String, String>(100);
+        cache.get("hot", value("hot"));
+        for (int i = 0; i < 10000; i++) {
+            cache.get("hot", value("hot"));
+            cache.get("key" + i, value("key" + i));
+            if (i % 2 == 0) {
+                cache.invalidate("key" + i);
+            }
+        }
+        Assert.assertEquals(cache.size(), 100);
+        // referenced entry gets its second chance on every pass
+        Assert.assertEquals(cache.getIfPresent("hot"), "hot");
+        Assert.assertTrue(cache.getEvictionQueueSize() <= 2 * cache.getMaximumSize() + 1, "queue size="
+                + cache.getEvictionQueueSize());
+        cache.invalidateAll();
+        Assert.assertEquals(cache.getEvictionQueueSize(), 0);
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testFailedLoadIsNotCached() throws Exception {
+        ConfigCache<String, String> cache = new ConfigCache<String, String>(2);
+        try {
+            cache.get("a", new ConfigCache.Loader<String>() {
+                @Override
+                public String load() throws ConfigLoaderException {
+                    throw new ConfigLoaderException(ConfigLoaderError.CONFIG_FILE_NOT_FOUND);
+                }
+            });
+            Assert.fail("Failed load should throw exception");
+        } catch (ConfigLoaderException ex) {
+            Assert.assertEquals(ex.getErrorCode(), ConfigLoaderError.CONFIG_FILE_NOT_FOUND.name());
+        }
+        Assert.assertEquals(cache.size(), 0);
+        Assert.assertEquals(cache.get("a", value("a")), "a");
+        Assert.assertEquals(cache.stats().getLoadFailureCount(), 1);
+    }
+
+    private static ConfigCache.Loader<String> value(final String value) {
+        return new ConfigCache.Loader<String>() {
+            @Override
+            public String load() {
+                return value;
+            }
+        };
+    }
+}
@@ -0,0 +1,163 @@
+package com.twitter.config.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loopback stand-in for memcached supporting the get and set commands of the text protocol, for tests
+ *
+ * @author agupta13
+ *
+ */
+public class MemcachedTestServer implements Closeable {
+
+    private final ServerSocket serverSocket;
+
+    private final Map<String, Item> items = new ConcurrentHashMap<String, Item>();
+
+    private final AtomicInteger getCommands = new AtomicInteger();
+
+    private final AtomicInteger setCommands = new AtomicInteger();
+
+    public MemcachedTestServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "memcached-test-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+    }
+
+    public int getGetCommands() {
+        return getCommands.get();
+    }
+
+    public int getSetCommands() {
+        return setCommands.get();
+    }
+
+    /**
+     * simulate eviction
+     */
+    public void remove(String key) {
+        items.remove(key);
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                Thread connection = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                }, "memcached-test-connection");
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket connection = socket) {
+            InputStream in = new BufferedInputStream(connection.getInputStream());
+            OutputStream out = new BufferedOutputStream(connection.getOutputStream());
+            String line;
+            while ((line = readLine(in)) != null) {
+                String[] command = line.split(" ");
+                if ("get".equals(command[0])) {
+                    getCommands.incrementAndGet();
+                    for (int i = 1; i < command.length; i++) {
+                        Item item = items.get(command[i]);
+                        if (item != null) {
+                            write(out, "VALUE " + command[i] + " " + item.flags + " " + item.data.length);
+                            out.write(item.data);
+                            write(out, "");
+                        }
+                    }
+                    write(out, "END");
+                } else if ("set".equals(command[0])) {
+                    setCommands.incrementAndGet();
+                    byte[] data = new byte[Integer.parseInt(command[4])];
+                    int read = 0;
+                    while (read < data.length) {
+                        int count = in.read(data, read, data.length - read);
+                        if (count == -1) {
+                            return;
+                        }
+                        read += count;
+                    }
+                    readLine(in);
+                    items.put(command[1], new Item(Integer.parseInt(command[2]), data));
+                    write(out, "STORED");
+                } else {
+                    write(out, "ERROR");
+                }
+                // replies of pipelined commands are flushed once all buffered commands are handled
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // client disconnected
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                byte[] bytes = line.toByteArray();
+                int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+            }
+            line.write(b);
+        }
+        return null;
+    }
+
+    private static void write(OutputStream out, String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static final class Item {
+
+        private final int flags;
+
+        private final byte[] data;
+
+        private Item(int flags, byte[] data) {
+            this.flags = flags;
+            this.data = data;
+        }
+    }
+}
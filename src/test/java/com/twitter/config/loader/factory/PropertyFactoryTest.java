@@ -1,5 +1,7 @@
 package com.twitter.config.loader.factory;
 
+import java.util.Arrays;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 import com.twitter.config.exception.ConfigLoaderException;
@@ -8,6 +10,7 @@ import com.twitter.config.models.BooleanProperty;
 import com.twitter.config.models.DoubleProperty;
 import com.twitter.config.models.ListProperty;
 import com.twitter.config.models.LongProperty;
+import com.twitter.config.models.Property;
 import com.twitter.config.models.StringProperty;
 
 public class PropertyFactoryTest {
@@ -26,6 +29,42 @@ public class PropertyFactoryTest {
         }
     }
 
+    /* lexical classification must type values exactly like parse-and-catch did */
+    @Test(enabled = true, groups = "unit")
+    public void testPropertyFactoryMatchesParseBasedTyping() throws ConfigLoaderException {
+        String[] values = { "0", "123", "-0", "+5", "-", "+", "007", "9223372036854775807", "9223372036854775808",
+                "-9223372036854775808", "-9223372036854775809", "00000000000000000000009223372036854775807",
+                "99999999999999999999", "\u0661\u0662\u0663", "1_000", " 12", "12 ", "\t1.5\n", "1.5", "-1.5", ".5",
+                "5.", ".", "1e5", "1E-5", "1e+5d", "1e", "1e+", "1.5f", "1.5F", "1.5D", "1.5dd", "1.2.3", "NaN",
+                "-NaN", "+Infinity", "-Infinity", "Infinityx", "nan", "0x10", "0x1p3", "0X1.8P1", "0x", "true",
+                "TRUE", "False", "truex", "1,2", "a,", ",", "hello", "hello world", "/srv/var/tmp/", "" };
+        for (String value : values) {
+            Property property = PropertyFactory.getProperty("test", value);
+            Property expected = parseBasedProperty(value);
+            Assert.assertEquals(property.getClass(), expected.getClass(), "value=" + value);
+            Assert.assertEquals(property.getValue(), expected.getValue(), "value=" + value);
+        }
+    }
+
+    private static Property parseBasedProperty(String value) {
+        try {
+            return new LongProperty("test", Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            // not a long
+        }
+        try {
+            return new DoubleProperty("test", Double.parseDouble(value));
+        } catch (NumberFormatException e) {
+            // not a double
+        }
+        if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            return new BooleanProperty("test", Boolean.parseBoolean(value));
+        } else if (value.contains(",")) {
+            return new ListProperty("test", Arrays.asList(value.split(",")));
+        }
+        return new StringProperty("test", value);
+    }
+
     @Test(enabled = true, groups = "unit")
     public void testPropertyFactoryEmptyValue() {
         try {
@@ -0,0 +1,107 @@
+package com.twitter.config.metrics;
+
+import static com.twitter.config.utils.ConfigLoaderUtils.getResourceFilePath;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.twitter.config.loader.ConfigLoader;
+import com.twitter.config.models.Config;
+import com.twitter.config.models.ConfigKey;
+import com.twitter.config.models.ConfigOptions;
+
+/**
+ *
+ * @author agupta13
+ *
+ */
+public class ConfigMetricsTest {
+
+    private static final String SAMPLE_CONFIG_FILE = "sample.properties";
+
+    @Test(enabled = true, groups = "unit")
+    public void testLatencyHistogramPercentilesPositiveTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10000; i++) {
+            histogram.record(i * 1000);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(snapshot.getCount(), 10000);
+        Assert.assertEquals(snapshot.getMax(), 10000L * 1000);
+        Assert.assertEquals(snapshot.getMean(), 5000.5 * 1000, 0.001);
+        // buckets are within 1/16 of recorded values
+        assertWithin(snapshot.getPercentile(50), 5000L * 1000);
+        assertWithin(snapshot.getPercentile(99), 9900L * 1000);
+        Assert.assertEquals(snapshot.getPercentile(100), snapshot.getMax());
+
+        for (long value = 0; value < 1L << 40; value = value * 3 + 1) {
+            int index = LatencyHistogram.index(value);
+            Assert.assertTrue(LatencyHistogram.highestValue(index) >= value);
+            Assert.assertTrue(index == 0 || LatencyHistogram.highestValue(index - 1) < value);
+        }
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testConfigLoaderMetricsPositiveTest() throws Exception {
+        String path = getResourceFilePath(SAMPLE_CONFIG_FILE);
+        try (ConfigLoader configLoader = new ConfigLoader()) {
+            ConfigOptions options = new ConfigOptions();
+            options.setMeteredGets(true);
+            configLoader.setConfigOptions(options);
+            // loader records into its metrics through a copy, options shared with other loaders are not changed
+            Assert.assertNull(options.getMetrics());
+            Assert.assertTrue(configLoader.getConfigOptions().isMeteredGets());
+            Config config = configLoader.load(path, Arrays.asList("production"));
+            configLoader.load(path, Arrays.asList("production"));
+
+            Assert.assertEquals(config.get("ftp.path"), "/srv/var/tmp/");
+            Assert.assertNull(config.get("ftp.missing"));
+            Assert.assertEquals(config.getLong("common.basic_size_limit", 0), 26214400L);
+            Assert.assertEquals(config.getString(ConfigKey.of("http.missing"), "default"), "default");
+
+            ConfigMetricsSnapshot metrics = configLoader.getMetrics();
+            Assert.assertEquals(metrics.getLoadLatency().getCount(), 2);
+            Assert.assertEquals(metrics.getConfigCacheStats().getHitCount(), 1);
+            Assert.assertEquals(metrics.getConfigCacheStats().getMissCount(), 1);
+            Assert.assertEquals(metrics.getParseLatency().getCount(), 1);
+            Assert.assertTrue(metrics.getParsedProperties() > 0);
+            Assert.assertTrue(metrics.getParseBytesPerSecond() > 0);
+            Assert.assertEquals(metrics.getGetCount(), 4);
+            Assert.assertEquals(metrics.getGetMissCount(), 2);
+            Assert.assertEquals(metrics.getGroupGetCounts().get("ftp"), Long.valueOf(2));
+            Assert.assertEquals(metrics.getGroupMissRates().get("ftp"), 0.5, 0.001);
+            Assert.assertEquals(metrics.getGroupMissRates().get("common"), 0.0, 0.001);
+            Assert.assertEquals(metrics.getGroupMissRates().get("http"), 1.0, 0.001);
+
+            ObjectName name = configLoader.registerMBean("metrics-test");
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            Assert.assertEquals(mbeanServer.getAttribute(name, "LoadCount"), 2L);
+            Assert.assertEquals(mbeanServer.getAttribute(name, "GetMissCount"), 2L);
+            Assert.assertEquals(mbeanServer.getAttribute(name, "ConfigCacheHitRate"), 0.5);
+            configLoader.close();
+            Assert.assertFalse(mbeanServer.isRegistered(name));
+        }
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testGroupCountersBoundedPositiveTest() {
+        ConfigMetrics metrics = new ConfigMetrics();
+        for (int i = 0; i < ConfigMetrics.MAX_GROUPS + 10; i++) {
+            metrics.recordGet("group" + i, false);
+        }
+        Map<String, Long> gets = metrics.snapshot(null, null).getGroupGetCounts();
+        Assert.assertEquals(gets.size(), ConfigMetrics.MAX_GROUPS + 1);
+        Assert.assertEquals(gets.get(ConfigMetrics.OTHER_GROUPS), Long.valueOf(10));
+    }
+
+    private static void assertWithin(long actual, long expected) {
+        Assert.assertTrue(Math.abs(actual - expected) <= expected / 16, "actual=" + actual + " expected=" + expected);
+    }
+}
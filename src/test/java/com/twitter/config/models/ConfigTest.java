@@ -2,17 +2,33 @@ package com.twitter.config.models;
 
 import static com.twitter.config.utils.ConfigLoaderUtils.getResourceFilePath;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.twitter.config.binary.BinarySnapshot;
 import com.twitter.config.exception.ConfigLoaderError;
 import com.twitter.config.exception.ConfigLoaderException;
 import com.twitter.config.models.Config;
+import com.twitter.config.utils.StringPoolStats;
 
 /**
  * 
@@ -177,6 +193,206 @@ public class ConfigTest {
         }
     }
 
+    @Test(enabled = true, groups = "unit")
+    public void testGetPropertyByConfigKeyPositiveTest() {
+        String me = "testGetPropertyByConfigKeyPositiveTest";
+        try {
+            ConfigKey ftpPath = ConfigKey.of("ftp.path");
+            ConfigKey missing = ConfigKey.of("ftp.missing");
+            Config config = new ConfigImpl(getResourceFilePath(SAMPLE_CONFIG_FILE), null);
+            Config overridden = new ConfigImpl(getResourceFilePath(SAMPLE_CONFIG_FILE), new ArrayList<String>() {
+                {
+                    add("ubuntu");
+                }
+            });
+            // same key read alternately from two configs resolves against each of them
+            for (int i = 0; i < 2; i++) {
+                Assert.assertEquals(config.get(ftpPath), "/tmp/");
+                Assert.assertEquals(overridden.get(ftpPath), "/etc/var/uploads");
+                Assert.assertNull(config.get(missing));
+            }
+            Assert.assertEquals(config.get(ConfigKey.of("common.paid_users_size_limit")), 2147483648L);
+            Assert.assertNull(config.get((ConfigKey) null));
+        } catch (Exception ex) {
+            Assert.fail(me + " Exception while get config. Error=" + ex.getMessage());
+        }
+    }
+
+    /* every config keeps its own resolution of a shared key, switching configs doesn't resolve again */
+    @SuppressWarnings("rawtypes")
+    @Test(enabled = true, groups = "unit")
+    public void testConfigKeyAlternatingConfigsResolveOncePositiveTest() throws Exception {
+        ConfigKey ftpPath = ConfigKey.of("ftp.path");
+        ConfigKey missing = ConfigKey.of("ftp.missing");
+        ConfigLayers layers = ConfigLayers.load(getResourceFilePath(SAMPLE_CONFIG_FILE), new ConfigOptions());
+        CountingSnapshot config = new CountingSnapshot(layers.newConfig(null));
+        CountingSnapshot overridden = new CountingSnapshot(layers.newConfig(Arrays.asList("production")));
+
+        Property resolved = config.resolve(ftpPath);
+        Property overriddenResolved = overridden.resolve(ftpPath);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertSame(config.resolve(ftpPath), resolved);
+            Assert.assertSame(overridden.resolve(ftpPath), overriddenResolved);
+            Assert.assertEquals(config.getString(ftpPath, null), "/tmp/");
+            Assert.assertEquals(overridden.getString(ftpPath, null), "/srv/var/tmp/");
+            Assert.assertNull(config.get(missing));
+            Assert.assertNull(overridden.get(missing));
+        }
+        // one lookup per key and config
+        Assert.assertEquals(config.lookups.get(), 2);
+        Assert.assertEquals(overridden.lookups.get(), 2);
+        // keys of the same name share a slot
+        Assert.assertSame(config.resolve(ConfigKey.of("ftp.path")), resolved);
+        Assert.assertEquals(config.lookups.get(), 2);
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testTypedGettersPositiveTest() {
+        String me = "testTypedGettersPositiveTest";
+        try {
+            Config config = new ConfigImpl(getResourceFilePath(SAMPLE_CONFIG_FILE), null);
+            Assert.assertEquals(config.getLong("common.paid_users_size_limit", -1), 2147483648L);
+            Assert.assertEquals(config.getLong(ConfigKey.of("common.basic_size_limit"), -1), 26214400L);
+            Assert.assertEquals(config.getDouble("common.basic_size_limit", -1), 26214400.0);
+            Assert.assertEquals(config.getString("ftp.path", null), "/tmp/");
+            Assert.assertEquals(config.getString(ConfigKey.of("ftp.enabled"), null), "no");
+            Assert.assertEquals(config.getList("http.params", null).size(), 3);
+            Assert.assertFalse(config.getBoolean("ftp.missing", false));
+        } catch (Exception ex) {
+            Assert.fail(me + " Exception while get config. Error=" + ex.getMessage());
+        }
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testTypedGettersDefaultValueNegativeTest() {
+        String me = "testTypedGettersDefaultValueNegativeTest";
+        try {
+            Config config = new ConfigImpl(getResourceFilePath(SAMPLE_CONFIG_FILE), null);
+            // type mismatch returns default value instead of throwing ClassCastException
+            Assert.assertEquals(config.getLong("ftp.path", -1), -1);
+            Assert.assertEquals(config.getDouble("ftp.path", -1.5), -1.5);
+            Assert.assertTrue(config.getBoolean("common.basic_size_limit", true));
+            Assert.assertEquals(config.getString("common.basic_size_limit", "default"), "default");
+            List<String> empty = Collections.emptyList();
+            Assert.assertSame(config.getList("ftp.path", empty), empty);
+            // malformed keys
+            Assert.assertEquals(config.getLong("invalid-key", 7), 7);
+            Assert.assertEquals(config.getLong("common.basic_size_limit.extra", 7), 7);
+            Assert.assertEquals(config.getLong("", 7), 7);
+            Assert.assertEquals(config.getLong((String) null, 7), 7);
+            Assert.assertEquals(config.getLong((ConfigKey) null, 7), 7);
+        } catch (Exception ex) {
+            Assert.fail(me + " Exception while get config. Error=" + ex.getMessage());
+        }
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testLoadOffHeapValuesMatchesStreamingPositiveTest() {
+        String me = "testLoadOffHeapValuesMatchesStreamingPositiveTest";
+        try {
+            List<String> overrides = new ArrayList<String>() {
+                {
+                    add("itscript");
+                    add("ubuntu");
+                }
+            };
+            ConfigOptions options = new ConfigOptions();
+            options.setOffHeapValues(true);
+            ConfigImpl streamed = new ConfigImpl(getResourceFilePath(SAMPLE_CONFIG_FILE), overrides);
+            ConfigImpl offHeap = new ConfigImpl(getResourceFilePath(SAMPLE_CONFIG_FILE), overrides, options);
+            assertSameProperties(offHeap, streamed);
+            Assert.assertEquals(offHeap.getLong("common.paid_users_size_limit", -1), 2147483648L);
+            Assert.assertEquals(offHeap.getString("ftp.path", null), "/etc/var/uploads");
+        } catch (Exception ex) {
+            Assert.fail(me + " Exception while get config. Error=" + ex.getMessage());
+        }
+    }
+
+    /* unread lazy values of a loaded config don't change when the file is rewritten in place */
+    @Test(enabled = true, groups = "unit")
+    public void testLoadOffHeapValuesFileRewrittenPositiveTest() throws Exception {
+        File configFile = File.createTempFile("mapped", ".properties");
+        configFile.deleteOnExit();
+        FileUtils.copyFile(new File(getResourceFilePath(SAMPLE_CONFIG_FILE)), configFile);
+        ConfigImpl streamed = new ConfigImpl(configFile.getPath(), Arrays.asList("production"));
+        List<ConfigImpl> configs = new ArrayList<ConfigImpl>();
+        for (boolean parallel : new boolean[] { false, true }) {
+            ConfigOptions options = new ConfigOptions();
+            options.setOffHeapValues(!parallel);
+            options.setParallel(parallel);
+            options.setLazy(true);
+            configs.add(new ConfigImpl(configFile.getPath(), Arrays.asList("production"), options));
+        }
+
+        // truncate and write, as editors and FileUtils do
+        FileUtils.writeStringToFile(configFile, "[ftp]\npath = /x\n");
+        for (ConfigImpl config : configs) {
+            assertSameProperties(config, streamed);
+            Assert.assertEquals(config.getString("ftp.path", null), "/srv/var/tmp/");
+        }
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testLoadOffHeapValuesInvalidPropertyDefNegativeTest() {
+        try {
+            ConfigOptions options = new ConfigOptions();
+            options.setOffHeapValues(true);
+            new ConfigImpl(getResourceFilePath(INVALID_PROPERTY_DEF_PROPERTIES), null, options);
+            Assert.fail("Invalid config file should throw exception");
+        } catch (Exception ex) {
+            Assert.assertTrue(ex instanceof ConfigLoaderException);
+            ConfigLoaderException e = (ConfigLoaderException) ex;
+            Assert.assertTrue(e.getErrorCode().equals(ConfigLoaderError.INVALID_PROPERTY_DEFINITION.name()));
+        }
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testLoadLazyPositiveTest() {
+        String me = "testLoadLazyPositiveTest";
+        try {
+            ConfigOptions options = new ConfigOptions();
+            options.setLazy(true);
+            ConfigImpl eager = new ConfigImpl(getResourceFilePath(SAMPLE_CONFIG_FILE), null);
+            final ConfigImpl lazy = new ConfigImpl(getResourceFilePath(SAMPLE_CONFIG_FILE), null, options);
+            Assert.assertTrue(lazy.getProperties().get("http").get("params") instanceof LazyProperty);
+
+            // concurrent first reads type the value once and all see the same list
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<Object>> results = new ArrayList<Future<Object>>();
+                for (int i = 0; i < 8; i++) {
+                    results.add(executor.submit(new Callable<Object>() {
+                        @Override
+                        public Object call() {
+                            return lazy.get("http.params");
+                        }
+                    }));
+                }
+                for (Future<Object> result : results) {
+                    Assert.assertSame(result.get(), results.get(0).get());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            assertSameProperties(lazy, eager);
+            Assert.assertEquals(lazy.getLong("common.basic_size_limit", -1), 26214400L);
+        } catch (Exception ex) {
+            Assert.fail(me + " Exception while get config. Error=" + ex.getMessage());
+        }
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testConfigKeyInvalidNameNegativeTest() {
+        for (String name : new String[] { null, "", "invalid-key", ".key", "group.", "a.b.c" }) {
+            try {
+                ConfigKey.of(name);
+                Assert.fail("Invalid property name=" + name + " should throw exception");
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+    }
+
     @Test(enabled = true, groups = "unit")
     public void testGetPropertyWithInvalidKeyNegativeTest() {
         String me = "testGetPropertyWithInvalidKeysNegativeTest";
@@ -185,10 +401,478 @@ public class ConfigTest {
             Assert.assertNull(config.get("invalid-key"));
             Assert.assertNull(config.get("invalidgrp.invakidkey"));
             Assert.assertNull(config.get(""));
-            Assert.assertNull(config.get(null));
+            Assert.assertNull(config.get((String) null));
         } catch (Exception ex) {
             Assert.fail(me + " Exception while get config. Error=" + ex.getMessage());
         }
     }
 
+    @Test(enabled = true, groups = "unit")
+    public void testOverrideViewsShareParsedLayersPositiveTest() {
+        String me = "testOverrideViewsShareParsedLayersPositiveTest";
+        try {
+            ConfigLayers layers = ConfigLayers.load(getResourceFilePath(SAMPLE_CONFIG_FILE), new ConfigOptions());
+            Assert.assertEquals(layers.getOverrideNames().size(), 4);
+
+            ConfigImpl plain = ConfigImpl.fromLayers(layers, null);
+            ConfigImpl ubuntu = ConfigImpl.fromLayers(layers, Collections.singletonList("ubuntu"));
+            ConfigImpl staging = ConfigImpl.fromLayers(layers,
+                    Arrays.asList("ubuntu", "staging", "unknown", null));
+            Assert.assertEquals(plain.getProperties(), layers.getBase().toMap());
+            Assert.assertEquals(plain.get("ftp.path"), "/tmp/");
+            Assert.assertEquals(ubuntu.get("ftp.path"), "/etc/var/uploads");
+            // ubuntu is defined after staging in file, last definition wins
+            Assert.assertEquals(staging.get("ftp.path"), "/etc/var/uploads");
+            Assert.assertEquals(staging.get("http.path"), "/srv/uploads/");
+            Assert.assertEquals(staging.get("common.path"), "/srv/var/tmp/");
+
+            // views must match a sequential load with same overrides
+            assertSameProperties(staging, new ConfigImpl(getResourceFilePath(SAMPLE_CONFIG_FILE),
+                    Arrays.asList("ubuntu", "staging")));
+        } catch (Exception ex) {
+            Assert.fail(me + " Failed to load config file=" + SAMPLE_CONFIG_FILE + ". Error=" + ex.getMessage());
+        }
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testOverrideRedefinedWithoutTagPositiveTest() throws Exception {
+        File file = File.createTempFile("config-layers", ".properties");
+        file.deleteOnExit();
+        FileUtils.writeStringToFile(file, "[ftp]\npath<production> = /srv/\npath = /tmp/\nport<production> = 21\n");
+        Config config = new ConfigImpl(file.getAbsolutePath(), Collections.singletonList("production"));
+        Assert.assertEquals(config.get("ftp.path"), "/tmp/");
+        Assert.assertEquals(config.get("ftp.port"), 21L);
+        // override names match exactly
+        Assert.assertNull(new ConfigImpl(file.getAbsolutePath(), Collections.singletonList("prod")).get("ftp.port"));
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testLoadParallelMatchesSequentialPositiveTest() throws Exception {
+        // large enough to be split in chunks, groups and keys repeat across chunks
+        File file = File.createTempFile("config-parallel", ".properties");
+        file.deleteOnExit();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 40000; i++) {
+            if (i % 50 == 0) {
+                content.append("[group").append(i / 50 % 300).append("]\n");
+            }
+            int key = i % 50;
+            content.append("key").append(key).append("<production> = ").append(i).append('\n');
+            if (i % 3 == 0) {
+                content.append("key").append(key).append(" = value").append(i).append('\n');
+            }
+            if (i % 7 == 0) {
+                content.append("key").append(key).append("<staging> = ").append(i * 0.5).append('\n');
+            }
+        }
+        FileUtils.writeStringToFile(file, content.toString());
+        ConfigOptions parallel = new ConfigOptions();
+        parallel.setParallel(true);
+        for (List<String> overrides : Arrays.asList(null, Collections.singletonList("production"),
+                Arrays.asList("staging", "production"))) {
+            ConfigImpl expected = new ConfigImpl(file.getAbsolutePath(), overrides);
+            ConfigImpl actual = new ConfigImpl(file.getAbsolutePath(), overrides, parallel);
+            assertSameProperties(actual, expected);
+        }
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testConfigHandlePublishesNewerSnapshotPositiveTest() throws Exception {
+        ConfigLayers layers = ConfigLayers.load(getResourceFilePath(SAMPLE_CONFIG_FILE), new ConfigOptions());
+        ConfigSnapshot first = layers.newConfig(null);
+        ConfigSnapshot second = layers.newConfig(Collections.singletonList("ubuntu"));
+        Assert.assertTrue(second.getGeneration() > first.getGeneration());
+
+        ConfigHandle handle = new ConfigHandle(first);
+        Assert.assertEquals(handle.get("ftp.path"), "/tmp/");
+        Assert.assertTrue(handle.update(second));
+        Assert.assertEquals(handle.get("ftp.path"), "/etc/var/uploads");
+        // older generation never replaces a newer one
+        Assert.assertFalse(handle.update(first));
+        Assert.assertSame(handle.get(), second);
+        Assert.assertSame(handle.swap(first), second);
+
+        try {
+            first.load(getResourceFilePath(SAMPLE_CONFIG_FILE), null);
+            Assert.fail("Snapshot should be immutable");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+
+        handle.load(getResourceFilePath(SAMPLE_CONFIG_FILE), Collections.singletonList("production"));
+        Assert.assertEquals(handle.get("ftp.path"), "/srv/var/tmp/");
+        Assert.assertEquals(first.get("ftp.path"), "/tmp/");
+    }
+
+    /* views of the same layers share the maps of groups their overrides don't touch */
+    @Test(enabled = true, groups = "unit")
+    public void testLayeredConfigsShareBaseGroupMapsPositiveTest() throws Exception {
+        ConfigLayers layers = ConfigLayers.load(getResourceFilePath(SAMPLE_CONFIG_FILE), new ConfigOptions());
+        ConfigSnapshot base = layers.newConfig(null);
+        ConfigSnapshot ubuntu = layers.newConfig(Collections.singletonList("ubuntu"));
+        ConfigSnapshot production = layers.newConfig(Collections.singletonList("production"));
+
+        Assert.assertSame(layers.newConfig(null).getProperties(), base.getProperties());
+        Assert.assertSame(ubuntu.getProperties().get("common"), base.getProperties().get("common"));
+        Assert.assertSame(ubuntu.getProperties().get("http"), base.getProperties().get("http"));
+        Assert.assertSame(production.getProperties().get("common"), ubuntu.getProperties().get("common"));
+        Assert.assertNotSame(ubuntu.getProperties().get("ftp"), base.getProperties().get("ftp"));
+
+        List<ConfigChange> changes = ConfigListeners.diff(ubuntu.getProperties(), production.getProperties());
+        Assert.assertEquals(changes.size(), 2, changes.toString());
+        Assert.assertTrue(ConfigListeners.diff(base.getProperties(), layers.newConfig(null).getProperties())
+                .isEmpty());
+    }
+
+    /* lazy properties are compared by raw text, values are typed only for keys whose definition differs */
+    @Test(enabled = true, groups = "unit")
+    public void testDiffLazyConfigsKeepsUnchangedValuesRawPositiveTest() throws Exception {
+        ConfigLayers eager = ConfigLayers.load(getResourceFilePath(SAMPLE_CONFIG_FILE), new ConfigOptions());
+        List<ConfigChange> expected = ConfigListeners.diff(eager.newConfig(null).getProperties(), eager.newConfig(
+                Collections.singletonList("production")).getProperties());
+        for (boolean offHeapValues : new boolean[] { false, true }) {
+            ConfigOptions options = new ConfigOptions();
+            options.setLazy(true);
+            options.setOffHeapValues(offHeapValues);
+            ConfigSnapshot base = ConfigLayers.load(getResourceFilePath(SAMPLE_CONFIG_FILE), options).newConfig(null);
+            ConfigSnapshot production = ConfigLayers.load(getResourceFilePath(SAMPLE_CONFIG_FILE), options)
+                    .newConfig(Collections.singletonList("production"));
+            List<ConfigChange> changes = ConfigListeners.diff(base.getProperties(), production.getProperties());
+            Assert.assertEquals(changes.toString(), expected.toString());
+            LazyProperty name = (LazyProperty) base.getProperties().get("ftp").get("name");
+            Assert.assertTrue(name.hasSameRawValue((LazyProperty) production.getProperties().get("ftp").get("name")));
+        }
+    }
+
+    /* batches of concurrent publishers chain, each starts from the values the previous one ended with */
+    @Test(enabled = true, groups = "unit")
+    public void testConfigHandleConcurrentPublishersDeliverInOrderPositiveTest() throws Exception {
+        ConfigLayers layers = ConfigLayers.load(getResourceFilePath(SAMPLE_CONFIG_FILE), new ConfigOptions());
+        List<String> overrides = Arrays.asList(null, "ubuntu", "production");
+        final List<ConfigSnapshot> snapshots = new ArrayList<ConfigSnapshot>();
+        for (int i = 0; i < 400; i++) {
+            snapshots.add(layers.newConfig(Collections.singletonList(overrides.get(i % overrides.size()))));
+        }
+        final ConfigHandle handle = new ConfigHandle(layers.newConfig(null));
+        final List<ConfigChange> changes = new CopyOnWriteArrayList<ConfigChange>();
+        handle.getListeners().addListener(new ConfigChangeListener() {
+            @Override
+            public void onChange(List<ConfigChange> batch, ConfigSnapshot snapshot) {
+                changes.addAll(batch);
+            }
+        }, "ftp.path");
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            futures.add(executorService.submit(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    for (int i = thread; i < snapshots.size(); i += 4) {
+                        if (i % 2 == 0) {
+                            handle.swap(snapshots.get(i));
+                        } else {
+                            handle.update(snapshots.get(i));
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Object> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executorService.shutdown();
+
+        Object last = handle.get("ftp.path");
+        long deadline = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < deadline
+                && (changes.isEmpty() || !last.equals(changes.get(changes.size() - 1).getNewValue()))) {
+            Thread.sleep(20);
+        }
+        Object previous = "/tmp/";
+        for (ConfigChange change : changes) {
+            Assert.assertEquals(change.getOldValue(), previous);
+            previous = change.getNewValue();
+        }
+        Assert.assertEquals(previous, last);
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testChangeListenersReceiveDiffPositiveTest() throws Exception {
+        File file = File.createTempFile("config-listeners", ".properties");
+        file.deleteOnExit();
+        FileUtils.writeStringToFile(file, "[ftp]\npath = /tmp/\nport = 21\n[ftp.v2]\nport = 990\n[http]\nport = 80\n"
+                + "[db]\nhost = a\n");
+        ConfigImpl config = new ConfigImpl(file.getAbsolutePath(), null);
+
+        final List<ConfigChange> all = new CopyOnWriteArrayList<ConfigChange>();
+        final List<ConfigChange> ftp = new CopyOnWriteArrayList<ConfigChange>();
+        final AtomicInteger dbCalls = new AtomicInteger();
+        final CountDownLatch delivered = new CountDownLatch(2);
+        // registered first, listeners are called in registration order
+        config.getListeners().addListener(new ConfigChangeListener() {
+            @Override
+            public void onChange(List<ConfigChange> changes, ConfigSnapshot snapshot) {
+                dbCalls.incrementAndGet();
+            }
+        }, "db.");
+        config.getListeners().addListener(new ConfigChangeListener() {
+            @Override
+            public void onChange(List<ConfigChange> changes, ConfigSnapshot snapshot) {
+                all.addAll(changes);
+                delivered.countDown();
+            }
+        });
+        config.getListeners().addGroupListener(new ConfigChangeListener() {
+            @Override
+            public void onChange(List<ConfigChange> changes, ConfigSnapshot snapshot) {
+                ftp.addAll(changes);
+                delivered.countDown();
+            }
+        }, "ftp");
+
+        FileUtils.writeStringToFile(file, "[ftp]\npath = /srv/\nport = 21\nuser = ftp\n[ftp.v2]\nport = 991\n"
+                + "[db]\nhost = a\n");
+        config.load(file.getAbsolutePath(), null);
+        Assert.assertTrue(delivered.await(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(all.size(), 4, all.toString());
+        // dotted subgroup ftp.v2 is not part of group ftp
+        Assert.assertEquals(ftp.size(), 2, ftp.toString());
+        for (ConfigChange change : all) {
+            if (change.getName().equals("ftp.path")) {
+                Assert.assertEquals(change.getType(), ConfigChange.Type.CHANGED);
+                Assert.assertEquals(change.getOldValue(), "/tmp/");
+                Assert.assertEquals(change.getNewValue(), "/srv/");
+            } else if (change.getName().equals("ftp.user")) {
+                Assert.assertEquals(change.getType(), ConfigChange.Type.ADDED);
+            } else if (change.getGroup().equals("ftp.v2")) {
+                Assert.assertEquals(change.getType(), ConfigChange.Type.CHANGED);
+            } else {
+                Assert.assertEquals(change.getName(), "http.port");
+                Assert.assertEquals(change.getType(), ConfigChange.Type.REMOVED);
+                Assert.assertEquals(change.getOldValue(), 80L);
+            }
+        }
+        // unchanged group is never delivered
+        Assert.assertEquals(dbCalls.get(), 0);
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testLoadDedupStringsPositiveTest() throws Exception {
+        List<String> overrides = Arrays.asList("production");
+        ConfigOptions options = new ConfigOptions();
+        options.setDedupStrings(true);
+        ConfigImpl plain = new ConfigImpl(getResourceFilePath(SAMPLE_CONFIG_FILE), overrides);
+        ConfigImpl deduped = new ConfigImpl(getResourceFilePath(SAMPLE_CONFIG_FILE), overrides, options);
+        assertSameProperties(deduped, plain);
+        Assert.assertNull(plain.getLayers().getStringStats());
+
+        // common.path, ftp.path<production> and http.path<production> are all /srv/var/tmp/
+        Assert.assertSame(deduped.get("ftp.path"), deduped.get("common.path"));
+        Assert.assertSame(deduped.get("http.path"), deduped.get("common.path"));
+        Assert.assertSame(deduped.getProperties().get("ftp").get("path").getKey(),
+                deduped.getProperties().get("http").get("path").getKey());
+        StringPoolStats stats = deduped.getLayers().getStringStats();
+        Assert.assertTrue(stats.getHitCount() > 0);
+        Assert.assertTrue(stats.getBytesSaved() > 0);
+        Assert.assertEquals(stats.getLookupCount(), stats.getSize() + stats.getHitCount());
+
+        options = new ConfigOptions();
+        options.setSharedStrings(true);
+        ConfigImpl first = new ConfigImpl(getResourceFilePath(SAMPLE_CONFIG_FILE), null, options);
+        ConfigImpl second = new ConfigImpl(getResourceFilePath(SAMPLE_CONFIG_FILE), overrides, options);
+        Assert.assertSame(second.get("common.path"), first.get("common.path"));
+        Assert.assertSame(second.getList("http.params", null).get(1), first.getList("http.params", null).get(1));
+        // every string of the second load was pooled by the first one
+        stats = second.getLayers().getStringStats();
+        Assert.assertEquals(stats.getHitCount(), stats.getLookupCount());
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test(enabled = true, groups = "unit")
+    public void testPropertyTableLookupPositiveTest() throws Exception {
+        Map<String, Map<String, Property>> properties = new HashMap<String, Map<String, Property>>();
+        for (int group = 0; group < 100; group++) {
+            Map<String, Property> groupMap = new HashMap<String, Property>();
+            for (int key = 0; key < 100; key++) {
+                groupMap.put("key" + key, new LongProperty("key" + key, group * 1000 + key));
+            }
+            properties.put("group" + group, groupMap);
+        }
+        properties.get("group1").put("dotted.key", new StringProperty("dotted.key", "dotted"));
+        PropertyTable table = new PropertyTable(properties);
+        Assert.assertEquals(table.size(), 10001);
+        for (Map.Entry<String, Map<String, Property>> group : properties.entrySet()) {
+            for (Map.Entry<String, Property> property : group.getValue().entrySet()) {
+                String name = group.getKey() + "." + property.getKey();
+                Assert.assertEquals(PropertyTable.hash(group.getKey(), property.getKey()), name.hashCode());
+                Assert.assertSame(table.get(name), property.getValue());
+                Assert.assertSame(table.get(group.getKey(), property.getKey()), property.getValue());
+            }
+        }
+        Assert.assertNull(table.get("group1.missing"));
+        Assert.assertNull(table.get("group100", "key1"));
+        Assert.assertEquals(table.toMap(), properties);
+
+        ConfigImpl config = new ConfigImpl(getResourceFilePath(SAMPLE_CONFIG_FILE), null);
+        config.setProperties(properties);
+        Assert.assertEquals(config.get("group5.key7"), 5007L);
+        // split based key rules: trailing delimiters ignored, more than two parts not found
+        Assert.assertEquals(config.get("group5.key7.."), 5007L);
+        Assert.assertNull(config.get("group1.dotted.key"));
+        Assert.assertNull(config.get(".key7"));
+        Assert.assertNull(config.get("group5..key7"));
+        Assert.assertEquals(config.getProperties().get("group1").get("dotted.key").getValue(), "dotted");
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test(enabled = true, groups = "unit")
+    public void testGroupViewAndKeyQueriesPositiveTest() throws Exception {
+        String path = getResourceFilePath(SAMPLE_CONFIG_FILE);
+        ConfigLayers layers = ConfigLayers.load(path, new ConfigOptions());
+        ConfigSnapshot base = layers.newConfig(null);
+        ConfigSnapshot production = layers.newConfig(Arrays.asList("production"));
+        ConfigSnapshot binary = BinarySnapshot.offHeap(layers).newConfig(Arrays.asList("production"));
+
+        ConfigGroup ftp = production.group("ftp");
+        Assert.assertEquals(ftp.getKeys(), Arrays.asList("enabled", "name", "path"));
+        Assert.assertEquals(ftp.get("path"), "/srv/var/tmp/");
+        Assert.assertEquals(ftp.getList("name", null), production.get("ftp.name"));
+        Assert.assertEquals(ftp.get("enabled"), production.get("ftp.enabled"));
+        Assert.assertNull(ftp.get("missing"));
+        Assert.assertEquals(ftp.toMap().keySet(), ftp.getKeys());
+        Assert.assertEquals(binary.group("ftp").toMap(), ftp.toMap());
+        Assert.assertEquals(base.group("ftp").get("path"), "/tmp/");
+        Assert.assertEquals(production.group("common").getLong("basic_size_limit", 0), 26214400L);
+        Assert.assertTrue(production.group("missing").isEmpty());
+        Assert.assertTrue(production.group(null).isEmpty());
+        // production only replaces base keys, so it shares the base index
+        Assert.assertSame(production.getIndex(), base.getIndex());
+
+        Assert.assertEquals(production.keysWithPrefix("http."), Arrays.asList("http.name", "http.params", "http.path"));
+        Assert.assertEquals(production.keysWithPrefix("ftp.p"), Arrays.asList("ftp.path"));
+        Assert.assertTrue(production.keysWithPrefix("zzz").isEmpty());
+        Assert.assertEquals(production.keysInRange("ftp.", "ftp.path"), Arrays.asList("ftp.enabled", "ftp.name"));
+        Assert.assertEquals(production.keysInRange(null, null).size(), layers.getBase().size());
+        Assert.assertEquals(binary.keysWithPrefix(""), production.keysWithPrefix(null));
+
+        // keys added by overrides and groups named like "group.sub" sorting inside the group range
+        Map<String, Map<String, Property>> properties = new HashMap<String, Map<String, Property>>();
+        properties.put("http", new HashMap<String, Property>());
+        properties.get("http").put("port", new LongProperty("port", 80));
+        properties.put("http.v2", new HashMap<String, Property>());
+        properties.get("http.v2").put("port", new LongProperty("port", 8080));
+        properties.put("https", new HashMap<String, Property>());
+        properties.get("https").put("port", new LongProperty("port", 443));
+        ConfigImpl config = new ConfigImpl(path, null);
+        config.setProperties(properties);
+        Assert.assertEquals(config.group("http").getKeys(), Arrays.asList("port"));
+        Assert.assertEquals(config.group("http").getLong("port", 0), 80L);
+        Assert.assertEquals(config.keysWithPrefix("http"), Arrays.asList("http.port", "http.v2.port", "https.port"));
+
+        File configFile = File.createTempFile("group-view", ".properties");
+        configFile.deleteOnExit();
+        FileUtils.writeStringToFile(configFile, "[http]\nport = 80\nsecure<production> = true\n");
+        ConfigLayers added = ConfigLayers.load(configFile.getAbsolutePath(), new ConfigOptions());
+        ConfigSnapshot overridden = added.newConfig(Arrays.asList("production"));
+        Assert.assertEquals(overridden.group("http").getKeys(), Arrays.asList("port", "secure"));
+        Assert.assertTrue(overridden.group("http").getBoolean("secure", false));
+        Assert.assertEquals(added.newConfig(null).group("http").getKeys(), Arrays.asList("port"));
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test(enabled = true, groups = "unit")
+    public void testGetAllKeySetPositiveTest() throws Exception {
+        String path = getResourceFilePath(SAMPLE_CONFIG_FILE);
+        ConfigKeySet keys = ConfigKeySet.of("http.path", "common.basic_size_limit", "ftp.path", "ftp.missing",
+                "missing.key");
+        ConfigLayers layers = ConfigLayers.load(path, new ConfigOptions());
+        List<Config> configs = Arrays.<Config> asList(layers.newConfig(Arrays.asList("production")), new ConfigImpl(
+                path, Arrays.asList("production")), BinarySnapshot.offHeap(layers).newConfig(
+                Arrays.asList("production")));
+        Object[] values = new Object[keys.size()];
+        for (Config config : configs) {
+            Assert.assertSame(config.getAll(keys, values), values);
+            for (int i = 0; i < keys.size(); i++) {
+                Assert.assertEquals(values[i], config.get(keys.get(i)));
+            }
+            Assert.assertEquals(values[0], "/srv/var/tmp/");
+            Assert.assertEquals(values[1], 26214400L);
+            Assert.assertNull(values[3]);
+            Assert.assertNull(values[4]);
+        }
+        Assert.assertEquals(configs.get(0).getAll(keys, null).length, keys.size());
+
+        // set read alternately from two configs is resolved once per config
+        CountingSnapshot base = new CountingSnapshot(layers.newConfig(null));
+        CountingSnapshot overridden = new CountingSnapshot(layers.newConfig(Arrays.asList("production")));
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(base.getAll(keys, values)[0], "/tmp/");
+            Assert.assertEquals(overridden.getAll(keys, values)[0], "/srv/var/tmp/");
+        }
+        Assert.assertEquals(base.lookups.get(), keys.size());
+        Assert.assertEquals(overridden.lookups.get(), keys.size());
+
+        // resolved again once config is reloaded
+        ConfigImpl config = (ConfigImpl) configs.get(1);
+        Map<String, Map<String, Property>> properties = new HashMap<String, Map<String, Property>>();
+        properties.put("ftp", new HashMap<String, Property>());
+        properties.get("ftp").put("missing", new LongProperty("missing", 1));
+        config.setProperties(properties);
+        config.getAll(keys, values);
+        Assert.assertEquals(Arrays.asList(values), Arrays.<Object> asList(null, null, null, 1L, null));
+
+        try {
+            ConfigKeySet.of("http.path", "malformed");
+            Assert.fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("malformed"));
+        }
+    }
+
+    private static void assertSameProperties(ConfigImpl actual, ConfigImpl expected) {
+        Assert.assertEquals(actual.getProperties().keySet(), expected.getProperties().keySet());
+        for (String group : expected.getProperties().keySet()) {
+            Assert.assertEquals(actual.getProperties().get(group).keySet(), expected.getProperties().get(group)
+                    .keySet());
+            for (String key : expected.getProperties().get(group).keySet()) {
+                Assert.assertEquals(actual.get(group + "." + key), expected.get(group + "." + key));
+            }
+        }
+    }
+
+
+    /**
+     * snapshot counting lookups of wrapped snapshot
+     */
+    @SuppressWarnings("rawtypes")
+    private static final class CountingSnapshot extends ConfigSnapshot {
+
+        private final ConfigSnapshot config;
+
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        private CountingSnapshot(ConfigSnapshot config) {
+            this.config = config;
+        }
+
+        @Override
+        public Object get(String key) {
+            return config.get(key);
+        }
+
+        @Override
+        public Map<String, Map<String, Property>> getProperties() {
+            return config.getProperties();
+        }
+
+        @Override
+        protected Property lookup(String group, String key) {
+            lookups.incrementAndGet();
+            return config.lookup(group, key);
+        }
+    }
 }
@@ -0,0 +1,135 @@
+package com.twitter.config.parser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.twitter.config.exception.ConfigLoaderError;
+import com.twitter.config.exception.ConfigLoaderException;
+
+/**
+ * 
+ * @author agupta13
+ * 
+ */
+public class ConfigParserTest {
+
+    @Test(enabled = true, groups = "unit")
+    public void testParsePositiveTest() throws Exception {
+        List<String> properties = parse("; comment\n\n  [ftp]  \r\n"
+                + "name = \"hello there, ftp uploading\"\n"
+                + "\tpath<production> = /srv/var/tmp/ ; inline comment\n"
+                + "trailing = value==\n"
+                + "empty= ;\n");
+        Assert.assertEquals(properties.size(), 4);
+        Assert.assertEquals(properties.get(0), "ftp|name|\"hello there, ftp uploading\"");
+        Assert.assertEquals(properties.get(1), "ftp|path<production>|/srv/var/tmp/");
+        Assert.assertEquals(properties.get(2), "ftp|trailing|value");
+        Assert.assertEquals(properties.get(3), "ftp|empty|");
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testParseInvalidPropertyNegativeTest() throws Exception {
+        for (String line : new String[] { "basic_size_limit", "a=b=c", "a=", "=", "a = " }) {
+            try {
+                parse("[group]\n" + line + "\n");
+                Assert.fail("Invalid property line=" + line + " should throw exception");
+            } catch (ConfigLoaderException ex) {
+                Assert.assertEquals(ex.getErrorCode(), ConfigLoaderError.INVALID_PROPERTY_DEFINITION.name());
+            }
+        }
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testParseBlankGroupNegativeTest() throws Exception {
+        for (String content : new String[] { "a=b\n", "[]\na=b\n", "[ ]\na=b\n" }) {
+            try {
+                parse(content);
+                Assert.fail("Property without group should throw exception");
+            } catch (ConfigLoaderException ex) {
+                Assert.assertEquals(ex.getErrorCode(), ConfigLoaderError.PROPERTY_GROUP_NULL.name());
+            }
+        }
+    }
+
+    /* values stay in an off-heap copy of the file, the heap only holds what is decoded */
+    @Test(enabled = true, groups = "unit")
+    public void testMappedParseReadsOffHeapPositiveTest() throws Exception {
+        File configFile = File.createTempFile("mapped", ".properties");
+        configFile.deleteOnExit();
+        FileUtils.writeStringToFile(configFile, "[ftp]\npath = /srv\n", StandardCharsets.UTF_8);
+        ByteBuffer buffer = MappedConfigParser.read(configFile);
+        Assert.assertTrue(buffer.isDirect());
+        Assert.assertEquals(buffer.limit(), configFile.length());
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testParallelParseMatchesSequentialPositiveTest() throws Exception {
+        StringBuilder content = new StringBuilder("; header comment\n");
+        for (int i = 0; i < 200; i++) {
+            content.append(i % 3 == 0 ? "  [group" + i % 7 + "]  \r\n" : "[group" + i % 7 + "]\n");
+            content.append("key").append(i % 5).append(" = value").append(i).append(" ; comment\n");
+            content.append("key").append(i % 5).append("<production> = ").append(i).append("\r\n");
+            content.append("[not a group = x\n");
+        }
+        List<String> expected = parse(content.toString());
+        ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+        for (int chunkSize : new int[] { 1, 7, 100, 1000, buffer.limit() }) {
+            List<String> actual = new ArrayList<String>();
+            for (RecordingHandler handler : ParallelConfigParser.parse(buffer, new RecordingHandlerFactory(),
+                    chunkSize)) {
+                actual.addAll(handler.properties);
+            }
+            Assert.assertEquals(actual, expected, "chunkSize=" + chunkSize);
+        }
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testParallelParseFirstErrorNegativeTest() throws Exception {
+        String content = "[a]\nx=1\n[b]\ninvalid\n[c]\ny=2\n[d]\nz=1=2\n";
+        try {
+            ParallelConfigParser.parse(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)),
+                    new RecordingHandlerFactory(), 1);
+            Assert.fail("Invalid property line should throw exception");
+        } catch (ConfigLoaderException ex) {
+            Assert.assertTrue(ex.getErrorMsg().contains("invalid"), ex.getErrorMsg());
+        }
+    }
+
+    private static List<String> parse(String content) throws Exception {
+        final List<String> properties = new ArrayList<String>();
+        ConfigParser.parse(new BufferedReader(new StringReader(content)), new ConfigParser.Handler() {
+            @Override
+            public void property(String group, String key, CharSequence value) {
+                properties.add(group + "|" + key + "|" + value);
+            }
+        });
+        return properties;
+    }
+
+    private static class RecordingHandler implements ConfigParser.Handler {
+
+        private final List<String> properties = new ArrayList<String>();
+
+        @Override
+        public void property(String group, String key, CharSequence value) {
+            properties.add(group + "|" + key + "|" + value);
+        }
+    }
+
+    private static class RecordingHandlerFactory implements ParallelConfigParser.HandlerFactory<RecordingHandler> {
+
+        @Override
+        public RecordingHandler newHandler() {
+            return new RecordingHandler();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.twitter.config.processor;
+
+import static com.twitter.config.utils.ConfigLoaderUtils.getResourceFilePath;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.twitter.config.annotation.ConfigAccessor;
+import com.twitter.config.models.BooleanProperty;
+import com.twitter.config.models.ConfigHandle;
+import com.twitter.config.models.ConfigImpl;
+import com.twitter.config.models.ConfigLayers;
+import com.twitter.config.models.ConfigOptions;
+import com.twitter.config.models.DoubleProperty;
+import com.twitter.config.models.Property;
+
+/**
+ *
+ * @author agupta13
+ *
+ */
+public class ConfigAccessorProcessorTest {
+
+    private static final String SAMPLE_CONFIG_FILE = "sample.properties";
+
+    @Test(enabled = true, groups = "unit")
+    public void testGeneratedAccessorPositiveTest() throws Exception {
+        ConfigImpl config = new ConfigImpl(getResourceFilePath(SAMPLE_CONFIG_FILE), Arrays.asList("production"));
+        SampleSettings settings = new SampleSettingsImpl(config);
+        Assert.assertEquals(settings.basicSizeLimit(), 26214400L);
+        Assert.assertEquals(settings.paidUsersSizeLimit(-1), 2147483648.0);
+        Assert.assertEquals(settings.ftpPath(), "/srv/var/tmp/");
+        Assert.assertEquals(settings.ftpEnabled(null), "no");
+        Assert.assertEquals(settings.httpParams(), Arrays.asList("array", "of", "values"));
+        Assert.assertEquals(settings.httpName(), config.get("http.name"));
+
+        // handle reads follow reloads
+        ConfigLayers layers = ConfigLayers.load(getResourceFilePath(SAMPLE_CONFIG_FILE), new ConfigOptions());
+        ConfigHandle handle = new ConfigHandle(layers.newConfig(null));
+        SampleSettings handleSettings = new SampleSettingsImpl(handle);
+        Assert.assertEquals(handleSettings.ftpPath(), "/tmp/");
+        handle.update(layers.newConfig(Arrays.asList("staging")));
+        Assert.assertEquals(handleSettings.ftpPath(), "/srv/uploads/");
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test(enabled = true, groups = "unit")
+    public void testGeneratedNestedAccessorDefaultsPositiveTest() throws Exception {
+        ConfigImpl config = new ConfigImpl(getResourceFilePath(SAMPLE_CONFIG_FILE), null);
+        Map<String, Map<String, Property>> properties = new HashMap<String, Map<String, Property>>();
+        properties.put("limits", new HashMap<String, Property>());
+        properties.get("limits").put("ratio", new DoubleProperty("ratio", 0.75));
+        properties.get("limits").put("enabled", new BooleanProperty("enabled", true));
+        config.setProperties(properties);
+
+        SampleSettings.Limits limits = new SampleSettings_LimitsImpl(config);
+        Assert.assertEquals(limits.retries(3), 3L);
+        Assert.assertEquals(limits.ratio(), 0.75);
+        Assert.assertTrue(limits.enabled(false));
+        Assert.assertEquals(limits.missing("default"), "default");
+    }
+
+    @Test(enabled = true, groups = "unit")
+    public void testInvalidAccessorCompileErrorNegativeTest() throws Exception {
+        String source = "package test;\n" //
+                + "import com.twitter.config.annotation.ConfigAccessor;\n" //
+                + "import com.twitter.config.annotation.ConfigProperty;\n" //
+                + "@ConfigAccessor(file = \"" + SAMPLE_CONFIG_FILE + "\")\n" //
+                + "public interface Broken {\n" //
+                + "    @ConfigProperty(\"ftp.paht\") String typo();\n" //
+                + "    @ConfigProperty(\"ftp.path\") long wrongType();\n" //
+                + "    @ConfigProperty(\"malformed\") String malformed();\n" //
+                + "    @ConfigProperty(\"ftp.path\") String wrongDefault(long defaultValue);\n" //
+                + "    String unannotated();\n" //
+                + "    @ConfigProperty(\"ftp.path\") int unsupported();\n" //
+                + "}\n";
+        List<String> errors = compile(source);
+        Assert.assertEquals(errors.size(), 6, errors.toString());
+        Assert.assertTrue(errors.get(0).contains("ftp.paht is not defined"), errors.get(0));
+        Assert.assertTrue(errors.get(1).contains("StringProperty values"), errors.get(1));
+        Assert.assertTrue(errors.get(2).contains("malformed"), errors.get(2));
+        Assert.assertTrue(errors.get(3).contains("default value"), errors.get(3));
+        Assert.assertTrue(errors.get(4).contains("@ConfigProperty"), errors.get(4));
+        Assert.assertTrue(errors.get(5).contains("Unsupported return type"), errors.get(5));
+    }
+
+    /**
+     * compile source with the processor, class path holds the annotations and sample config
+     *
+     * @return error messages
+     */
+    private static List<String> compile(final String source) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        File output = Files.createTempDirectory("config-accessor").toFile();
+        try {
+            String classPath = new File(ConfigAccessor.class.getProtectionDomain().getCodeSource().getLocation()
+                    .toURI()).getPath();
+            JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///test/Broken.java"),
+                    JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                    return source;
+                }
+            };
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+            JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, Arrays.asList("-classpath",
+                    classPath, "-d", output.getPath(), "-s", output.getPath(), "-proc:only"), null, Arrays
+                    .asList(file));
+            task.setProcessors(Arrays.asList(new ConfigAccessorProcessor()));
+            Assert.assertFalse(task.call());
+            List<String> errors = new java.util.ArrayList<String>();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    errors.add(diagnostic.getMessage(null));
+                }
+            }
+            return errors;
+        } finally {
+            FileUtils.deleteDirectory(output);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.twitter.config.processor;
+
+import java.util.List;
+
+import com.twitter.config.annotation.ConfigAccessor;
+import com.twitter.config.annotation.ConfigProperty;
+
+/**
+ * Accessor of sample.properties, implemented by the generated SampleSettingsImpl
+ *
+ * @author agupta13
+ *
+ */
+@ConfigAccessor(file = "sample.properties")
+public interface SampleSettings {
+
+    @ConfigProperty("common.basic_size_limit")
+    long basicSizeLimit();
+
+    @ConfigProperty("common.paid_users_size_limit")
+    double paidUsersSizeLimit(double defaultValue);
+
+    @ConfigProperty("ftp.path")
+    String ftpPath();
+
+    @ConfigProperty("ftp.enabled")
+    String ftpEnabled(String defaultValue);
+
+    @ConfigProperty("http.params")
+    List<String> httpParams();
+
+    @ConfigProperty("http.name")
+    Object httpName();
+
+    /**
+     * keys checked for syntax only
+     */
+    @ConfigAccessor
+    interface Limits {
+
+        @ConfigProperty("limits.retries")
+        long retries(long defaultValue);
+
+        @ConfigProperty("limits.ratio")
+        double ratio();
+
+        @ConfigProperty("limits.enabled")
+        boolean enabled(boolean defaultValue);
+
+        @ConfigProperty("limits.missing")
+        Object missing(Object defaultValue);
+    }
+}